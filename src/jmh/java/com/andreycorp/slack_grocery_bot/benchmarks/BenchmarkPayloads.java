@@ -0,0 +1,117 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic, realistic inputs shared by the benchmarks, sized by number of orders.
+ */
+final class BenchmarkPayloads {
+
+    static final String TEAM_ID = "T0BENCH";
+
+    private static final String[] ITEMS = {
+            "apples", "bananas", "kg sugar", "milk", "green apples", "crème fraîche", "eggs",
+            "bread", "tomatoes", "cucumbers", "coffee beans", "oat milk", "yogurt", "hummus",
+            "pita", "olive oil", "rice", "pasta", "cheddar cheese", "orange juice"
+    };
+    private static final String[] QTYS = {"1", "2", "3", "10", "1.5", "0.5", ""};
+
+    private BenchmarkPayloads() {
+    }
+
+    /** One order entry, e.g. "2 green apples" or "banana" (no quantity). */
+    static String order(Random rnd) {
+        String qty = QTYS[rnd.nextInt(QTYS.length)];
+        String item = ITEMS[rnd.nextInt(ITEMS.length)];
+        return qty.isEmpty() ? item : qty + " " + item;
+    }
+
+    /** A single mention listing the given number of orders with mixed delimiters. */
+    static String orderMessage(int orders) {
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder("<@U0BOT> ");
+        String[] delimiters = {", ", "; ", ". "};
+        for (int i = 0; i < orders; i++) {
+            if (i > 0) {
+                // a period only splits before a quantity; keep the parse result predictable
+                String d = delimiters[rnd.nextInt(delimiters.length)];
+                sb.append(d.equals(". ") ? ", " : d);
+            }
+            sb.append(order(rnd));
+        }
+        return sb.toString();
+    }
+
+    /** One stored mention per order, spread over users (about five orders per user). */
+    static List<MessageEvent> messages(int orders) {
+        Random rnd = new Random(42);
+        int users = Math.max(1, orders / 5);
+        List<MessageEvent> out = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            out.add(new MessageEvent(TEAM_ID, "U" + rnd.nextInt(users), "C0ORDERS",
+                    "<@U0BOT> " + order(rnd), String.format("1718000000.%06d", i)));
+        }
+        return out;
+    }
+
+    /** +1 reactions on roughly a third of the messages, keyed by message ts. */
+    static Map<String, Long> plusOnes(List<MessageEvent> messages) {
+        Random rnd = new Random(7);
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (MessageEvent m : messages) {
+            if (rnd.nextInt(3) == 0) {
+                out.put(m.ts(), 1L + rnd.nextInt(3));
+            }
+        }
+        return out;
+    }
+
+    /** Aggregated per-user item totals, as rendered from the live summary. */
+    static List<OrderLineTotal> totals(int orders) {
+        Random rnd = new Random(42);
+        int users = Math.max(1, orders / 5);
+        List<OrderLineTotal> out = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            out.add(new OrderLineTotal("U" + (i % users), ITEMS[i % ITEMS.length] + " " + i,
+                    1 + rnd.nextInt(5), rnd.nextInt(3)));
+        }
+        return out;
+    }
+
+    /** Default items for the admin Home tab. */
+    static Map<String, Integer> defaults(int count) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            out.put(ITEMS[i % ITEMS.length] + " " + i, 1 + i % 4);
+        }
+        return out;
+    }
+
+    /** A slash-command body whose text lists the given number of orders. */
+    static String slashCommandBody(int orders) {
+        return "token=gIkuvaNzQIHg97ATvDxqgjtO&team_id=" + TEAM_ID + "&team_domain=example" +
+                "&channel_id=C0ORDERS&channel_name=office-grocery&user_id=U2147483697&user_name=steve" +
+                "&command=%2Fgrocery&text=" + URLEncoder.encode(orderMessage(orders), StandardCharsets.UTF_8) +
+                "&api_app_id=A123456&response_url=" +
+                URLEncoder.encode("https://hooks.slack.com/commands/1234/5678", StandardCharsets.UTF_8) +
+                "&trigger_id=13345224609.738474920.8088930838d88f008e0";
+    }
+
+    /** An app_mention event_callback listing the given number of orders. */
+    static String eventCallbackBody(int orders) {
+        String text = orderMessage(orders).replace("\\", "\\\\").replace("\"", "\\\"");
+        return "{\"token\":\"XXYYZZ\",\"team_id\":\"" + TEAM_ID + "\",\"api_app_id\":\"A123456\"," +
+                "\"event\":{\"type\":\"app_mention\",\"user\":\"U2147483697\",\"text\":\"" + text + "\"," +
+                "\"ts\":\"1718000000.000100\",\"channel\":\"C0ORDERS\",\"event_ts\":\"1718000000.000100\"}," +
+                "\"type\":\"event_callback\",\"event_id\":\"Ev0BENCH\",\"event_time\":1718000000}";
+    }
+}
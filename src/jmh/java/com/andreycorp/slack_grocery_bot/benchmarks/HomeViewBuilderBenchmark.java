@@ -0,0 +1,53 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.Services.ScheduleSettingsService;
+import com.andreycorp.slack_grocery_bot.Services.SummaryService;
+import com.andreycorp.slack_grocery_bot.UI.HomeViewBuilder;
+import com.andreycorp.slack_grocery_bot.model.ScheduleSettings;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HomeViewBuilder.buildAdminHomeJson with N default items and a summary of N orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HomeViewBuilderBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int orders;
+
+    private HomeViewBuilder builder;
+    private Map<String, Integer> defaults;
+    private String summaryMd;
+
+    @Setup
+    public void setUp() {
+        ScheduleSettings settings = new ScheduleSettings("MON", "09:00", "THU", "17:00");
+        // no database: serve the tenant's settings from memory
+        ScheduleSettingsService scheduleSettings = new ScheduleSettingsService(
+                null, null, null, null, null, null, null, new SimpleMeterRegistry(), 60) {
+            @Override
+            public ScheduleSettings getForTeam(String teamId) {
+                return settings;
+            }
+        };
+        builder = new HomeViewBuilder(scheduleSettings);
+        defaults = BenchmarkPayloads.defaults(orders);
+        summaryMd = new SummaryService(new OrderParser(), null, null, null, null, null)
+                .buildSummaryText(BenchmarkPayloads.totals(orders));
+    }
+
+    @Benchmark
+    public String buildAdminHomeJson() {
+        return builder.buildAdminHomeJson(BenchmarkPayloads.TEAM_ID, defaults, summaryMd);
+    }
+}
@@ -0,0 +1,35 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderParser.parseAll on one mention listing N orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderParserBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int orders;
+
+    private final OrderParser parser = new OrderParser();
+    private String message;
+
+    @Setup
+    public void setUp() {
+        message = BenchmarkPayloads.orderMessage(orders);
+    }
+
+    @Benchmark
+    public List<OrderParser.ParsedOrder> parseAll() {
+        return parser.parseAll(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.parsers.SlackRequestParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SlackRequestParser.parseFormUrlEncoded on a slash-command body whose text lists N orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlackRequestParserBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int orders;
+
+    private String body;
+
+    @Setup
+    public void setUp() {
+        body = BenchmarkPayloads.slashCommandBody(orders);
+    }
+
+    @Benchmark
+    public Map<String, String> parseFormUrlEncoded() {
+        return SlackRequestParser.parseFormUrlEncoded(body);
+    }
+}
@@ -0,0 +1,64 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.middleware.SlackSignatureFilter;
+import com.slack.api.app_backend.SlackSignature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature verification of an event_callback listing N orders:
+ *  - verify:   the HMAC check SlackSignatureFilter performs
+ *  - doFilter: the whole filter (body buffering + verification) on a mock request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlackSignatureFilterBenchmark {
+
+    private static final String SIGNING_SECRET = "8f742231b10e8888abcd99yyyzzz85a5";
+
+    @Param({"10", "100", "1000", "10000"})
+    public int orders;
+
+    private final SlackSignatureFilter filter = new SlackSignatureFilter(SIGNING_SECRET);
+    private final SlackSignature.Generator generator = new SlackSignature.Generator(SIGNING_SECRET);
+    private final SlackSignature.Verifier verifier = new SlackSignature.Verifier(generator);
+
+    private String body;
+    private byte[] bodyBytes;
+    private String timestamp;
+    private String signature;
+
+    // per iteration: Slack rejects timestamps older than five minutes
+    @Setup(Level.Iteration)
+    public void setUp() {
+        body = BenchmarkPayloads.eventCallbackBody(orders);
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        signature = generator.generate(timestamp, body);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return verifier.isValid(timestamp, body, signature);
+    }
+
+    @Benchmark
+    public int doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/slack/events");
+        request.addHeader("X-Slack-Request-Timestamp", timestamp);
+        request.addHeader("X-Slack-Signature", signature);
+        request.setContent(bodyBytes);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,52 @@
+package com.andreycorp.slack_grocery_bot.benchmarks;
+
+import com.andreycorp.slack_grocery_bot.Services.SummaryService;
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary rendering over N stored orders:
+ *  - fromMessages: SummaryService.processMessageEvents + buildSummaryText (parses every message)
+ *  - fromTotals:   buildSummaryText over pre-aggregated totals (the live summary path)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SummaryBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int orders;
+
+    private SummaryService summaryService;
+    private List<MessageEvent> messages;
+    private Map<String, Long> plusOnes;
+    private List<OrderLineTotal> totals;
+
+    @Setup
+    public void setUp() {
+        // only the parser is used by the in-memory summary methods
+        summaryService = new SummaryService(new OrderParser(), null, null, null, null, null);
+        messages = BenchmarkPayloads.messages(orders);
+        plusOnes = BenchmarkPayloads.plusOnes(messages);
+        totals = BenchmarkPayloads.totals(orders);
+    }
+
+    @Benchmark
+    public String fromMessages() {
+        return summaryService.buildSummaryText(summaryService.processMessageEvents(messages), plusOnes);
+    }
+
+    @Benchmark
+    public String fromTotals() {
+        return summaryService.buildSummaryText(totals);
+    }
+}
@@ -42,7 +42,7 @@ public class AdminHomeInteractionService {
     /**
      * Handle all block_actions from the Admin Home:
      *  - open_day_picker, open_time_picker,
-     *  - close_day_picker, close_time_picker,
+     *  - close_day_picker, close_time_picker, timezone_picker,
      *  - save_schedule,
      *  - add_default, default_item_actions.
      */
@@ -77,6 +77,12 @@ public class AdminHomeInteractionService {
                 );
                 break;
 
+            case "timezone_picker":
+                scheduleSettingsService.updateTimezone(
+                        action.get("selected_option").get("value").asText()
+                );
+                break;
+
             case "save_schedule":
                 // persist & re-render the Admin Home
                 Map<String,Integer> defaults = defaultGroceryService.listAll();
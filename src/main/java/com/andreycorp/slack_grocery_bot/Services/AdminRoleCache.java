@@ -0,0 +1,103 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches whether a user is a workspace admin or owner, per tenant, with a TTL.
+ *
+ * Filled by users.info lookups and by the optional users.list warm-up in SlackMessageService;
+ * Slack's user_change event overwrites a user's entry, so role changes apply without waiting
+ * for the TTL. Entries are held in a bounded LRU keyed by team and user.
+ */
+@Service
+public class AdminRoleCache {
+
+    private final long ttlNanos;
+    private final boolean warmUp;
+    private final Map<String, Entry> roles;
+    private final Map<String, Long> warmedAt = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public AdminRoleCache(
+            MeterRegistry meterRegistry,
+            @Value("${slack.admin-cache.ttl-minutes:15}") long ttlMinutes,
+            @Value("${slack.admin-cache.max-entries:50000}") int maxEntries,
+            @Value("${slack.admin-cache.warm-up:false}") boolean warmUp
+    ) {
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.warmUp = warmUp;
+        // access-ordered LinkedHashMap evicting the eldest entry = simple LRU
+        this.roles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits   = meterRegistry.counter("slack.admin-cache", "result", "hit");
+        this.misses = meterRegistry.counter("slack.admin-cache", "result", "miss");
+    }
+
+    /**
+     * Cached role of the user, or null when unknown or expired.
+     */
+    public Boolean get(String teamId, String userId) {
+        Entry e;
+        synchronized (roles) {
+            e = roles.get(key(teamId, userId));
+        }
+        if (e == null || System.nanoTime() - e.cachedAt >= ttlNanos) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.admin;
+    }
+
+    /**
+     * Records the user's current role.
+     */
+    public void put(String teamId, String userId, boolean admin) {
+        synchronized (roles) {
+            roles.put(key(teamId, userId), new Entry(admin, System.nanoTime()));
+        }
+    }
+
+    /**
+     * True at most once per tenant and TTL when warm-up is enabled: the caller should then load
+     * every user's role with users.list instead of a single users.info.
+     */
+    public boolean claimWarmUp(String teamId) {
+        if (!warmUp) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Long prev = warmedAt.get(teamId);
+        if (prev != null && now - prev < ttlNanos) {
+            return false;
+        }
+        // only the caller that swaps the timestamp runs the warm-up
+        return prev == null ? warmedAt.putIfAbsent(teamId, now) == null : warmedAt.replace(teamId, prev, now);
+    }
+
+    /**
+     * Lets the tenant warm up again, e.g. after a failed users.list.
+     */
+    public void releaseWarmUp(String teamId) {
+        warmedAt.remove(teamId);
+    }
+
+    private static String key(String teamId, String userId) {
+        return teamId + ":" + userId;
+    }
+
+    private record Entry(boolean admin, long cachedAt) {}
+}
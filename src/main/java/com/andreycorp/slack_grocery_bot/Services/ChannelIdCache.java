@@ -0,0 +1,111 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches channel name → channel ID per tenant.
+ *
+ * Filled by SlackMessageService while it pages through conversations.list, so one scan caches
+ * every channel it saw. channel_created / channel_rename / channel_deleted events keep the
+ * entries current; a TTL bounds staleness if an event is missed. A name that was not found is
+ * cached for a shorter time, so a missing channel does not trigger a full scan on every mention.
+ *
+ * Metrics: slack.channel-cache{result=hit|negative|miss}.
+ */
+@Service
+public class ChannelIdCache {
+
+    /** Returned by {@link #get} for a name known not to exist. */
+    public static final String NOT_FOUND = "";
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, Entry> channels;
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+
+    public ChannelIdCache(
+            MeterRegistry meterRegistry,
+            @Value("${slack.channel-cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${slack.channel-cache.negative-ttl-seconds:60}") long negativeTtlSeconds,
+            @Value("${slack.channel-cache.max-entries:50000}") int maxEntries
+    ) {
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        // access-ordered LinkedHashMap evicting the eldest entry = simple LRU
+        this.channels = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits         = meterRegistry.counter("slack.channel-cache", "result", "hit");
+        this.negativeHits = meterRegistry.counter("slack.channel-cache", "result", "negative");
+        this.misses       = meterRegistry.counter("slack.channel-cache", "result", "miss");
+    }
+
+    /**
+     * Cached channel ID, {@link #NOT_FOUND} for a name recently looked up in vain,
+     * or null when the name has to be resolved with conversations.list.
+     */
+    public String get(String teamId, String channelName) {
+        Entry e;
+        synchronized (channels) {
+            e = channels.get(key(teamId, channelName));
+        }
+        long now = System.nanoTime();
+        if (e == null || now - e.cachedAt >= (e.channelId == null ? negativeTtlNanos : ttlNanos)) {
+            misses.increment();
+            return null;
+        }
+        if (e.channelId == null) {
+            negativeHits.increment();
+            return NOT_FOUND;
+        }
+        hits.increment();
+        return e.channelId;
+    }
+
+    /**
+     * Records a channel seen in conversations.list or announced by channel_created.
+     */
+    public void put(String teamId, String channelName, String channelId) {
+        synchronized (channels) {
+            channels.put(key(teamId, channelName), new Entry(channelId, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Records that no channel with this name exists in the workspace.
+     */
+    public void putMissing(String teamId, String channelName) {
+        synchronized (channels) {
+            channels.put(key(teamId, channelName), new Entry(null, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops every name currently mapped to the channel (rename, deletion).
+     */
+    public void removeChannel(String teamId, String channelId) {
+        String prefix = teamId + ":";
+        synchronized (channels) {
+            channels.entrySet().removeIf(en ->
+                    channelId.equals(en.getValue().channelId) && en.getKey().startsWith(prefix));
+        }
+    }
+
+    private static String key(String teamId, String channelName) {
+        return teamId + ":" + channelName;
+    }
+
+    private record Entry(String channelId, long cachedAt) {}
+}
@@ -23,6 +23,11 @@ public class DefaultsStoreService {
         return dao.listAll();
     }
 
+    /** Fetch all defaults for an explicit workspace (no request scope needed). */
+    public Map<String, Integer> listAllForTeam(String teamId) {
+        return dao.listAll(teamId);
+    }
+
     /** Create or update the default quantity for an item. */
     public void upsertDefault(String itemName, int qty) {
         dao.upsertDefault(itemName, qty);
@@ -0,0 +1,74 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the most recent Slack event_ids so redelivered events
+ * (X-Slack-Retry-Num / X-Slack-Retry-Reason) are dropped before any Slack API or DB work.
+ *
+ * The cache is a bounded LRU; once an id is evicted (or after a restart) a retry falls
+ * through to the handlers, where the unique constraints on message_event/reaction_event
+ * and ON CONFLICT DO NOTHING inserts keep the stored data free of duplicates.
+ */
+@Service
+public class EventDeduplicator {
+
+    private final Map<String, Boolean> recentEventIds;
+    private final MeterRegistry meterRegistry;
+
+    public EventDeduplicator(
+            MeterRegistry meterRegistry,
+            @Value("${slack.events.dedupe.capacity:10000}") int capacity
+    ) {
+        this.meterRegistry = meterRegistry;
+        // access-ordered LinkedHashMap evicting the eldest entry = simple LRU
+        this.recentEventIds = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Records the event and returns true if it has not been seen recently.
+     * @param teamId     Slack workspace ID
+     * @param eventId    Slack event_id from the event_callback envelope
+     * @param retryNum   value of X-Slack-Retry-Num, or null on first delivery
+     * @param retryReason value of X-Slack-Retry-Reason, or null on first delivery
+     */
+    public boolean markIfNew(String teamId, String eventId, String retryNum, String retryReason) {
+        if (eventId == null || eventId.isEmpty()) {
+            return true; // nothing to key on, let the DB constraints handle it
+        }
+        boolean isNew;
+        synchronized (recentEventIds) {
+            isNew = recentEventIds.putIfAbsent(teamId + ":" + eventId, Boolean.TRUE) == null;
+        }
+        if (!isNew) {
+            meterRegistry.counter("slack.events.duplicates",
+                    "retry_reason", retryReason != null ? retryReason : "none").increment();
+            System.out.printf("Dropped duplicate event %s for team %s (retry %s, %s)%n",
+                    eventId, teamId, retryNum, retryReason); // debug log
+        }
+        return isNew;
+    }
+
+    /**
+     * Forgets an event accepted by markIfNew that could not be handled (handler failed or the
+     * queue was full), so Slack's redelivery of it is processed instead of dropped.
+     */
+    public void forget(String teamId, String eventId) {
+        if (eventId == null || eventId.isEmpty()) {
+            return;
+        }
+        synchronized (recentEventIds) {
+            recentEventIds.remove(teamId + ":" + eventId);
+        }
+    }
+}
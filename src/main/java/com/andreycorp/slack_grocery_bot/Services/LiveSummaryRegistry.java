@@ -0,0 +1,325 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSummaryVersionStore;
+import com.andreycorp.slack_grocery_bot.model.EventStore;
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.OrderLineStore;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant, incrementally maintained order aggregate behind the real-time Home tab summary.
+ *
+ * Each saved message or reaction is applied in O(items of the message); the summary is read
+ * from memory instead of being rebuilt from the database on every mention and Home open.
+ *
+ * A tenant's aggregate is built lazily from the order_line rows (OrderLineStore) and +1
+ * reactions on first read (after a restart, an eviction or an invalidation). Updates arriving
+ * before that are skipped: they are already in the store and the rebuild picks them up.
+ * Updates are idempotent (keyed by message and reaction), so an event seen both by the rebuild
+ * and by the handler is counted once.
+ *
+ * Every instance holds its own aggregate, but Slack delivers each event to one instance and
+ * closes/compaction run on the tenant's owner. Each aggregate therefore remembers the tenant's
+ * summary_version it was built at and compares it with the database at most once per
+ * version-check interval; a version moved by another instance's write triggers a rebuild.
+ * This instance's own committed writes advance the aggregate's version without a rebuild,
+ * as long as the aggregate already holds the rows they wrote.
+ *
+ * Each change of an aggregate gets a new revision, which the render cache keys on.
+ */
+@Service
+public class LiveSummaryRegistry {
+
+    // process-wide, so a rebuilt or re-created aggregate never reuses a revision
+    private static final AtomicLong REVISIONS = new AtomicLong();
+
+    private final OrderLineStore orderLineStore;
+    private final EventStore eventStore;
+    private final JdbcSummaryVersionStore versions;
+    private final long versionCheckNanos;
+    private final Map<String, LiveSummary> summaries;
+    private final Timer rebuildTimer;
+    private final Counter staleRebuilds;
+
+    public LiveSummaryRegistry(
+            OrderLineStore orderLineStore,
+            EventStore eventStore,
+            JdbcSummaryVersionStore versions,
+            MeterRegistry meterRegistry,
+            @Value("${slack.summary.live.max-tenants:1000}") int maxTenants,
+            @Value("${slack.summary.live.version-check-ms:1000}") long versionCheckMs
+    ) {
+        this.orderLineStore = orderLineStore;
+        this.eventStore = eventStore;
+        this.versions = versions;
+        this.versionCheckNanos = TimeUnit.MILLISECONDS.toNanos(versionCheckMs);
+        // access-ordered LinkedHashMap evicting the eldest entry = simple LRU; evicted tenants rebuild on demand
+        this.summaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LiveSummary> eldest) {
+                return size() > maxTenants;
+            }
+        };
+        Gauge.builder("slack.summary.live.tenants", this, r -> r.size())
+                .description("Tenants with an in-memory live summary")
+                .register(meterRegistry);
+        this.rebuildTimer = meterRegistry.timer("slack.summary.live.rebuild");
+        this.staleRebuilds = Counter.builder("slack.summary.live.stale")
+                .description("Rebuilds because another instance changed the tenant's summary data")
+                .register(meterRegistry);
+        versions.addListener(this::ownWriteCommitted);
+    }
+
+    /**
+     * Current per-user item totals of the workspace, building or refreshing the aggregate if needed.
+     */
+    public List<OrderLineTotal> totalsForTeam(String teamId) {
+        LiveSummary summary = current(teamId);
+        synchronized (summary) {
+            return summary.totals();
+        }
+    }
+
+    /**
+     * Revision of the workspace's aggregate, after refreshing it like {@link #totalsForTeam}.
+     * It changes whenever the totals may have changed.
+     */
+    public long revision(String teamId) {
+        LiveSummary summary = current(teamId);
+        synchronized (summary) {
+            return summary.revision;
+        }
+    }
+
+    /**
+     * Applies a saved message and its parsed order lines.
+     */
+    public void applyMessage(String teamId, MessageEvent message, List<OrderLine> lines) {
+        LiveSummary summary = loadedOrNull(teamId);
+        if (summary != null) {
+            synchronized (summary) {
+                summary.addMessage(message, lines);
+            }
+        }
+    }
+
+    /**
+     * Applies a saved reaction; only +1 reactions affect the summary.
+     */
+    public void applyReaction(String teamId, ReactionEvent reaction) {
+        if (!"+1".equals(reaction.reaction())) {
+            return;
+        }
+        LiveSummary summary = loadedOrNull(teamId);
+        if (summary != null) {
+            synchronized (summary) {
+                summary.addPlusOne(reaction);
+            }
+        }
+    }
+
+    /**
+     * Drops the tenant's aggregate; the next read rebuilds it from the store.
+     */
+    public void invalidate(String teamId) {
+        synchronized (summaries) {
+            summaries.remove(teamId);
+        }
+    }
+
+    /**
+     * Loaded aggregate whose version matched the database within the version-check interval.
+     */
+    private LiveSummary current(String teamId) {
+        LiveSummary summary;
+        synchronized (summaries) {
+            summary = summaries.computeIfAbsent(teamId, t -> new LiveSummary());
+        }
+        synchronized (summary) {
+            long now = System.nanoTime();
+            if (summary.loaded && now - summary.checkedAt < versionCheckNanos) {
+                return summary;
+            }
+            // read before the rows: a write committed in between only causes one more rebuild
+            long version = versions.current(teamId);
+            if (!summary.loaded || summary.version != version) {
+                if (summary.loaded) {
+                    staleRebuilds.increment();
+                }
+                rebuildTimer.record(() -> rebuild(teamId, summary, version));
+            }
+            summary.checkedAt = now;
+            return summary;
+        }
+    }
+
+    /**
+     * A write of this instance moved the tenant's version. Rows written while the aggregate was
+     * not loaded (or by the backfill) were never applied to it, so it then stays behind and
+     * rebuilds on its next check.
+     */
+    private void ownWriteCommitted(JdbcSummaryVersionStore.Bump bump) {
+        LiveSummary summary;
+        synchronized (summaries) {
+            summary = summaries.get(bump.teamId());
+        }
+        if (summary == null) {
+            return;
+        }
+        synchronized (summary) {
+            if (summary.loaded && summary.version == bump.version() - 1
+                    && summary.holds(bump.lines(), bump.plusOnes())) {
+                summary.version = bump.version();
+            }
+        }
+    }
+
+    private LiveSummary loadedOrNull(String teamId) {
+        LiveSummary summary;
+        synchronized (summaries) {
+            summary = summaries.get(teamId);
+        }
+        if (summary == null) {
+            return null;
+        }
+        synchronized (summary) {
+            return summary.loaded ? summary : null;
+        }
+    }
+
+    private int size() {
+        synchronized (summaries) {
+            return summaries.size();
+        }
+    }
+
+    /** Called with the summary's lock held. */
+    private void rebuild(String teamId, LiveSummary summary, long version) {
+        summary.reset();
+        orderLineStore.forEachLineForTeam(teamId, summary::addLine);
+        eventStore.forEachReactionForTeam(teamId, r -> {
+            if ("+1".equals(r.reaction())) {
+                summary.addPlusOne(r);
+            }
+        });
+        summary.version = version;
+        summary.loaded = true;
+        summary.touch();
+    }
+
+    /**
+     * One tenant's aggregate. Not thread-safe on its own: guarded by its monitor.
+     */
+    private static class LiveSummary {
+        boolean loaded;
+        long version;   // tenant's summary_version the aggregate is known to match
+        long checkedAt; // System.nanoTime() of the last comparison with the database
+        long revision = REVISIONS.incrementAndGet();
+        // user → (item → totals), in the order they were first ordered
+        final Map<String, Map<String, ItemTotal>> byUser = new LinkedHashMap<>();
+        // message key → one entry per order line of that message
+        final Map<String, List<ItemTotal>> linesByMessage = new HashMap<>();
+        // message key → +1 reactions on that message
+        final Map<String, Long> plusOnesByMessage = new HashMap<>();
+        final Set<String> appliedMessages = new HashSet<>();
+        final Set<String> appliedReactions = new HashSet<>();
+
+        void reset() {
+            loaded = false;
+            byUser.clear();
+            linesByMessage.clear();
+            plusOnesByMessage.clear();
+            appliedMessages.clear();
+            appliedReactions.clear();
+        }
+
+        void touch() {
+            revision = REVISIONS.incrementAndGet();
+        }
+
+        void addMessage(MessageEvent m, List<OrderLine> lines) {
+            if (!appliedMessages.add(messageKey(m.channel(), m.ts()))) {
+                return;
+            }
+            for (OrderLine l : lines) {
+                addLine(l);
+            }
+            if (!lines.isEmpty()) {
+                touch();
+            }
+        }
+
+        /** One stored line; its message is marked applied so a redelivery is not counted again. */
+        void addLine(OrderLine l) {
+            String key = messageKey(l.channel(), l.messageTs());
+            appliedMessages.add(key);
+            long plusOnes = plusOnesByMessage.getOrDefault(key, 0L);
+            ItemTotal total = byUser.computeIfAbsent(l.user(), u -> new LinkedHashMap<>())
+                    .computeIfAbsent(l.item(), i -> new ItemTotal());
+            total.qty += l.qty();
+            total.plusOnes += plusOnes; // reactions that arrived before the message
+            linesByMessage.computeIfAbsent(key, k -> new ArrayList<>()).add(total);
+        }
+
+        void addPlusOne(ReactionEvent r) {
+            String key = messageKey(r.channel(), r.ts());
+            if (!appliedReactions.add(key + ":" + r.user())) {
+                return;
+            }
+            plusOnesByMessage.merge(key, 1L, Long::sum);
+            for (ItemTotal total : linesByMessage.getOrDefault(key, List.of())) {
+                total.plusOnes++;
+            }
+            touch();
+        }
+
+        /** Whether every given row is already counted in the aggregate. */
+        boolean holds(List<OrderLine> lines, List<ReactionEvent> plusOnes) {
+            for (OrderLine l : lines) {
+                if (!appliedMessages.contains(messageKey(l.channel(), l.messageTs()))) {
+                    return false;
+                }
+            }
+            for (ReactionEvent r : plusOnes) {
+                if (!appliedReactions.contains(messageKey(r.channel(), r.ts()) + ":" + r.user())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<OrderLineTotal> totals() {
+            List<OrderLineTotal> out = new ArrayList<>();
+            byUser.forEach((user, items) -> items.forEach((item, t) ->
+                    out.add(new OrderLineTotal(user, item, t.qty, t.plusOnes))));
+            return out;
+        }
+
+        private static String messageKey(String channel, String ts) {
+            return channel + ":" + ts;
+        }
+    }
+
+    private static class ItemTotal {
+        double qty;
+        long plusOnes;
+    }
+}
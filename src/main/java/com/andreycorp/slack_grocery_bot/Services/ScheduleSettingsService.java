@@ -3,25 +3,43 @@ package com.andreycorp.slack_grocery_bot.Services;
 import com.andreycorp.slack_grocery_bot.context.TenantContext;
 import com.andreycorp.slack_grocery_bot.jdbc.JdbcScheduleSettingsService;
 import com.andreycorp.slack_grocery_bot.model.ScheduleSettings;
-import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
-import jakarta.annotation.PostConstruct;
+import com.andreycorp.slack_grocery_bot.scheduler.ClusterMembership;
+import com.andreycorp.slack_grocery_bot.scheduler.ScheduledRuns;
+import com.andreycorp.slack_grocery_bot.scheduler.SpreadPolicy;
+import com.andreycorp.slack_grocery_bot.scheduler.TenantScheduler;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklySchedule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service that manages scheduling of the weekly order thread for each workspace (tenant).
  *
- * On startup, it loads all tenant IDs and schedules open/close tasks per tenant.
+ * Once the app is ready, it loads every tenant's settings in one query and schedules open/close tasks per
+ * tenant, in the tenant's own time zone, on the shared TenantScheduler (timed as slack.scheduler.bootstrap, see /actuator/metrics).
  * When an admin updates their schedule pickers, it persists to the DB and reschedules only that tenant's jobs.
  *
+ * With several instances, each registers only the tenants ClusterMembership assigns to it. When the
+ * membership changes (ClusterMembership's heartbeat), and every sync-seconds (which also picks up new
+ * installs and settings saved through another instance), it reconciles its jobs with the DB.
+ * Tenants it starts scheduling (at startup or taken over from another instance) get their missed runs
+ * caught up (ScheduledRuns).
+ *
  * Cron tasks are not using the TenantContext directly, as they are not run in the context of HTTP request.
  */
 
@@ -29,59 +47,147 @@ import java.util.concurrent.ScheduledFuture;
 
 public class ScheduleSettingsService {
 
-    private static final String JERUSALEM_ZONE     = "Asia/Jerusalem";
     private static final String DEFAULT_OPEN_DAY   = "MON";
     private static final String DEFAULT_CLOSE_DAY  = "THU";
     private static final String DEFAULT_OPEN_TIME  = "09:00";
     private static final String DEFAULT_CLOSE_TIME = "17:00";
 
-    private final TaskScheduler               taskScheduler;
-    private final WeeklyOrderScheduler        weeklyOrderScheduler;
+    private final TenantScheduler             tenantScheduler;
+    private final SpreadPolicy                spreadPolicy;
+    private final ScheduledRuns               scheduledRuns;
     private final JdbcScheduleSettingsService dao;
     private final TenantContext               tenantContext;
-    private final ZoneId                      zoneId = ZoneId.of(JERUSALEM_ZONE);
-
-    // Track scheduled jobs per tenant
-    private final Map<String, ScheduledFuture<?>> openJobs  = new ConcurrentHashMap<>();
-    private final Map<String, ScheduledFuture<?>> closeJobs = new ConcurrentHashMap<>();
+    private final ClusterMembership           cluster;
+    private final TaskScheduler               maintenanceScheduler;
+    private final long                        syncSeconds;
+    // tenants scheduled on this instance → the schedule they were registered with (see signature)
+    private final Map<String, String>         registered = new HashMap<>();
+    private final Timer                       bootstrapTimer;
+    private final AtomicInteger               bootstrappedTenants = new AtomicInteger();
 
     public ScheduleSettingsService(
-            TaskScheduler taskScheduler,
-            WeeklyOrderScheduler weeklyOrderScheduler,
+            TenantScheduler tenantScheduler,
+            SpreadPolicy spreadPolicy,
+            ScheduledRuns scheduledRuns,
             JdbcScheduleSettingsService dao,
-            TenantContext tenantContext
+            TenantContext tenantContext,
+            ClusterMembership cluster,
+            TaskScheduler maintenanceScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${slack.scheduler.cluster.sync-seconds:60}") long syncSeconds
     ) {
-        this.taskScheduler        = taskScheduler;
-        this.weeklyOrderScheduler = weeklyOrderScheduler;
+        this.tenantScheduler      = tenantScheduler;
+        this.spreadPolicy         = spreadPolicy;
+        this.scheduledRuns        = scheduledRuns;
         this.dao                  = dao;
         this.tenantContext        = tenantContext;
+        this.cluster              = cluster;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.syncSeconds          = syncSeconds;
+        this.bootstrapTimer = Timer.builder("slack.scheduler.bootstrap")
+                .description("Time to load and schedule all tenants' weekly jobs at startup")
+                .register(meterRegistry);
+        meterRegistry.gauge("slack.scheduler.bootstrap.tenants", bootstrappedTenants);
     }
 
     /**
-     * Initialize the service by scheduling jobs for all existing tenants.
-     * This runs once at application startup to ensure all teams have their jobs scheduled.
+     * Join the scheduler cluster and schedule jobs for this instance's share of the existing tenants,
+     * once the application is ready (so a large tenant count does not hold up startup).
      */
-    @PostConstruct
+    @EventListener(ApplicationReadyEvent.class)
     public void init() {
-        List<String> teamIds = dao.findAllTeamIds();
-        for (String teamId : teamIds) {
-            scheduleForTenant(teamId);
+        cluster.refresh();
+        long start = System.nanoTime();
+        int owned = reconcile();
+        long elapsed = System.nanoTime() - start;
+        bootstrapTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        bootstrappedTenants.set(owned);
+        System.out.printf("Scheduled weekly jobs of %d tenants on node %s in %d ms: %s%n",
+                owned, cluster.nodeId(), TimeUnit.NANOSECONDS.toMillis(elapsed), spreadPolicy.spread());
+
+        // the heartbeat thread only notices the change; the reconcile runs here
+        cluster.startHeartbeat(() -> maintenanceScheduler.schedule(this::sync, Instant.now()));
+        maintenanceScheduler.scheduleWithFixedDelay(this::sync,
+                Instant.now().plusSeconds(syncSeconds), Duration.ofSeconds(syncSeconds));
+    }
+
+    private void sync() {
+        try {
+            bootstrappedTenants.set(reconcile());
+        } catch (RuntimeException ex) {
+            System.err.println("Schedule reconciliation failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Registers the owned tenants whose settings changed since they were registered and cancels the
+     * tenants this instance no longer owns (or that were uninstalled), then catches up the missed runs
+     * of the newly registered ones. Holds the lock throughout, so an admin update arriving meanwhile is
+     * rescheduled from the DB afterwards rather than overwritten.
+     * @return number of tenants scheduled on this instance
+     */
+    private synchronized int reconcile() {
+        Map<String, ScheduleSettings> all = dao.findAllWithSettings();
+        List<String> added = new ArrayList<>();
+        all.forEach((teamId, s) -> {
+            if (!cluster.owns(teamId)) {
+                unregister(teamId);
+            } else if (!signature(s).equals(registered.get(teamId))) {
+                boolean isNew = !registered.containsKey(teamId);
+                try {
+                    register(teamId, s);
+                } catch (RuntimeException ex) {
+                    // one bad row must not keep the other tenants from being scheduled
+                    System.err.println("Invalid schedule settings for team " + teamId + ", skipped: " + ex.getMessage());
+                    return;
+                }
+                if (isNew) {
+                    added.add(teamId);
+                }
+            }
+        });
+        for (String teamId : List.copyOf(registered.keySet())) {
+            if (!all.containsKey(teamId)) {
+                unregister(teamId);
+            }
         }
+        scheduledRuns.catchUp(added);
+        return registered.size();
     }
 
     /**
-     * Load schedule settings for the given tenant and (re)register Cron jobs.
+     * Load schedule settings for the given tenant and (re)register Cron jobs if this instance owns it;
+     * otherwise the owner picks the change up on its next sync.
      * Never references TenantContext here—uses explicit teamId.
      */
     private synchronized void scheduleForTenant(String teamId) {
-        // Cancel any existing jobs
-        ScheduledFuture<?> oldOpen = openJobs.remove(teamId);
-        if (oldOpen != null) oldOpen.cancel(false);
-        ScheduledFuture<?> oldClose = closeJobs.remove(teamId);
-        if (oldClose != null) oldClose.cancel(false);
+        if (cluster.owns(teamId)) {
+            register(teamId, dao.findByTeamId(teamId));
+        } else {
+            unregister(teamId);
+        }
+    }
 
-        // Fetch settings or fall back to defaults
-        ScheduleSettings s = dao.findByTeamId(teamId);
+    private void unregister(String teamId) {
+        if (registered.remove(teamId) != null) {
+            tenantScheduler.cancel(openJobKey(teamId));
+            tenantScheduler.cancel(closeJobKey(teamId));
+            spreadPolicy.forget(openJobKey(teamId));
+            spreadPolicy.forget(closeJobKey(teamId));
+        }
+    }
+
+    private static String signature(ScheduleSettings s) {
+        return s == null ? "default" : s.toString();
+    }
+
+    /**
+     * (Re)register the tenant's weekly jobs; null settings mean the defaults.
+     * Settings that do not parse throw before anything is changed, so the tenant keeps its current jobs.
+     */
+    private void register(String teamId, ScheduleSettings s) {
+        String signature = signature(s);
+        boolean defaultSchedule = s == null;
         if (s == null) {
             s = new ScheduleSettings(
                     DEFAULT_OPEN_DAY, DEFAULT_OPEN_TIME,
@@ -89,38 +195,52 @@ public class ScheduleSettingsService {
             );
         }
 
-        // Schedule open-thread job
-        String[] ot = s.getOpenTime().split(":");
-        int oh = Integer.parseInt(ot[0]), om = Integer.parseInt(ot[1]);
-        String openCron = String.format("0 %d %d * * %s", om, oh, s.getOpenDay());
-        ScheduledFuture<?> openFuture = taskScheduler.schedule(() -> {
+        WeeklySchedule open = WeeklySchedule.of(s.getOpenDay(), s.getOpenTime(), s.getTimezone());
+        WeeklySchedule close = WeeklySchedule.of(s.getCloseDay(), s.getCloseTime(), s.getTimezone());
+        registered.put(teamId, signature);
+
+        // Schedule open-thread job (replaces any existing one for this tenant);
+        // tenants sharing a fire time are fanned out by a fixed per-tenant offset
+        String openKey = openJobKey(teamId);
+        tenantScheduler.schedule(openKey, open, spreadPolicy.offsetFor(openKey, defaultSchedule), firedFor -> {
             try {
-                weeklyOrderScheduler.openOrderThreadFor(teamId);
+                scheduledRuns.open(teamId, firedFor);
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        }, new CronTrigger(openCron, zoneId));
-        openJobs.put(teamId, openFuture);
+        });
 
         // Schedule close-thread job
-        String[] ct = s.getCloseTime().split(":");
-        int ch = Integer.parseInt(ct[0]), cm = Integer.parseInt(ct[1]);
-        String closeCron = String.format("0 %d %d * * %s", cm, ch, s.getCloseDay());
-        ScheduledFuture<?> closeFuture = taskScheduler.schedule(() -> {
+        String closeKey = closeJobKey(teamId);
+        tenantScheduler.schedule(closeKey, close, spreadPolicy.offsetFor(closeKey, defaultSchedule), firedFor -> {
             try {
-                weeklyOrderScheduler.closeOrderThreadFor(teamId);
+                scheduledRuns.close(teamId, firedFor);
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        }, new CronTrigger(closeCron, zoneId));
-        closeJobs.put(teamId, closeFuture);
+        });
+    }
+
+    private static String openJobKey(String teamId) {
+        return ScheduledRuns.jobKey(ScheduledRuns.OPEN, teamId);
+    }
+
+    private static String closeJobKey(String teamId) {
+        return ScheduledRuns.jobKey(ScheduledRuns.CLOSE, teamId);
     }
 
     /**
      * Returns current settings for rendering Home-tab pickers, with defaults if none in DB.
      */
     public ScheduleSettings get() {
-        String teamId = tenantContext.getTeamId();
+        return getForTeam(tenantContext.getTeamId());
+    }
+
+    /**
+     * Returns settings for an explicit tenant, with defaults if none in DB.
+     * Used by code running outside an HTTP request (async event workers).
+     */
+    public ScheduleSettings getForTeam(String teamId) {
         ScheduleSettings s = dao.findByTeamId(teamId);
         if (s == null) {
             s = new ScheduleSettings(
@@ -142,7 +262,8 @@ public class ScheduleSettingsService {
                 newOpenDay,
                 LocalTime.parse(old.getOpenTime()),
                 old.getCloseDay(),
-                LocalTime.parse(old.getCloseTime())
+                LocalTime.parse(old.getCloseTime()),
+                old.getTimezone()
         );
         scheduleForTenant(teamId);
     }
@@ -158,7 +279,8 @@ public class ScheduleSettingsService {
                 old.getOpenDay(),
                 LocalTime.parse(newOpenTime),
                 old.getCloseDay(),
-                LocalTime.parse(old.getCloseTime())
+                LocalTime.parse(old.getCloseTime()),
+                old.getTimezone()
         );
         scheduleForTenant(teamId);
     }
@@ -174,7 +296,8 @@ public class ScheduleSettingsService {
                 old.getOpenDay(),
                 LocalTime.parse(old.getOpenTime()),
                 newCloseDay,
-                LocalTime.parse(old.getCloseTime())
+                LocalTime.parse(old.getCloseTime()),
+                old.getTimezone()
         );
         scheduleForTenant(teamId);
     }
@@ -190,7 +313,27 @@ public class ScheduleSettingsService {
                 old.getOpenDay(),
                 LocalTime.parse(old.getOpenTime()),
                 old.getCloseDay(),
-                LocalTime.parse(newCloseTime)
+                LocalTime.parse(newCloseTime),
+                old.getTimezone()
+        );
+        scheduleForTenant(teamId);
+    }
+
+    /**
+     * Update the time zone of the current tenant's schedule, persist and reschedule.
+     * @param newTimezone IANA zone ID, e.g. "America/New_York"
+     */
+    public void updateTimezone(String newTimezone) {
+        ZoneId.of(newTimezone); // reject unknown zones before they reach the DB
+        String teamId = tenantContext.getTeamId();
+        ScheduleSettings old = get();
+        dao.upsert(
+                teamId,
+                old.getOpenDay(),
+                LocalTime.parse(old.getOpenTime()),
+                old.getCloseDay(),
+                LocalTime.parse(old.getCloseTime()),
+                newTimezone
         );
         scheduleForTenant(teamId);
     }
@@ -206,7 +349,8 @@ public class ScheduleSettingsService {
                 s.getOpenDay(),
                 LocalTime.parse(s.getOpenTime()),
                 s.getCloseDay(),
-                LocalTime.parse(s.getCloseTime())
+                LocalTime.parse(s.getCloseTime()),
+                s.getTimezone()
         );
         scheduleForTenant(teamId);
     }
@@ -0,0 +1,301 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.SlackApiException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends every outbound Slack Web API call through per-tenant, per-method token buckets.
+ *
+ * Calls wait in one priority queue (user-facing acks ahead of scheduled posts ahead of Home
+ * refreshes, FIFO within a priority). A single dispatcher thread takes the head call; if its
+ * bucket is empty the call is parked until the bucket refills and the dispatcher moves on, so
+ * one throttled tenant does not hold up the others. Calls with a token run on their own virtual
+ * thread: the buckets alone limit throughput, not a worker count, so many workspaces can each
+ * use their full rate at once. A 429 blocks that bucket for Retry-After seconds and the call is
+ * queued again instead of failing.
+ *
+ * Callers block until their call completes, so SlackMessageService keeps its synchronous API.
+ * max-wait only bounds the time spent queued: once a call has been sent, the caller waits for
+ * Slack's answer, because giving up then could let a retry (e.g. the outbox) post it twice.
+ *
+ * Metrics: slack.api.queue.depth, slack.api.queue.wait{priority}, slack.api.throttled{method},
+ * slack.api.ratelimited{method}.
+ */
+@Service
+public class SlackApiDispatcher {
+
+    /** Lower ordinal runs first. */
+    public enum Priority {
+        /** The user is waiting on it: acks, modals. */
+        USER_FACING,
+        /** Posts and lookups on the regular event/scheduler path. */
+        NORMAL,
+        /** Home tab refreshes and cache warm-ups. */
+        BACKGROUND
+    }
+
+    @FunctionalInterface
+    public interface SlackCall<T> {
+        T call(MethodsClient client) throws IOException, SlackApiException;
+    }
+
+    private final SlackClientRegistry clientRegistry;
+    private final MeterRegistry meterRegistry;
+    private final int maxRetries;
+    private final long maxWaitSeconds;
+    private final PriorityBlockingQueue<PendingCall<?>> queue = new PriorityBlockingQueue<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+    private final Executor callExecutor;
+    private final Thread dispatcher;
+    private final ScheduledExecutorService delayer;
+
+    @Autowired
+    public SlackApiDispatcher(
+            SlackClientRegistry clientRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${slack.api.dispatcher.max-retries:5}") int maxRetries,
+            @Value("${slack.api.dispatcher.max-wait-seconds:30}") long maxWaitSeconds
+    ) {
+        this(clientRegistry, meterRegistry, maxRetries, maxWaitSeconds, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @param callExecutor runs each call once its bucket allows it
+     */
+    public SlackApiDispatcher(
+            SlackClientRegistry clientRegistry,
+            MeterRegistry meterRegistry,
+            int maxRetries,
+            long maxWaitSeconds,
+            Executor callExecutor
+    ) {
+        this.clientRegistry = clientRegistry;
+        this.meterRegistry = meterRegistry;
+        this.maxRetries = maxRetries;
+        this.maxWaitSeconds = maxWaitSeconds;
+        this.callExecutor = callExecutor;
+
+        this.delayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slack-api-delay");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "slack-api-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        Gauge.builder("slack.api.queue.depth", queue, PriorityBlockingQueue::size)
+                .description("Slack Web API calls waiting for their rate limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call for the tenant once its method's rate limit allows, and returns its result.
+     * Exceptions thrown by the call are rethrown as-is.
+     */
+    public <T> T call(String teamId, SlackApiMethod method, Priority priority, SlackCall<T> call)
+            throws IOException, SlackApiException {
+        PendingCall<T> pending = new PendingCall<>(teamId, method, priority, call, seq.incrementAndGet());
+        queue.add(pending);
+        try {
+            try {
+                return pending.future.get(maxWaitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (pending.cancelIfQueued()) {
+                    throw new IOException("Timed out waiting to call " + method.apiName(), e);
+                }
+                // already sent: wait for the outcome (bounded by the HTTP client's timeouts)
+                return pending.future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting to call " + method.apiName(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SlackApiException s) throw s;
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Failed to call " + method.apiName(), cause);
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PendingCall<?> pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending.isCancelled()) {
+                continue; // the caller gave up
+            }
+            TokenBucket bucket = buckets.computeIfAbsent(
+                    pending.teamId + ":" + pending.method, k -> new TokenBucket(pending.method));
+            long waitNanos = bucket.tryAcquire(System.nanoTime());
+            if (waitNanos > 0) {
+                meterRegistry.counter("slack.api.throttled", "method", pending.method.apiName()).increment();
+                delayer.schedule(() -> queue.add(pending), waitNanos, TimeUnit.NANOSECONDS);
+                continue;
+            }
+            if (!pending.markSent()) {
+                continue; // the caller gave up just now
+            }
+            try {
+                callExecutor.execute(() -> execute(pending, bucket));
+            } catch (RejectedExecutionException e) {
+                pending.future.completeExceptionally(new IOException("Slack API dispatcher is shut down", e));
+            }
+        }
+    }
+
+    private <T> void execute(PendingCall<T> pending, TokenBucket bucket) {
+        if (pending.attempts == 0) {
+            meterRegistry.timer("slack.api.queue.wait", "priority", pending.priority.name())
+                    .record(System.nanoTime() - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        try {
+            pending.future.complete(pending.call.call(clientRegistry.clientForTeam(pending.teamId)));
+        } catch (SlackApiException e) {
+            if (e.getResponse() != null && e.getResponse().code() == 429 && pending.attempts < maxRetries) {
+                long retryAfterSeconds = retryAfterSeconds(e);
+                meterRegistry.counter("slack.api.ratelimited", "method", pending.method.apiName()).increment();
+                bucket.blockFor(TimeUnit.SECONDS.toNanos(retryAfterSeconds), System.nanoTime());
+                pending.attempts++;
+                // Slack did not run it, so the caller may give up on it again while it waits;
+                // back in the queue with its original priority and position
+                pending.markQueued();
+                delayer.schedule(() -> queue.add(pending), retryAfterSeconds, TimeUnit.SECONDS);
+            } else {
+                pending.future.completeExceptionally(e);
+            }
+        } catch (Exception e) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private static long retryAfterSeconds(SlackApiException e) {
+        String header = e.getResponse().header("Retry-After");
+        try {
+            return header == null ? 1 : Math.max(1, Long.parseLong(header.trim()));
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        delayer.shutdownNow();
+        if (callExecutor instanceof ExecutorService executor) {
+            executor.shutdown(); // calls already sent finish, so they are not retried twice
+        }
+    }
+
+    private static final int QUEUED = 0, SENT = 1, CANCELLED = 2;
+
+    private static final class PendingCall<T> implements Comparable<PendingCall<?>> {
+        final String teamId;
+        final SlackApiMethod method;
+        final Priority priority;
+        final SlackCall<T> call;
+        final long seq;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        int attempts; // only touched by the thread currently running the call
+
+        PendingCall(String teamId, SlackApiMethod method, Priority priority, SlackCall<T> call, long seq) {
+            this.teamId = teamId;
+            this.method = method;
+            this.priority = priority;
+            this.call = call;
+            this.seq = seq;
+        }
+
+        /** Gives up on the call unless it has been sent to Slack. */
+        boolean cancelIfQueued() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+
+        boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        boolean markSent() {
+            return state.compareAndSet(QUEUED, SENT);
+        }
+
+        void markQueued() {
+            state.set(QUEUED);
+        }
+
+        @Override
+        public int compareTo(PendingCall<?> o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Refills at the method's per-minute rate up to its burst; Retry-After empties and blocks it.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private long blockedUntil = refilledAt;
+
+        TokenBucket(SlackApiMethod method) {
+            this.capacity = method.burst();
+            this.tokensPerNano = method.perMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+        }
+
+        /** Takes a token and returns 0, or returns how long until one is available. */
+        synchronized long tryAcquire(long now) {
+            if (now - blockedUntil < 0) {
+                return blockedUntil - now;
+            }
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        synchronized void blockFor(long nanos, long now) {
+            if (now + nanos - blockedUntil > 0) {
+                blockedUntil = now + nanos;
+            }
+            tokens = 0;
+            refilledAt = blockedUntil;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+/**
+ * Slack Web API methods the bot calls, with their documented per-workspace rate limits.
+ *
+ * Tier 2 ≈ 20/min, Tier 3 ≈ 50/min, Tier 4 ≈ 100/min; chat.postMessage is a "special" method
+ * (about one message per second per channel), budgeted here as 60/min per workspace.
+ * burst is how many calls may go out back to back before the steady rate applies.
+ */
+public enum SlackApiMethod {
+    CHAT_POST_MESSAGE("chat.postMessage", 60, 5),
+    REACTIONS_ADD("reactions.add", 50, 5),
+    VIEWS_PUBLISH("views.publish", 100, 10),
+    VIEWS_OPEN("views.open", 100, 10),
+    USERS_INFO("users.info", 100, 10),
+    USERS_LIST("users.list", 20, 2),
+    CONVERSATIONS_LIST("conversations.list", 20, 2),
+    CONVERSATIONS_OPEN("conversations.open", 50, 5),
+    PINS_ADD("pins.add", 20, 2);
+
+    private final String apiName;
+    private final int perMinute;
+    private final int burst;
+
+    SlackApiMethod(String apiName, int perMinute, int burst) {
+        this.apiName = apiName;
+        this.perMinute = perMinute;
+        this.burst = burst;
+    }
+
+    public String apiName() {
+        return apiName;
+    }
+
+    public int perMinute() {
+        return perMinute;
+    }
+
+    public int burst() {
+        return burst;
+    }
+}
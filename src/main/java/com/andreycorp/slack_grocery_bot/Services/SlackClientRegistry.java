@@ -0,0 +1,85 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcWorkspaceService;
+import com.slack.api.Slack;
+import com.slack.api.SlackConfig;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.util.http.SlackHttpClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tenant Slack MethodsClient cache.
+ *
+ * The bot token is read from the workspace table once per team (and again after the TTL,
+ * so a token rotated by another instance is picked up); every client shares one Slack
+ * instance and therefore one OkHttp connection pool.
+ *
+ * OAuthController invalidates the team after upsertWorkspace so a reinstall uses the new token.
+ */
+@Service
+public class SlackClientRegistry {
+
+    private final JdbcWorkspaceService workspaceService;
+    private final Slack slack;
+    private final long ttlNanos;
+    private final Map<String, CachedClient> clients = new ConcurrentHashMap<>();
+    private final Counter tokenLoads;
+
+    public SlackClientRegistry(
+            JdbcWorkspaceService workspaceService,
+            MeterRegistry meterRegistry,
+            @Value("${slack.clients.token-ttl-minutes:60}") long ttlMinutes,
+            @Value("${slack.clients.http.max-idle-connections:20}") int maxIdleConnections,
+            @Value("${slack.clients.http.keep-alive-seconds:300}") long keepAliveSeconds
+    ) {
+        this.workspaceService = workspaceService;
+        OkHttpClient okHttp = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .build();
+        this.slack = Slack.getInstance(new SlackConfig(), new SlackHttpClient(okHttp));
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+        this.tokenLoads = meterRegistry.counter("slack.clients.token-loads");
+        Gauge.builder("slack.clients.cached", clients, Map::size)
+                .description("Tenants with a cached Slack client")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the tenant's client, loading its bot token on first use or after the TTL.
+     */
+    public MethodsClient clientForTeam(String teamId) {
+        long now = System.nanoTime();
+        CachedClient cached = clients.get(teamId);
+        if (cached != null && now - cached.loadedAt < ttlNanos) {
+            return cached.client;
+        }
+        // compute() runs at most one token lookup per team at a time
+        return clients.compute(teamId, (t, current) -> {
+            if (current != null && current != cached) {
+                return current; // reloaded by a concurrent caller
+            }
+            tokenLoads.increment();
+            String token = workspaceService.getBotToken(t);
+            return new CachedClient(slack.methods(token, t), System.nanoTime());
+        }).client;
+    }
+
+    /**
+     * Drops the tenant's cached token and client; the next call reads the token again.
+     */
+    public void invalidate(String teamId) {
+        clients.remove(teamId);
+    }
+
+    private record CachedClient(MethodsClient client, long loadedAt) {}
+}
@@ -0,0 +1,21 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import java.io.IOException;
+
+/**
+ * Slack answered a Web API call with "ok": false; the message is Slack's error code
+ * (e.g. channel_not_found), so callers can tell permanent errors from transient ones.
+ */
+public class SlackErrorException extends IOException {
+
+    private final String error;
+
+    public SlackErrorException(String error) {
+        super(error);
+        this.error = error;
+    }
+
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,179 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes verified Slack event callbacks to SlackEventHandlers.
+ *
+ * In async mode (default) the controller only enqueues the event and acks Slack right away;
+ * the DB writes, Slack Web API calls and Home-tab republish run on a bounded worker pool.
+ * This keeps the HTTP response well inside Slack's 3-second deadline during mention bursts.
+ * When the queue is full the HTTP thread waits briefly for a slot, then gives up and the
+ * controller answers 503 so Slack redelivers later; handlers never run on the HTTP thread.
+ *
+ * Workers never touch the request-scoped TenantContext: the team ID is captured on the
+ * HTTP thread and passed explicitly to the handlers.
+ *
+ * Metrics (under /actuator/metrics):
+ *  - slack.events.queue.depth   events waiting for a worker
+ *  - slack.events.queue.wait    time between ack and start of processing
+ *  - slack.events.processing    handler latency, tagged by event type
+ *  - slack.events.failed        handler failures, tagged by event type
+ *  - slack.events.rejected      events turned away (503, Slack redelivers) because the queue stayed full
+ */
+@Service
+public class SlackEventDispatcher {
+
+    private final SlackEventHandlers handlers;
+    private final SlackClientRegistry clientRegistry;
+    private final MeterRegistry      meterRegistry;
+    private final boolean            async;
+    private final ThreadPoolExecutor workers;
+    private final Timer              queueWait;
+    private final long               enqueueTimeoutMs;
+    private final Counter            rejected;
+
+    public SlackEventDispatcher(
+            SlackEventHandlers handlers,
+            SlackClientRegistry clientRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${slack.events.async.enabled:true}") boolean async,
+            @Value("${slack.events.async.workers:4}") int workerCount,
+            @Value("${slack.events.async.queue-capacity:500}") int queueCapacity,
+            @Value("${slack.events.async.enqueue-timeout-ms:500}") long enqueueTimeoutMs
+    ) {
+        this.handlers      = handlers;
+        this.clientRegistry = clientRegistry;
+        this.meterRegistry = meterRegistry;
+        this.async         = async;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), // bounded: a burst cannot exhaust the heap
+                r -> {
+                    Thread t = new Thread(r, "slack-events-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+
+        Gauge.builder("slack.events.queue.depth", workers, e -> e.getQueue().size())
+                .description("Slack events waiting for a worker")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("slack.events.queue.wait")
+                .description("Time between ack and start of processing")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("slack.events.rejected")
+                .description("Events turned away because the queue stayed full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Accepts one event_callback for the given workspace.
+     * In async mode returns as soon as the event is queued; in sync mode processes it inline
+     * and propagates handler failures to the caller (so Slack sees a 500 and retries).
+     * @return false if the queue stayed full for the enqueue timeout and the event was not taken
+     */
+    public boolean dispatch(String teamId, JsonNode event) throws Exception {
+        if (!async) {
+            process(teamId, event);
+            return true;
+        }
+        long enqueuedAt = System.nanoTime();
+        Runnable task = () -> {
+            queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                process(teamId, event);
+            } catch (Exception e) {
+                // Slack has already been acked: log, the failure is counted in process()
+                System.err.printf("Failed to process %s event for team %s: %s%n",
+                        event.path("type").asText(), teamId, e);
+            }
+        };
+        try {
+            workers.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Queue is full: every core thread is busy, so wait briefly for a slot to free up.
+            // Running the handler here instead would hold the ack past Slack's deadline.
+            if (!workers.isShutdown()
+                    && workers.getQueue().offer(task, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            rejected.increment();
+            System.err.printf("Event queue full, rejected %s event for team %s%n",
+                    event.path("type").asText(), teamId);
+            return false;
+        }
+    }
+
+    /**
+     * Runs the handler matching the event type and records its latency and failures.
+     */
+    private void process(String teamId, JsonNode event) throws Exception {
+        String eventType = event.path("type").asText();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            switch (eventType) {
+                case "app_home_opened":
+                    handlers.handleAppHomeOpened(teamId, event);
+                    break;
+                case "app_mention":
+                    handlers.handleMessageEvent(teamId, event);
+                    break;
+                case "reaction_added":
+                    handlers.handleReactionAdded(teamId, event);
+                    break;
+                case "user_change":
+                    handlers.handleUserChange(teamId, event);
+                    break;
+                case "channel_created":
+                case "channel_rename":
+                    handlers.handleChannelUpdated(teamId, event);
+                    break;
+                case "channel_deleted":
+                    handlers.handleChannelDeleted(teamId, event);
+                    break;
+                case "tokens_revoked":
+                case "app_uninstalled":
+                    // the cached bot token is no longer valid
+                    clientRegistry.invalidate(teamId);
+                    break;
+                default:
+                    // ignore other event types
+            }
+        } catch (Exception e) {
+            meterRegistry.counter("slack.events.failed", "type", eventType).increment();
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("slack.events.processing", "type", eventType));
+        }
+    }
+
+    /**
+     * Let in-flight events finish on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -3,20 +3,30 @@ package com.andreycorp.slack_grocery_bot.Services;
 
 import com.andreycorp.slack_grocery_bot.model.EventStore;
 import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.OrderLineStore;
 import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
 import com.andreycorp.slack_grocery_bot.UI.HomeViewBuilder;
-import com.andreycorp.slack_grocery_bot.context.TenantContext;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Centralizes handling of Slack event callbacks.
+ * Every handler takes the workspace (team) ID explicitly, so it can run either on the
+ * HTTP thread or on a background worker of SlackEventDispatcher, where the
+ * request-scoped TenantContext is not available.
+ *
+ * The Slack calls behind a Home tab refresh (admin check, channel lookup) and the summary
+ * are independent, so they run concurrently on virtual threads; views.publish waits only on
+ * the inputs it needs. Stage latencies: slack.events.stage{stage=...}.
  */
 
 @Service
@@ -25,21 +35,31 @@ public class SlackEventHandlers {
     private final DefaultsStoreService defaultGroceryService;
     private final HomeViewBuilder homeViewBuilder;
     private final EventStore eventStore;
-    private final TenantContext tenantContext;
     private final SummaryService summaryService;
+    private final OrderParser orderParser;
+    private final OrderLineStore orderLineStore;
+    private final LiveSummaryRegistry liveSummaries;
+    private final StageRunner stages;
 
     public SlackEventHandlers(
             SlackMessageService slackMessageService,
             DefaultsStoreService defaultGroceryService,
             HomeViewBuilder homeViewBuilder,
-            EventStore eventStore, TenantContext tenantContext, SummaryService summaryService
+            EventStore eventStore, SummaryService summaryService,
+            OrderParser orderParser,
+            OrderLineStore orderLineStore,
+            LiveSummaryRegistry liveSummaries,
+            MeterRegistry meterRegistry
     ) {
         this.slackMessageService = slackMessageService;
         this.defaultGroceryService = defaultGroceryService;
         this.homeViewBuilder = homeViewBuilder;
         this.eventStore = eventStore;
-        this.tenantContext = tenantContext;
         this.summaryService = summaryService;
+        this.orderParser = orderParser;
+        this.orderLineStore = orderLineStore;
+        this.liveSummaries = liveSummaries;
+        this.stages = new StageRunner(meterRegistry, "slack.events.stage");
     }
 
     /**
@@ -49,70 +69,82 @@ public class SlackEventHandlers {
      */
 
 
-    public void handleAppHomeOpened(JsonNode event) throws IOException {
+    public void handleAppHomeOpened(String teamId, JsonNode event) throws IOException {
         String userId = event.get("user").asText();
-        boolean isAdmin = slackMessageService.isWorkspaceAdmin(userId);
-        // Generate current workspace summary
-        String summaryMd = summaryService.generateSummaryMarkdown();
-
-        // Resolve channel ID once per workspace
-        String groceryChannelId = slackMessageService.getChannelIdByName("office-grocery");
-
-        if (isAdmin) {
-            // Admins get the admin dashboard + real-time summary
-            Map<String,Integer> defaults = defaultGroceryService.listAll();
-            String adminJson = homeViewBuilder.buildAdminHomeJson(defaults, summaryMd);
-            slackMessageService.publishHomeView(userId, adminJson);
-
-        } else {
-            // Regular users get the welcome + real-time summary
-            String userJson = homeViewBuilder.buildUserWelcomeHomeJson(summaryMd, groceryChannelId);
-            slackMessageService.publishHomeView(userId, userJson);
-        }
+        await(publishHome(teamId, userId));
     }
 
     /**
      * Processes messages that mention the bot:
-     * records them in the event store and adds a "Completed" reaction for user  acknowledgment.
+     * records them in the event store, parses the order lines once and adds a "Completed" reaction for user  acknowledgment.
      * updates the Home tab
      */
 
-    public void handleMessageEvent(JsonNode event) throws IOException {
+    public void handleMessageEvent(String teamId, JsonNode event) throws IOException {
         // extract event details
         String user    = event.get("user").asText();
         String channel = event.get("channel").asText();
         String text    = event.get("text").asText();
         String ts      = event.get("ts").asText();
-
-        // tenant ID from context
-        String teamId = tenantContext.getTeamId();
+        String threadTs = event.path("thread_ts").asText(ts); // top-level message: its own ts
 
         // save the message in the event store
         MessageEvent me = new MessageEvent(teamId, user, channel, text, ts);
         eventStore.saveMessage(me);
-
-        // acknowledge with a checkmark reaction
-        slackMessageService.addReaction(channel, ts, "white_check_mark");
+        // parse once: summaries aggregate these rows instead of re-parsing the text
+        List<OrderLine> lines = orderParser.parseLines(me, threadTs);
+        orderLineStore.saveLines(lines);
+        liveSummaries.applyMessage(teamId, me, lines);
         System.out.printf("Recorded message: %s%n", me); // debug log
 
-        // After each new order, rebuild and republish Home tab for this user
-        String summaryMd = summaryService.generateSummaryMarkdown();
-        // Resolve channel ID  per workspace
-        String groceryChannelId = slackMessageService.getChannelIdByName("office-grocery");
+        // acknowledge with a checkmark reaction, while the Home tab is rebuilt and republished
+        CompletableFuture<Void> ack = stages.run("ack", () -> {
+            slackMessageService.addReactionForTeam(teamId, channel, ts, "white_check_mark");
+            return null;
+        });
+        CompletableFuture<Void> home = publishHome(teamId, user);
 
-        boolean isAdmin  = slackMessageService.isWorkspaceAdmin(user);
-        String homeJson;
+        await(CompletableFuture.allOf(ack, home));
+    }
 
-        if (isAdmin) {
-            // Admins get the admin dashboard + summary
-            Map<String,Integer> defaults = defaultGroceryService.listAll();
-            String adminJson = homeViewBuilder.buildAdminHomeJson(defaults, summaryMd);
-            slackMessageService.publishHomeView(user, adminJson);
+    /**
+     * Rebuilds and publishes the user's Home tab:
+     * admin check, summary and channel lookup run concurrently; the view is built once the
+     * ones it needs are done (admins: defaults + summary, users: summary + channel).
+     */
+    private CompletableFuture<Void> publishHome(String teamId, String userId) {
+        CompletableFuture<Boolean> isAdmin = stages.run("admin_check",
+                () -> slackMessageService.isWorkspaceAdminForTeam(teamId, userId));
+        CompletableFuture<String> summaryMd = stages.run("summary",
+                () -> summaryService.generateSummaryMarkdownForTeam(teamId));
+        // Resolve channel ID per workspace
+        CompletableFuture<String> groceryChannelId = stages.run("channel_lookup",
+                () -> slackMessageService.getChannelIdByNameForTeam(teamId, "office-grocery"));
+
+        CompletableFuture<String> viewJson = isAdmin.thenCompose(admin -> admin
+                // Admins get the admin dashboard + real-time summary
+                ? stages.run("defaults", () -> defaultGroceryService.listAllForTeam(teamId))
+                        .thenCombine(summaryMd, (defaults, md) -> homeViewBuilder.buildAdminHomeJson(teamId, defaults, md))
+                // Regular users get the welcome + real-time summary
+                : summaryMd.thenCombine(groceryChannelId, homeViewBuilder::buildUserWelcomeHomeJson));
+
+        return viewJson.thenCompose(json -> stages.run("publish", () -> {
+            slackMessageService.publishHomeViewForTeam(teamId, userId, json);
+            return null;
+        }));
+    }
 
-        } else {
-            // Regular users get the welcome + real-time summary
-            String userJson = homeViewBuilder.buildUserWelcomeHomeJson(summaryMd, groceryChannelId);
-            slackMessageService.publishHomeView(user, userJson);
+    /**
+     * Waits for the stages and rethrows the first failure as the handler's own exception.
+     */
+    private static void await(CompletableFuture<?> done) throws IOException {
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
         }
     }
 
@@ -121,7 +153,7 @@ public class SlackEventHandlers {
      * and ignoring the bot's own "Completed" reaction.
      */
 
-    public void handleReactionAdded(JsonNode event) {
+    public void handleReactionAdded(String teamId, JsonNode event) {
 
         String reaction = event.get("reaction").asText();
         if ("white_check_mark".equals(reaction)) { // ignore our own acknowledgment reaction
@@ -132,13 +164,46 @@ public class SlackEventHandlers {
         JsonNode item    = event.get("item");
         String channel   = item.get("channel").asText();
         String messageTs = item.get("ts").asText();
-        // tenant ID from context
-        String teamId    = tenantContext.getTeamId();
         // save the reaction in the event store
         ReactionEvent re = new ReactionEvent(teamId, user, reaction, channel, messageTs);
         eventStore.saveReaction(re);
+        liveSummaries.applyReaction(teamId, re);
 
         System.out.printf("Recorded reaction: %s%n", re); // debug log
     }
 
+    /**
+     * Handles user_change events: keeps the cached admin role in step with Slack,
+     * so promotions and demotions apply without waiting for the cache TTL.
+     */
+
+    public void handleUserChange(String teamId, JsonNode event) {
+        JsonNode user = event.get("user");
+        boolean isAdmin = user.path("is_admin").asBoolean(false) || user.path("is_owner").asBoolean(false);
+        slackMessageService.updateAdminRoleForTeam(teamId, user.get("id").asText(), isAdmin);
+    }
+
+    /**
+     * Handles channel_created and channel_rename events: the payload carries the channel's
+     * current name, so the cached name → ID mapping is corrected right away.
+     */
+
+    public void handleChannelUpdated(String teamId, JsonNode event) {
+        JsonNode channel = event.get("channel");
+        slackMessageService.updateChannelForTeam(teamId, channel.get("id").asText(), channel.get("name").asText());
+    }
+
+    /**
+     * Handles channel_deleted events (the payload carries only the channel ID).
+     */
+
+    public void handleChannelDeleted(String teamId, JsonNode event) {
+        slackMessageService.removeChannelForTeam(teamId, event.get("channel").asText());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages.close();
+    }
+
 }
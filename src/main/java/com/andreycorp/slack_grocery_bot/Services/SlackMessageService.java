@@ -1,15 +1,17 @@
 package com.andreycorp.slack_grocery_bot.Services;
 
+import com.andreycorp.slack_grocery_bot.Services.SlackApiDispatcher.Priority;
+import com.andreycorp.slack_grocery_bot.Services.SlackApiDispatcher.SlackCall;
 import com.andreycorp.slack_grocery_bot.context.TenantContext;
-import com.andreycorp.slack_grocery_bot.jdbc.JdbcWorkspaceService;
-import com.slack.api.Slack;
-import com.slack.api.methods.MethodsClient;
 import com.slack.api.methods.SlackApiException;
 import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import com.slack.api.methods.response.conversations.ConversationsListResponse;
 import com.slack.api.methods.response.conversations.ConversationsOpenResponse;
 import com.slack.api.methods.response.pins.PinsAddResponse;
 import com.slack.api.methods.response.reactions.ReactionsAddResponse;
 import com.slack.api.methods.response.users.UsersInfoResponse;
+import com.slack.api.methods.response.users.UsersListResponse;
+import com.slack.api.model.Conversation;
 import com.slack.api.model.User; // isAdmin() isOwner()
 import org.springframework.stereotype.Service;
 
@@ -20,7 +22,7 @@ import java.util.List;
  * Service for sending messages and interacting with Slack API.
  * Provides methods to send messages, pin messages, open direct message channels,
  * check user roles, publish Home tab views, open modals, and add reactions.
- * Centralizes Slack API client creation
+ * Every call goes through SlackApiDispatcher (per-tenant client, rate limits, priorities);
  * all methods are tenant-aware, using the current team ID from TenantContext.
  */
 
@@ -30,32 +32,35 @@ public class SlackMessageService {
 
 
     private final TenantContext tenantContext;
-    private final JdbcWorkspaceService jdcbWorkspaceService;
+    private final SlackApiDispatcher apiDispatcher;
+    private final AdminRoleCache adminRoles;
+    private final ChannelIdCache channelIds;
 
-    public SlackMessageService(TenantContext tenantContext, JdbcWorkspaceService jdcbWorkspaceService) {
+    public SlackMessageService(TenantContext tenantContext, SlackApiDispatcher apiDispatcher,
+                               AdminRoleCache adminRoles, ChannelIdCache channelIds) {
         this.tenantContext = tenantContext;
-        this.jdcbWorkspaceService = jdcbWorkspaceService;
+        this.apiDispatcher = apiDispatcher;
+        this.adminRoles = adminRoles;
+        this.channelIds = channelIds;
     }
 
     /**
-     *  Returns a MethodsClient instance for making Slack API calls.
-     *  MethodsClient is the client use to call Slack’s Web API methods.
-     *  Used to send messages, pin messages, open channels, etc.
-     *  The bot token is retrieved based on the current tenant context (team ID).
+     *  Runs a Slack Web API call for the current tenant context (team ID).
+     *  The call gets the tenant's MethodsClient (the client used to call Slack’s Web API methods)
+     *  and goes through SlackApiDispatcher, which applies the method's rate limit and priority.
      */
 
-    private MethodsClient client() {
-        String teamId = tenantContext.getTeamId();
-        String token = jdcbWorkspaceService.getBotToken(teamId);
-        return Slack.getInstance().methods(token);
+    private <T> T call(SlackApiMethod method, Priority priority, SlackCall<T> call)
+            throws IOException, SlackApiException {
+        return callForTeam(tenantContext.getTeamId(), method, priority, call);
     }
 
     /**
-     * Returns a MethodsClient for an explicit tenant ID.
+     * Runs a Slack Web API call for an explicit tenant ID.
      */
-    private MethodsClient clientForTeam(String teamId) {
-        String token = jdcbWorkspaceService.getBotToken(teamId);
-        return Slack.getInstance().methods(token);
+    private <T> T callForTeam(String teamId, SlackApiMethod method, Priority priority, SlackCall<T> call)
+            throws IOException, SlackApiException {
+        return apiDispatcher.call(teamId, method, priority, call);
     }
 
 
@@ -65,11 +70,11 @@ public class SlackMessageService {
     public ChatPostMessageResponse sendMessage(String channelId, String text)
             throws IOException {
         try {
-            ChatPostMessageResponse response = client()
+            ChatPostMessageResponse response = call(SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> c
                     .chatPostMessage(req -> req
                             .channel(channelId)
                             .text(text)
-                    );
+                    ));
             if (!response.isOk()) {
                 throw new IOException("Slack API error: " + response.getError());
             }
@@ -85,12 +90,12 @@ public class SlackMessageService {
     public ChatPostMessageResponse sendMessage(String channelId, String text, String threadTs)
             throws IOException {
         try {
-            ChatPostMessageResponse response = client()
+            ChatPostMessageResponse response = call(SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> c
                     .chatPostMessage(req -> req
                             .channel(channelId)
                             .text(text)
                             .threadTs(threadTs)
-                    );
+                    ));
             if (!response.isOk()) {
                 throw new IOException("Slack API error: " + response.getError());
             }
@@ -106,11 +111,11 @@ public class SlackMessageService {
     public void pinMessage(String channelId, String messageTs)
             throws IOException {
         try {
-            PinsAddResponse response = client()
+            PinsAddResponse response = call(SlackApiMethod.PINS_ADD, Priority.NORMAL, c -> c
                     .pinsAdd(req -> req
                             .channel(channelId)
                             .timestamp(messageTs)
-                    );
+                    ));
             if (!response.isOk()) {
                 throw new IOException("Slack API pin error: " + response.getError());
             }
@@ -125,8 +130,8 @@ public class SlackMessageService {
 
     public String openImChannel(String userId) throws IOException {
         try {
-            ConversationsOpenResponse resp = client()
-                    .conversationsOpen(r -> r.users(List.of(userId)));
+            ConversationsOpenResponse resp = call(SlackApiMethod.CONVERSATIONS_OPEN, Priority.NORMAL, c -> c
+                    .conversationsOpen(r -> r.users(List.of(userId))));
             if (!resp.isOk()) {
                 throw new IOException("conversations.open error: " + resp.getError());
             }
@@ -141,32 +146,99 @@ public class SlackMessageService {
      */
 
     public boolean isWorkspaceAdmin(String userId) throws IOException {
+        return isWorkspaceAdminForTeam(tenantContext.getTeamId(), userId);
+    }
+
+    /**
+     * Returns true if the user is an admin or owner of the given workspace.
+     * Answered from AdminRoleCache when possible; users.info (or the users.list warm-up) otherwise.
+     */
+    public boolean isWorkspaceAdminForTeam(String teamId, String userId) throws IOException {
+        Boolean cached = adminRoles.get(teamId, userId);
+        if (cached != null) {
+            return cached;
+        }
+        if (adminRoles.claimWarmUp(teamId)) {
+            try {
+                warmUpAdminRolesForTeam(teamId);
+            } catch (IOException e) {
+                adminRoles.releaseWarmUp(teamId);
+                System.err.println("Admin role warm-up failed for team " + teamId + ": " + e.getMessage());
+            }
+            cached = adminRoles.get(teamId, userId);
+            if (cached != null) {
+                return cached;
+            }
+        }
         try {
             // returns metadata about a Slack user, to determine whether they’re an admin
-            UsersInfoResponse resp = client()
-                    .usersInfo(r -> r.user(userId));
+            UsersInfoResponse resp = callForTeam(teamId, SlackApiMethod.USERS_INFO, Priority.NORMAL, c -> c
+                    .usersInfo(r -> r.user(userId)));
             //  Checking resp.isOk() and resp.getUser():
             // catches cases where Slack responded with "ok": false
             // guards against an unexpected SDK bug or empty payload
             if (!resp.isOk() || resp.getUser() == null) {
                 throw new IOException("users.info error: " + resp.getError());
             }
-            User u = resp.getUser();
-            return Boolean.TRUE.equals(u.isAdmin()) || Boolean.TRUE.equals(u.isOwner());
+            boolean admin = isAdminOrOwner(resp.getUser());
+            adminRoles.put(teamId, userId, admin);
+            return admin;
         } catch (SlackApiException e) {
             throw new IOException("Failed to call users.info", e);
         }
     }
 
+    /**
+     * Caches the role of every member of the workspace, one users.list page at a time.
+     */
+    public void warmUpAdminRolesForTeam(String teamId) throws IOException {
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            try {
+                UsersListResponse resp = callForTeam(teamId, SlackApiMethod.USERS_LIST, Priority.BACKGROUND, c -> c
+                        .usersList(r -> r.limit(200).cursor(pageCursor)));
+                if (!resp.isOk()) {
+                    throw new IOException("users.list error: " + resp.getError());
+                }
+                for (User u : resp.getMembers()) {
+                    adminRoles.put(teamId, u.getId(), isAdminOrOwner(u));
+                }
+                cursor = resp.getResponseMetadata() == null ? null : resp.getResponseMetadata().getNextCursor();
+            } catch (SlackApiException e) {
+                throw new IOException("Failed to call users.list", e);
+            }
+        } while (cursor != null && !cursor.isEmpty());
+    }
+
+    /**
+     * Records a role reported by Slack outside users.info (user_change events).
+     */
+    public void updateAdminRoleForTeam(String teamId, String userId, boolean admin) {
+        adminRoles.put(teamId, userId, admin);
+    }
+
+    private static boolean isAdminOrOwner(User u) {
+        return Boolean.TRUE.equals(u.isAdmin()) || Boolean.TRUE.equals(u.isOwner());
+    }
+
     /**
      * Publishes a Home‐tab view for a specific user.
      */
     public void publishHomeView(String userId, String viewJson) throws IOException {
+        publishHomeViewForTeam(tenantContext.getTeamId(), userId, viewJson);
+    }
+
+    /**
+     * Publishes a Home‐tab view for a user of the given workspace.
+     */
+    public void publishHomeViewForTeam(String teamId, String userId, String viewJson) throws IOException {
         try {
-            var response = client().viewsPublish(req -> req
-                    .userId(userId)
-                    .viewAsString(viewJson)
-            );
+            var response = callForTeam(teamId, SlackApiMethod.VIEWS_PUBLISH, Priority.BACKGROUND, c -> c
+                    .viewsPublish(req -> req
+                            .userId(userId)
+                            .viewAsString(viewJson)
+                    ));
             if (!response.isOk()) {
                 throw new IOException("Slack API error on views.publish: " + response.getError());
             }
@@ -180,10 +252,10 @@ public class SlackMessageService {
      */
     public void openModal(String triggerId, String viewJson) throws IOException {
         try {
-            var response = client().viewsOpen(req -> req
+            var response = call(SlackApiMethod.VIEWS_OPEN, Priority.USER_FACING, c -> c.viewsOpen(req -> req
                     .triggerId(triggerId)
                     .viewAsString(viewJson)
-            );
+            ));
             if (!response.isOk()) {
                 throw new IOException("Slack API error on views.open: " + response.getError());
             }
@@ -197,13 +269,22 @@ public class SlackMessageService {
      * Adds a reaction (emoji) to a Slack message. Used for "Completed" reaction
      */
     public void addReaction(String channel, String ts, String emojiName) throws IOException {
+        addReactionForTeam(tenantContext.getTeamId(), channel, ts, emojiName);
+    }
+
+    /**
+     * Adds a reaction (emoji) to a message in the given workspace.
+     */
+    public void addReactionForTeam(String teamId, String channel, String ts, String emojiName) throws IOException {
         try {
-            ReactionsAddResponse response = client().reactionsAdd(req -> req
-                    .channel(channel)
-                    .timestamp(ts)
-                    .name(emojiName)
-            );
-            if (!response.isOk()) {
+            ReactionsAddResponse response = callForTeam(teamId, SlackApiMethod.REACTIONS_ADD, Priority.USER_FACING, c -> c
+                    .reactionsAdd(req -> req
+                            .channel(channel)
+                            .timestamp(ts)
+                            .name(emojiName)
+                    ));
+            // already_reacted: a redelivered event we acknowledged before, nothing to do
+            if (!response.isOk() && !"already_reacted".equals(response.getError())) {
                 throw new IOException("Slack API error on reactions.add: " + response.getError());
             }
         } catch (SlackApiException e) {
@@ -218,23 +299,67 @@ public class SlackMessageService {
      */
 
     public String getChannelIdByName(String channelName) throws IOException {
-        try {
-            var resp = client().conversationsList(r -> r
-                    .excludeArchived(true)
-                    .limit(1000)
-            );
-            if (!resp.isOk()) {
-                throw new IOException("conversations.list error: " + resp.getError());
+        return getChannelIdByNameForTeam(tenantContext.getTeamId(), channelName);
+    }
+
+    /**
+     * Look up a public channel by name within the given workspace.
+     * Answered from ChannelIdCache when possible; otherwise pages through conversations.list
+     * (caching every channel on the way) until the name is found.
+     */
+    public String getChannelIdByNameForTeam(String teamId, String channelName) throws IOException {
+        String cached = channelIds.get(teamId, channelName);
+        if (cached != null) {
+            if (cached.equals(ChannelIdCache.NOT_FOUND)) {
+                throw new IOException("Channel not found: " + channelName);
             }
-            return resp.getChannels().stream()
-                    .filter(c -> c.getName().equals(channelName))
-                    .findFirst()
-                    .map(c -> c.getId())
-                    .orElseThrow(() ->
-                            new IOException("Channel not found: " + channelName));
-        } catch (SlackApiException e) {
-            throw new IOException("Failed to list conversations", e);
+            return cached;
         }
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            try {
+                ConversationsListResponse resp = callForTeam(teamId, SlackApiMethod.CONVERSATIONS_LIST, Priority.NORMAL, c -> c
+                        .conversationsList(r -> r
+                                .excludeArchived(true)
+                                .limit(200)
+                                .cursor(pageCursor)
+                        ));
+                if (!resp.isOk()) {
+                    throw new IOException("conversations.list error: " + resp.getError());
+                }
+                String found = null;
+                for (Conversation c : resp.getChannels()) {
+                    channelIds.put(teamId, c.getName(), c.getId());
+                    if (c.getName().equals(channelName)) {
+                        found = c.getId();
+                    }
+                }
+                if (found != null) {
+                    return found;
+                }
+                cursor = resp.getResponseMetadata() == null ? null : resp.getResponseMetadata().getNextCursor();
+            } catch (SlackApiException e) {
+                throw new IOException("Failed to list conversations", e);
+            }
+        } while (cursor != null && !cursor.isEmpty());
+        channelIds.putMissing(teamId, channelName);
+        throw new IOException("Channel not found: " + channelName);
+    }
+
+    /**
+     * Records a channel's current name (channel_created / channel_rename events).
+     */
+    public void updateChannelForTeam(String teamId, String channelId, String channelName) {
+        channelIds.removeChannel(teamId, channelId);
+        channelIds.put(teamId, channelName, channelId);
+    }
+
+    /**
+     * Forgets a deleted channel.
+     */
+    public void removeChannelForTeam(String teamId, String channelId) {
+        channelIds.removeChannel(teamId, channelId);
     }
 
     // ---- Explicit-teamID overloads ----
@@ -242,9 +367,9 @@ public class SlackMessageService {
     public ChatPostMessageResponse sendMessageForTeam(
             String teamId, String channelId, String text) throws IOException {
         try {
-            ChatPostMessageResponse resp = clientForTeam(teamId)
-                    .chatPostMessage(r -> r.channel(channelId).text(text));
-            if (!resp.isOk()) throw new IOException(resp.getError());
+            ChatPostMessageResponse resp = callForTeam(teamId, SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> c
+                    .chatPostMessage(r -> r.channel(channelId).text(text)));
+            if (!resp.isOk()) throw new SlackErrorException(resp.getError());
             return resp;
         } catch (SlackApiException e) {
             throw new IOException(e);
@@ -254,9 +379,9 @@ public class SlackMessageService {
     public ChatPostMessageResponse sendMessageForTeam(
             String teamId, String channelId, String text, String threadTs) throws IOException {
         try {
-            ChatPostMessageResponse resp = clientForTeam(teamId)
-                    .chatPostMessage(r -> r.channel(channelId).text(text).threadTs(threadTs));
-            if (!resp.isOk()) throw new IOException(resp.getError());
+            ChatPostMessageResponse resp = callForTeam(teamId, SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> c
+                    .chatPostMessage(r -> r.channel(channelId).text(text).threadTs(threadTs)));
+            if (!resp.isOk()) throw new SlackErrorException(resp.getError());
             return resp;
         } catch (SlackApiException e) {
             throw new IOException(e);
@@ -265,9 +390,10 @@ public class SlackMessageService {
 
     public void pinMessageForTeam(String teamId, String channelId, String messageTs) throws IOException {
         try {
-            PinsAddResponse resp = clientForTeam(teamId)
-                    .pinsAdd(r -> r.channel(channelId).timestamp(messageTs));
-            if (!resp.isOk()) throw new IOException(resp.getError());
+            PinsAddResponse resp = callForTeam(teamId, SlackApiMethod.PINS_ADD, Priority.NORMAL, c -> c
+                    .pinsAdd(r -> r.channel(channelId).timestamp(messageTs)));
+            // already_pinned: an earlier attempt got through, nothing to do
+            if (!resp.isOk() && !"already_pinned".equals(resp.getError())) throw new SlackErrorException(resp.getError());
         } catch (SlackApiException e) {
             throw new IOException(e);
         }
@@ -0,0 +1,231 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSlackOutbox;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSlackOutbox.Claimed;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import com.andreycorp.slack_grocery_bot.scheduler.OrderThreadOpenedEvent;
+import com.slack.api.methods.SlackApiException;
+import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains slack_outbox on its own thread: claims a batch of due rows, delivers them concurrently
+ * (each call still goes through SlackApiDispatcher's rate limits) and records the outcome.
+ *
+ * Failed rows are retried with exponential backoff plus jitter until max-attempts, then marked
+ * failed. Slack errors that no retry can fix (the channel is gone, archived, or the bot is not
+ * in it) fail the row at once. An OPEN_THREAD row queues the pin of the posted thread and publishes
+ * OrderThreadOpenedEvent, on which WeeklyOrderScheduler records the thread as open.
+ *
+ * Metrics: slack.outbox{result=delivered|retried|failed}, slack.outbox.lag (enqueue → delivered).
+ */
+@Service
+public class SlackOutboxDelivery {
+
+    /** Slack error codes that fail a row without retrying. */
+    private static final Set<String> PERMANENT_ERRORS = Set.of("channel_not_found", "not_in_channel", "is_archived");
+
+    private final JdbcSlackOutbox outbox;
+    private final SlackMessageService slackMessageService;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int backoffBaseSeconds;
+    private final int backoffMaxSeconds;
+    private final int leaseSeconds;
+    private final int retentionDays;
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer lag;
+    private final ExecutorService sends = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Thread loop;
+    private long lastPurge;
+
+    public SlackOutboxDelivery(
+            JdbcSlackOutbox outbox,
+            SlackMessageService slackMessageService,
+            ApplicationEventPublisher events,
+            MeterRegistry meterRegistry,
+            @Value("${slack.outbox.enabled:true}") boolean enabled,
+            @Value("${slack.outbox.poll-interval-ms:500}") long pollIntervalMs,
+            @Value("${slack.outbox.batch-size:50}") int batchSize,
+            @Value("${slack.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${slack.outbox.backoff-base-seconds:5}") int backoffBaseSeconds,
+            @Value("${slack.outbox.backoff-max-seconds:900}") int backoffMaxSeconds,
+            @Value("${slack.outbox.lease-seconds:120}") int leaseSeconds,
+            @Value("${slack.outbox.retention-days:7}") int retentionDays
+    ) {
+        this.outbox = outbox;
+        this.slackMessageService = slackMessageService;
+        this.events = events;
+        this.enabled = enabled;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = backoffMaxSeconds;
+        this.leaseSeconds = leaseSeconds;
+        this.retentionDays = retentionDays;
+        this.delivered = meterRegistry.counter("slack.outbox", "result", "delivered");
+        this.retried   = meterRegistry.counter("slack.outbox", "result", "retried");
+        this.failed    = meterRegistry.counter("slack.outbox", "result", "failed");
+        this.lag = meterRegistry.timer("slack.outbox.lag");
+    }
+
+    /**
+     * Starts the delivery loop once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread t = new Thread(this::run, "slack-outbox");
+        t.setDaemon(true);
+        loop = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread t = loop;
+        if (t != null) {
+            t.interrupt();
+        }
+        sends.close();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int claimed;
+            try {
+                claimed = drainOnce();
+                purgeHourly();
+            } catch (RuntimeException ex) {
+                System.err.println("Slack outbox delivery failed: " + ex.getMessage());
+                claimed = 0;
+            }
+            if (claimed < batchSize) { // a full batch means more are due: poll again at once
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims and delivers one batch.
+     * @return number of rows claimed
+     */
+    public int drainOnce() {
+        List<Claimed> batch = outbox.claim(batchSize, leaseSeconds);
+        List<Future<?>> inFlight = new ArrayList<>(batch.size());
+        for (Claimed row : batch) {
+            inFlight.add(sends.submit(() -> deliver(row)));
+        }
+        for (Future<?> f : inFlight) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break; // unfinished rows are retried when their lease runs out
+            } catch (Exception e) {
+                // deliver() records its own failures
+            }
+        }
+        return batch.size();
+    }
+
+    private void deliver(Claimed row) {
+        OutboxMessage m = row.message();
+        try {
+            List<OutboxMessage> followUps = List.of();
+            String resultChannel = null;
+            String resultTs = null;
+            switch (m.kind()) {
+                case OPEN_THREAD -> {
+                    ChatPostMessageResponse posted = post(m);
+                    resultChannel = posted.getChannel(); // the ID, even when posted to a #name
+                    resultTs = posted.getTs();
+                    followUps = List.of(new OutboxMessage(m.teamId(), OutboxMessage.Kind.PIN, resultChannel,
+                            resultTs, "", m.idempotencyKey() + ":pin"));
+                }
+                case POST -> {
+                    ChatPostMessageResponse posted = post(m);
+                    resultChannel = posted.getChannel();
+                    resultTs = posted.getTs();
+                }
+                case PIN -> slackMessageService.pinMessageForTeam(m.teamId(), m.channel(), m.threadTs());
+            }
+            outbox.markDelivered(row.id(), resultChannel, resultTs, followUps);
+            delivered.increment();
+            lag.record((long) ((System.currentTimeMillis() / 1000.0 - row.createdEpoch()) * 1000), TimeUnit.MILLISECONDS);
+            if (m.kind() == OutboxMessage.Kind.OPEN_THREAD) {
+                events.publishEvent(new OrderThreadOpenedEvent(m.teamId(), resultChannel, resultTs, m.idempotencyKey()));
+            }
+        } catch (Exception e) {
+            String error = slackError(e);
+            boolean giveUp = row.attempts() >= maxAttempts || (error != null && PERMANENT_ERRORS.contains(error));
+            outbox.markFailed(row.id(), String.valueOf(e.getMessage()), backoffSeconds(row.attempts()), giveUp);
+            (giveUp ? failed : retried).increment();
+            System.err.printf("Outbox %s %s for team %s failed (attempt %d%s): %s%n", m.kind(), m.idempotencyKey(),
+                    m.teamId(), row.attempts(), giveUp ? ", giving up" : "", e.getMessage());
+        }
+    }
+
+    private ChatPostMessageResponse post(OutboxMessage m) throws Exception {
+        return m.threadTs() == null
+                ? slackMessageService.sendMessageForTeam(m.teamId(), m.channel(), m.text())
+                : slackMessageService.sendMessageForTeam(m.teamId(), m.channel(), m.text(), m.threadTs());
+    }
+
+    /** Slack's error code for a failed call, or null if it failed before Slack answered. */
+    private static String slackError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SlackErrorException s) {
+                return s.error();
+            }
+            if (t instanceof SlackApiException s && s.getError() != null) {
+                return s.getError().getError();
+            }
+        }
+        return null;
+    }
+
+    /** base * 2^(attempts-1), capped, with up to 20% jitter so retries of one outage spread out. */
+    private int backoffSeconds(int attempts) {
+        long exp = (long) backoffBaseSeconds << Math.min(attempts - 1, 20);
+        int capped = (int) Math.min(backoffMaxSeconds, exp);
+        return capped + ThreadLocalRandom.current().nextInt(capped / 5 + 1);
+    }
+
+    private void purgeHourly() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= TimeUnit.HOURS.toMillis(1)) {
+            lastPurge = now;
+            outbox.purgeDelivered(retentionDays);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the steps of a staged pipeline (Home tab refresh, order thread close) on virtual
+ * threads, one per step: the steps mostly wait on Slack, the database and the AI APIs.
+ * Each step's latency is recorded as {@code <timerName>{stage=<name>}}.
+ */
+public final class StageRunner implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Stage<T> {
+        T run() throws Exception;
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MeterRegistry meterRegistry;
+    private final String timerName;
+
+    public StageRunner(MeterRegistry meterRegistry, String timerName) {
+        this.meterRegistry = meterRegistry;
+        this.timerName = timerName;
+    }
+
+    /**
+     * Runs one step and records its latency; a checked failure completes the future with a
+     * CompletionException wrapping it.
+     */
+    public <T> CompletableFuture<T> run(String name, Stage<T> step) {
+        return CompletableFuture.supplyAsync(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return step.run();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                sample.stop(meterRegistry.timer(timerName, "stage", name));
+            }
+        }, executor);
+    }
+
+    /** Runs a whole pipeline on a virtual thread of its own. */
+    public void execute(Runnable pipeline) {
+        executor.execute(pipeline);
+    }
+
+    /** Waits for the running steps to finish. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.andreycorp.slack_grocery_bot.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caches the rendered summary Markdown per tenant, keyed by a data version.
+ *
+ * The caller passes the revision of the tenant's live summary (LiveSummaryRegistry), which
+ * changes with every write that can change the summary, on this instance or, through the
+ * summary_version check, on another one. Reads return the cached text until the revision
+ * moves, so repeated views.publish calls between writes render the summary once.
+ *
+ * Rendered entries are held in a bounded LRU.
+ */
+@Service
+public class SummaryRenderCache {
+
+    private final Map<String, Entry> rendered;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SummaryRenderCache(
+            MeterRegistry meterRegistry,
+            @Value("${slack.summary.render-cache.max-entries:1000}") int maxEntries
+    ) {
+        // access-ordered LinkedHashMap evicting the eldest entry = simple LRU
+        this.rendered = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits   = meterRegistry.counter("slack.summary.render-cache", "result", "hit");
+        this.misses = meterRegistry.counter("slack.summary.render-cache", "result", "miss");
+        Gauge.builder("slack.summary.render-cache.size", this, SummaryRenderCache::size)
+                .description("Tenants with a cached summary render")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached render for the given version of the tenant's data, or renders and caches it.
+     * The renderer runs outside the cache lock.
+     */
+    public String get(String teamId, long version, Supplier<String> renderer) {
+        synchronized (rendered) {
+            Entry cached = rendered.get(teamId);
+            if (cached != null && cached.version == version) {
+                hits.increment();
+                return cached.markdown;
+            }
+        }
+        misses.increment();
+        String markdown = renderer.get();
+        synchronized (rendered) {
+            // a write during rendering moved the version: this entry is simply never hit
+            rendered.put(teamId, new Entry(version, markdown));
+        }
+        return markdown;
+    }
+
+    private double size() {
+        synchronized (rendered) {
+            return rendered.size();
+        }
+    }
+
+    private record Entry(long version, String markdown) {}
+}
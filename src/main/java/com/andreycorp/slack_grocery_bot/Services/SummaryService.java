@@ -1,11 +1,14 @@
 package com.andreycorp.slack_grocery_bot.Services;
 
+import com.andreycorp.slack_grocery_bot.context.TenantContext;
 import com.andreycorp.slack_grocery_bot.model.EventStore;
 import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLineStore;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
 import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
 import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
 import org.springframework.stereotype.Service;
-import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -18,18 +21,27 @@ import java.util.stream.Collectors;
 @Service
 public class SummaryService {
 
-    private final SlackMessageService slackMessageService;
     private final OrderParser orderParser;
     private final EventStore eventStore;
+    private final OrderLineStore orderLineStore;
+    private final LiveSummaryRegistry liveSummaries;
+    private final SummaryRenderCache renderCache;
+    private final TenantContext tenantContext;
 
     public SummaryService(
-            SlackMessageService slackMessageService,
             OrderParser orderParser,
-            EventStore eventStore
+            EventStore eventStore,
+            OrderLineStore orderLineStore,
+            LiveSummaryRegistry liveSummaries,
+            SummaryRenderCache renderCache,
+            TenantContext tenantContext
     ) {
-        this.slackMessageService = slackMessageService;
         this.orderParser = orderParser;
         this.eventStore = eventStore;
+        this.orderLineStore = orderLineStore;
+        this.liveSummaries = liveSummaries;
+        this.renderCache = renderCache;
+        this.tenantContext = tenantContext;
     }
 
 
@@ -39,16 +51,18 @@ public class SummaryService {
      *
      */
     public String generateSummaryMarkdown() {
-        //  fetch all messages for this tenant
-        List<MessageEvent> msgs = eventStore.fetchMessagesSince("0");
-        // parse orders
-        OrderSummaryData data = processMessageEvents(msgs);
-        //  fetch +1 reactions
-        Map<String, Long> plusOnes = eventStore.fetchReactionsSince("0").stream()
-                .filter(r -> "+1".equals(r.reaction()))
-                .collect(Collectors.groupingBy(ReactionEvent::ts, Collectors.counting()));
-        //  render
-        return buildSummaryText(data, plusOnes);
+        return generateSummaryMarkdownForTeam(tenantContext.getTeamId());
+    }
+
+    /**
+     * Same as {@link #generateSummaryMarkdown()} for an explicit workspace.
+     * Used off the HTTP thread, where the request-scoped TenantContext is not available.
+     * Reads the tenant's in-memory live aggregate, built from the store only when missing or stale;
+     * the rendered text is reused until the tenant's data changes.
+     */
+    public String generateSummaryMarkdownForTeam(String teamId) {
+        return renderCache.get(teamId, liveSummaries.revision(teamId),
+                () -> buildSummaryText(liveSummaries.totalsForTeam(teamId)));
     }
 
 
@@ -57,41 +71,44 @@ public class SummaryService {
      * Processes message events to extract order information by user and item.
      */
     public OrderSummaryData processMessageEvents(List<MessageEvent> events) {
-        Map<String, Map<String, Double>> ordersByUser = new HashMap<>();
-        Map<String, Map<String, List<String>>> tsByUserItem = new HashMap<>();
-
+        OrderSummaryData data = new OrderSummaryData();
         for (MessageEvent m : events) {
-            String user = m.user();
+            accumulate(data, m);
+        }
+        return data;
+    }
 
-            ordersByUser.computeIfAbsent(user, u -> new HashMap<>());
-            tsByUserItem.computeIfAbsent(user, u -> new HashMap<>());
+    /**
+     * Parses one message and merges its orders into the running aggregate.
+     */
+    private void accumulate(OrderSummaryData data, MessageEvent m) {
+        String user = m.user();
 
-            List<OrderParser.ParsedOrder> parsed = orderParser.parseAll(m.text());
-            for (OrderParser.ParsedOrder po : parsed) {
-                ordersByUser.get(user)
-                        .merge(po.item, po.qty, Double::sum);
+        Map<String, Double> userOrders = data.ordersByUser.computeIfAbsent(user, u -> new HashMap<>());
+        Map<String, List<String>> userTs = data.tsByUserItem.computeIfAbsent(user, u -> new HashMap<>());
 
-                tsByUserItem.get(user)
-                        .computeIfAbsent(po.item, i -> new ArrayList<>())
-                        .add(m.ts());
-            }
+        for (OrderParser.ParsedOrder po : orderParser.parseAll(m.text())) {
+            userOrders.merge(po.item, po.qty, Double::sum);
+            userTs.computeIfAbsent(po.item, i -> new ArrayList<>()).add(m.ts());
         }
+    }
 
-        return new OrderSummaryData(ordersByUser, tsByUserItem);
+    /**
+     * Adds a reaction to the +1 count of its message, ignoring other emoji.
+     */
+    private static void countPlusOne(Map<String, Long> plusOneCountByTs, ReactionEvent r) {
+        if ("+1".equals(r.reaction())) {
+            plusOneCountByTs.merge(r.ts(), 1L, Long::sum);
+        }
     }
 
     /**
      * Processes reaction events to count +1 reactions by message timestamp.
      */
     public Map<String, Long> processReactions(String threadTs) {
-        List<ReactionEvent> reactions = eventStore.fetchReactionsSince(threadTs);
-
-        return reactions.stream()
-                .filter(r -> "+1".equals(r.reaction()))
-                .collect(Collectors.groupingBy(
-                        ReactionEvent::ts,
-                        Collectors.counting()
-                ));
+        Map<String, Long> plusOnes = new HashMap<>();
+        eventStore.fetchReactionsSince(threadTs).forEach(r -> countPlusOne(plusOnes, r));
+        return plusOnes;
     }
 
     /**
@@ -111,6 +128,22 @@ public class SummaryService {
         return summary.toString();
     }
 
+    /**
+     * Builds the same summary text from per-user item totals, keeping their order.
+     */
+    public String buildSummaryText(List<OrderLineTotal> totals) {
+        Map<String, List<String>> itemsByUser = new LinkedHashMap<>();
+        for (OrderLineTotal t : totals) {
+            itemsByUser.computeIfAbsent(t.user(), u -> new ArrayList<>())
+                    .add(formatItem(t.qty(), t.item(), t.plusOnes()));
+        }
+
+        StringBuilder summary = new StringBuilder("*Weekly Grocery Summary:*\n");
+        itemsByUser.forEach((user, items) -> summary.append("• <@").append(user).append(">: ")
+                .append(String.join(", ", items)).append("\n"));
+        return summary.toString();
+    }
+
     /**
      * Formats a single item entry with quantity and reaction counts.
      */
@@ -129,6 +162,10 @@ public class SummaryService {
                 .mapToLong(ts -> plusOneCountByTs.getOrDefault(ts, 0L))
                 .sum();
 
+        return formatItem(qty, item, totalReacts);
+    }
+
+    private static String formatItem(double qty, String item, long totalReacts) {
         String suffix = totalReacts > 0
                 ? String.format(" (%d× 👍)", totalReacts)
                 : "";
@@ -147,46 +184,51 @@ public class SummaryService {
      */
     private static class OrderSummaryData {
         // user → (item → totalQty)
-        final Map<String, Map<String, Double>> ordersByUser;
+        final Map<String, Map<String, Double>> ordersByUser = new HashMap<>();
         // user → (item → list of messageTs where that item appeared)
-        final Map<String, Map<String, List<String>>> tsByUserItem;
-
-        OrderSummaryData(
-                Map<String, Map<String, Double>> ordersByUser,
-                Map<String, Map<String, List<String>>> tsByUserItem) {
-            this.ordersByUser = ordersByUser;
-            this.tsByUserItem = tsByUserItem;
-        }
+        final Map<String, Map<String, List<String>>> tsByUserItem = new HashMap<>();
     }
 
 
 
 
-    // main method to summarize athread for a specific team
-    public void summarizeThreadForTeam(
+    /**
+     * Summary text of a workspace's order thread, aggregated from its parsed order lines.
+     * @param untilTs root ts of the next thread (exclusive), or null for the latest thread
+     */
+    public String threadSummaryTextForTeam(String teamId, String orderChannel, String threadTs, String untilTs) {
+        // same channel + ts range as the thread's messages
+        return buildSummaryText(orderLineStore.totalsInRangeForTeam(teamId, orderChannel, threadTs, untilTs));
+    }
+
+    /**
+     * Builds the posts that close a workspace's order thread: the summary as a thread reply
+     * (or a "no orders" note), plus a copy to the admin channel when one is configured.
+     * They are queued in the Slack outbox rather than posted here; the idempotency keys are
+     * derived from the thread, so closing the same thread twice queues nothing new.
+     * @param hasMessages whether anyone posted in the thread
+     */
+    public List<OutboxMessage> threadSummaryMessagesForTeam(
             String teamId,
             String orderChannel,
             String threadTs,
-            List<MessageEvent> events,
+            String untilTs,
+            boolean hasMessages,
             String adminChannel
-    ) throws IOException {
-        if (events.isEmpty()) {
-            slackMessageService.sendMessageForTeam(
-                    teamId, orderChannel, "No orders were placed this week.", threadTs
-            );
-            return;
+    ) {
+        String keyPrefix = "close:" + teamId + ":" + threadTs + ":";
+        if (!hasMessages) {
+            return List.of(new OutboxMessage(teamId, OutboxMessage.Kind.POST, orderChannel, threadTs,
+                    "No orders were placed this week.", keyPrefix + "thread"));
         }
-        OrderSummaryData orderData = processMessageEvents(events);
-        Map<String, Long> plusOneCountByTs = eventStore.fetchReactionsForTeam(teamId).stream()
-                .filter(r -> "+1".equals(r.reaction()) && r.ts().compareTo(threadTs) >= 0)
-                .collect(Collectors.groupingBy(ReactionEvent::ts, Collectors.counting()));
-        String summary = buildSummaryText(orderData, plusOneCountByTs);
-        // post via explicit-team methods
-        slackMessageService.sendMessageForTeam(teamId, orderChannel, summary, threadTs);
+        String summary = threadSummaryTextForTeam(teamId, orderChannel, threadTs, untilTs);
+        List<OutboxMessage> posts = new ArrayList<>();
+        posts.add(new OutboxMessage(teamId, OutboxMessage.Kind.POST, orderChannel, threadTs,
+                summary, keyPrefix + "thread"));
         if (adminChannel != null && !adminChannel.isEmpty()) {
-            slackMessageService.sendMessageForTeam(
-                    teamId, adminChannel, "Summary:\n" + summary
-            );
+            posts.add(new OutboxMessage(teamId, OutboxMessage.Kind.POST, adminChannel, null,
+                    "Summary:\n" + summary, keyPrefix + "admin"));
         }
+        return posts;
     }
-}
\ No newline at end of file
+}
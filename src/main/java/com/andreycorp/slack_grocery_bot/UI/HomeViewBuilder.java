@@ -4,16 +4,26 @@ import com.andreycorp.slack_grocery_bot.Services.ScheduleSettingsService;
 import com.andreycorp.slack_grocery_bot.model.ScheduleSettings;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Home-view JSON construction logic, including day+time pickers, a Save button,
+ * Home-view JSON construction logic, including day+time+time zone pickers, a Save button,
  * and a real-time summary block at the bottom.
  */
 @Component
 public class HomeViewBuilder {
 
+    // time zones offered by the picker (IANA IDs), roughly west to east
+    private static final List<String> TIMEZONES = List.of(
+            "America/Los_Angeles", "America/Denver", "America/Chicago", "America/New_York",
+            "America/Sao_Paulo", "UTC", "Europe/London", "Europe/Berlin", "Europe/Kyiv",
+            "Asia/Jerusalem", "Asia/Dubai", "Asia/Kolkata", "Asia/Singapore", "Asia/Tokyo",
+            "Australia/Sydney", "Pacific/Auckland"
+    );
+
     private final ScheduleSettingsService scheduleSettingsService;
 
     public HomeViewBuilder(ScheduleSettingsService scheduleSettingsService) {
@@ -23,17 +33,29 @@ public class HomeViewBuilder {
     /**
      * Build the Home view for workspace admins:
      *  1) Header + intro
-     *  2) Day & time pickers for open/close
+     *  2) Day & time pickers for open/close, time zone picker
      *  3) Save schedule button
      *  4) Current Defaults + Add New Default
      *  5) Real-time summary block
      */
     public String buildAdminHomeJson(Map<String, Integer> defaults, String summaryMd) {
-        ScheduleSettings settings = scheduleSettingsService.get();
+        return buildAdminHomeJson(scheduleSettingsService.get(), defaults, summaryMd);
+    }
+
+    /**
+     * Same as {@link #buildAdminHomeJson(Map, String)} but for an explicit workspace,
+     * so it can run on a background worker where no TenantContext is populated.
+     */
+    public String buildAdminHomeJson(String teamId, Map<String, Integer> defaults, String summaryMd) {
+        return buildAdminHomeJson(scheduleSettingsService.getForTeam(teamId), defaults, summaryMd);
+    }
+
+    private String buildAdminHomeJson(ScheduleSettings settings, Map<String, Integer> defaults, String summaryMd) {
         String openDay   = settings.getOpenDay();
         String openTime  = settings.getOpenTime();
         String closeDay  = settings.getCloseDay();
         String closeTime = settings.getCloseTime();
+        String timezone  = settings.getTimezone();
 
         Map<String,String> dayLabels = Map.of(
                 "MON","Monday", "TUE","Tuesday", "WED","Wednesday",
@@ -115,6 +137,32 @@ public class HomeViewBuilder {
                         "  \"element\": {\"type\":\"timepicker\",\"action_id\":\"close_time_picker\",\"initial_time\":\"" + closeTime + "\"}\n" +
                         "},\n";
 
+        // Slack requires the initial option among the options: a zone outside the list is added to it
+        StringBuilder zoneOptions = new StringBuilder();
+        List<String> zones = TIMEZONES.contains(timezone)
+                ? TIMEZONES
+                : Stream.concat(Stream.of(timezone), TIMEZONES.stream()).toList();
+        for (String zone : zones) {
+            if (zoneOptions.length() > 0) zoneOptions.append(",\n");
+            zoneOptions.append("      {\"text\":{\"type\":\"plain_text\",\"text\":\"").append(zone)
+                    .append("\"},\"value\":\"").append(zone).append("\"}");
+        }
+        String timezoneBlock =
+                "{\n" +
+                        "  \"type\": \"input\",\n" +
+                        "  \"block_id\": \"timezone_block\",\n" +
+                        "  \"dispatch_action\": true,\n" +
+                        "  \"label\": {\"type\":\"plain_text\",\"text\":\"Time zone\",\"emoji\":true},\n" +
+                        "  \"element\": {\n" +
+                        "    \"type\": \"static_select\",\n" +
+                        "    \"action_id\": \"timezone_picker\",\n" +
+                        "    \"initial_option\": {\"text\":{\"type\":\"plain_text\",\"text\":\"" + timezone + "\"},\"value\":\"" + timezone + "\"},\n" +
+                        "    \"options\": [\n" +
+                        zoneOptions + "\n" +
+                        "    ]\n" +
+                        "  }\n" +
+                        "},\n";
+
         String saveButtonBlock =
                 "{\n" +
                         "  \"type\": \"actions\",\n" +
@@ -169,6 +217,7 @@ public class HomeViewBuilder {
                 openTimeBlock +
                 closeDayBlock +
                 closeTimeBlock +
+                timezoneBlock +
                 saveButtonBlock +
                 defaultsHeader +
                 (itemBlocks.isEmpty() ? "" : itemBlocks + ",\n") +
@@ -7,19 +7,20 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * Configuration for scheduling tasks programmatically.
- * Exposes a TaskScheduler bean for ScheduleSettingsService.
+ * Exposes a TaskScheduler bean for background maintenance (event partitions);
+ * the per-tenant weekly jobs run on TenantScheduler.
  */
 @Configuration
 public class SchedulerConfig {
 
     /**
-     * Defines a TaskScheduler with a small thread pool to run CronTrigger tasks.
+     * Defines a TaskScheduler with a small thread pool for periodic maintenance tasks.
      */
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
         scheduler.setPoolSize(2);
-        scheduler.setThreadNamePrefix("weekly-order-scheduler-");
+        scheduler.setThreadNamePrefix("maintenance-scheduler-");
         scheduler.initialize();
         return scheduler;
     }
@@ -1,12 +1,14 @@
 package com.andreycorp.slack_grocery_bot.controllers;
 
 
-import com.andreycorp.slack_grocery_bot.Services.SlackEventHandlers;
+import com.andreycorp.slack_grocery_bot.Services.EventDeduplicator;
+import com.andreycorp.slack_grocery_bot.Services.SlackEventDispatcher;
 import com.andreycorp.slack_grocery_bot.context.TenantContext;
 import com.andreycorp.slack_grocery_bot.parsers.SlackRequestParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,20 +21,27 @@ import org.springframework.web.bind.annotation.*;
  *  2) app_home_opened (when a user opens the app's Home tab)
  *  3) app_mention (when the bot is mentioned in a message)
  *  4) reaction_added (when a user adds a reaction to a message)
+ *
+ *  Event callbacks are handed to SlackEventDispatcher, which (in async mode) only enqueues
+ *  them so Slack gets its 200 immediately. Redelivered events (same event_id) are acked
+ *  without any further work, unless the earlier delivery failed or was turned away.
  */
 
 @RestController
 @RequestMapping("/slack/events")
 public class EventsController {
-    private final SlackEventHandlers handlers;
+    private final SlackEventDispatcher dispatcher;
+    private final EventDeduplicator deduplicator;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final TenantContext tenantContext;
 
     public EventsController(
-            SlackEventHandlers handlers,
+            SlackEventDispatcher dispatcher,
+            EventDeduplicator deduplicator,
             TenantContext tenantContext
     ) {
-        this.handlers = handlers;
+        this.dispatcher = dispatcher;
+        this.deduplicator = deduplicator;
         this.tenantContext = tenantContext;
     }
 
@@ -58,22 +67,29 @@ public class EventsController {
             /// Extract and set tenant context for this request
             String teamId = payload.get("team_id").asText(); // extract team ID from payload
             tenantContext.setTeamId(teamId);
-            //  Extract the event type from the payload
+
+            // Slack retries when we are slow; skip events we have already accepted
+            String eventId = payload.path("event_id").asText(null);
+            if (!deduplicator.markIfNew(teamId, eventId,
+                    request.getHeader("X-Slack-Retry-Num"),
+                    request.getHeader("X-Slack-Retry-Reason"))) {
+                return ResponseEntity.ok("");
+            }
+
+            //  Hand the event off; the team ID travels with it explicitly.
+            //  If it was not taken, unmark it so Slack's redelivery is not dropped as a duplicate.
             JsonNode event = payload.get("event");
-            String eventType = event.get("type").asText();
-
-            switch (eventType) {
-                case "app_home_opened":
-                    handlers.handleAppHomeOpened(event);
-                    break;
-                case "app_mention":
-                    handlers.handleMessageEvent(event);
-                    break;
-                case "reaction_added":
-                    handlers.handleReactionAdded(event);
-                    break;
-                default:
-                    // ignore other event types
+            boolean accepted;
+            try {
+                accepted = dispatcher.dispatch(teamId, event);
+            } catch (Exception e) {
+                deduplicator.forget(teamId, eventId);
+                throw e;
+            }
+            if (!accepted) {
+                deduplicator.forget(teamId, eventId);
+                // overloaded: a fast 503 makes Slack redeliver later instead of timing out
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("");
             }
         }
 
@@ -1,5 +1,6 @@
 package com.andreycorp.slack_grocery_bot.controllers;
 
+import com.andreycorp.slack_grocery_bot.Services.SlackClientRegistry;
 import com.andreycorp.slack_grocery_bot.jdbc.JdbcWorkspaceService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,6 +25,7 @@ public class OAuthController {
 
 
     private final JdbcWorkspaceService workspaceService;
+    private final SlackClientRegistry clientRegistry;
     private final String clientId;   // identify of the GrocFriend Slack app
     private final String clientSecret; // secret of the GrocFriend Slack app
     private final RestTemplate rest; // ** used to make HTTP requests to Slack API. server-to-Slack requests
@@ -31,10 +33,12 @@ public class OAuthController {
 
     public OAuthController(
             JdbcWorkspaceService workspaceService,
+            SlackClientRegistry clientRegistry,
             @Value("${slack.client.id}") String clientId,
             @Value("${slack.client.secret}") String clientSecret
     ) {
         this.workspaceService = workspaceService;
+        this.clientRegistry   = clientRegistry;
         this.clientId         = clientId;
         this.clientSecret     = clientSecret;
         this.rest             = new RestTemplate();
@@ -61,6 +65,7 @@ public class OAuthController {
 
         //  Persist the workspace credentials
         workspaceService.upsertWorkspace(teamId, botToken, signingSecret);
+        clientRegistry.invalidate(teamId); // reinstall: drop the cached old token
 
         //  Send confirmation message
         return ResponseEntity.ok("App successfully installed for team " + teamId);
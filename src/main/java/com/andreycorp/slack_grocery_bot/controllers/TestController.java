@@ -21,7 +21,7 @@ public class TestController {
     }
 
     /**
-     * Immediately opens a new grocery order thread for the specified team.
+     * Queues a new grocery order thread for the specified team (posted within a second or so).
      * Example: GET /slack/test/open?teamId=T12345
      */
     @GetMapping("/open")
@@ -29,8 +29,8 @@ public class TestController {
             @RequestParam("teamId") String teamId
     ) throws Exception {
         scheduler.openOrderThreadFor(teamId);
-        String ts = scheduler.getCurrentThreadTsFor(teamId);
-        return ResponseEntity.ok("Opened thread for team " + teamId + " at ts=" + ts);
+        // posted asynchronously from the Slack outbox; the ts is known once it is delivered
+        return ResponseEntity.ok("Queued a new thread for team " + teamId);
     }
 
     /**
@@ -0,0 +1,37 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Session-level PostgreSQL advisory locks for maintenance jobs that every instance schedules
+ * but only one should run at a time. One key per job; the lock is held by the connection.
+ */
+final class AdvisoryLocks {
+
+    /** EventPartitionManager's create/drop pass. */
+    static final long EVENT_PARTITIONS = 0x67726F63_00000001L;
+    /** OrderLineBackfill's one-off run. */
+    static final long ORDER_LINE_BACKFILL = 0x67726F63_00000002L;
+
+    private AdvisoryLocks() {}
+
+    /** @return false if another session holds the lock */
+    static boolean tryLock(Connection c, long key) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            ps.setLong(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    static void unlock(Connection c, long key) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            ps.setLong(1, key);
+            ps.executeQuery().close();
+        }
+    }
+}
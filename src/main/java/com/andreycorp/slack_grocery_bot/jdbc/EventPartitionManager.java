@@ -0,0 +1,247 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the weekly partitions of message_event and reaction_event (V4 migration).
+ *
+ * Periodically:
+ *  - pre-creates the partitions for the current week and the next weeks-ahead weeks,
+ *    so inserts never land in the default partition;
+ *  - drops every weekly partition that ends at or before the retention cutoff,
+ *    and deletes the order_line rows below it.
+ *
+ * The cutoff is the lowest retention watermark over all workspaces (event_retention), so a week
+ * is dropped only once every tenant has pruned past it, and never past the oldest open order
+ * thread. retention-weeks optionally caps the history kept for workspaces that never prune;
+ * it is off (0) by default.
+ *
+ * Every instance schedules the pass; an advisory lock lets one of them run it at a time.
+ */
+@Component
+public class EventPartitionManager {
+
+    static final String[] TABLES = {"message_event", "reaction_event"};
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final DataSource ds;
+    private final WeeklyOrderScheduler orderScheduler;
+    private final int weeksAhead;
+    private final int retentionWeeks;
+    private final Counter created;
+    private final Counter dropped;
+
+    public EventPartitionManager(
+            DataSource ds,
+            WeeklyOrderScheduler orderScheduler,
+            TaskScheduler taskScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${slack.events.partitions.enabled:true}") boolean enabled,
+            @Value("${slack.events.partitions.weeks-ahead:4}") int weeksAhead,
+            @Value("${slack.events.partitions.retention-weeks:0}") int retentionWeeks,
+            @Value("${slack.events.partitions.maintenance-interval-minutes:60}") long intervalMinutes
+    ) {
+        this.ds             = ds;
+        this.orderScheduler = orderScheduler;
+        this.weeksAhead     = weeksAhead;
+        this.retentionWeeks = retentionWeeks;
+        this.created = meterRegistry.counter("slack.events.partitions.created");
+        this.dropped = meterRegistry.counter("slack.events.partitions.dropped");
+
+        if (enabled) {
+            taskScheduler.scheduleWithFixedDelay(this::maintainQuietly,
+                    Instant.now().plusSeconds(10), Duration.ofMinutes(intervalMinutes));
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException ex) {
+            System.err.println("Event partition maintenance failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * One maintenance pass: create upcoming partitions, then drop expired ones. Runs on one
+     * instance at a time (advisory lock); the others skip the pass.
+     */
+    public void maintain() {
+        LocalDate thisWeek = weekStart(LocalDate.now(ZoneOffset.UTC));
+        try (Connection c = ds.getConnection()) {
+            if (!AdvisoryLocks.tryLock(c, AdvisoryLocks.EVENT_PARTITIONS)) {
+                return;
+            }
+            try {
+                createUpcoming(c, thisWeek);
+                dropExpired(c, thisWeek);
+            } finally {
+                AdvisoryLocks.unlock(c, AdvisoryLocks.EVENT_PARTITIONS);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("maintain event partitions failed", ex);
+        }
+    }
+
+    /**
+     * Each partition on its own: one that cannot be created (e.g. its week already has rows in
+     * the default partition) is logged and does not hold up the others or the drops.
+     */
+    private void createUpcoming(Connection c, LocalDate thisWeek) {
+        for (int i = 0; i <= weeksAhead; i++) {
+            LocalDate week = thisWeek.plusWeeks(i);
+            for (String table : TABLES) {
+                String partition = partitionName(table, week);
+                try (Statement st = c.createStatement()) {
+                    if (!exists(c, partition)) {
+                        st.executeUpdate(createSql(table, week));
+                        created.increment();
+                    }
+                } catch (SQLException ex) {
+                    System.err.printf("Creating event partition %s failed: %s%n", partition, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dropExpired(Connection c, LocalDate thisWeek) {
+        double cutoff;
+        try {
+            cutoff = retentionCutoff(c, thisWeek);
+        } catch (SQLException | RuntimeException ex) {
+            System.err.println("Event retention cutoff failed, nothing dropped: " + ex.getMessage());
+            return;
+        }
+        for (String table : TABLES) {
+            try (Statement st = c.createStatement()) {
+                for (String partition : listWeeklyPartitions(c, table)) {
+                    LocalDate week = LocalDate.parse(partition.substring(table.length() + 2), SUFFIX);
+                    if (epochOf(week.plusWeeks(1)) <= cutoff) {
+                        st.executeUpdate("DROP TABLE IF EXISTS public." + partition);
+                        dropped.increment();
+                        System.out.printf("Dropped expired event partition %s%n", partition);
+                    }
+                }
+            } catch (SQLException ex) {
+                System.err.printf("Dropping expired %s partitions failed: %s%n", table, ex.getMessage());
+            }
+        }
+        // order_line is small and not partitioned: trim it to the same cutoff
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM order_line WHERE message_ts_epoch < ?")) {
+            ps.setDouble(1, cutoff);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            System.err.println("Trimming order_line failed: " + ex.getMessage());
+        }
+    }
+
+    private boolean exists(Connection c, String partition) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, "public." + partition);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Partitions ending at or before this epoch second hold no visible rows for any tenant.
+     */
+    private double retentionCutoff(Connection c, LocalDate thisWeek) throws SQLException {
+        // workspaces without a watermark count as 0 (nothing pruned yet)
+        String sql = "SELECT COALESCE(MIN(COALESCE(r.prune_before_epoch, 0)), 0) " +
+                "FROM workspace w LEFT JOIN event_retention r ON r.team_id = w.team_id";
+        double minWatermark;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            minWatermark = rs.getDouble(1);
+        }
+        double cutoff = minWatermark;
+        if (retentionWeeks > 0) { // opt-in hard cap
+            cutoff = Math.max(cutoff, epochOf(thisWeek.minusWeeks(retentionWeeks)));
+        }
+
+        String oldestOpen = orderScheduler.getOldestOpenThreadTs();
+        if (oldestOpen != null) {
+            cutoff = Math.min(cutoff, Double.parseDouble(oldestOpen));
+        }
+        return cutoff;
+    }
+
+    /**
+     * Weekly partitions currently attached to the given parent, skipping the default partition.
+     */
+    private List<String> listWeeklyPartitions(Connection c, String table) throws SQLException {
+        String sql = "SELECT child.relname FROM pg_inherits i " +
+                "JOIN pg_class child ON child.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?)";
+        List<String> out = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, "public." + table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (isWeeklyPartition(table, name)) {
+                        out.add(name);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    static boolean isWeeklyPartition(String table, String name) {
+        String prefix = table + "_p";
+        if (!name.startsWith(prefix)) {
+            return false;
+        }
+        try {
+            LocalDate.parse(name.substring(prefix.length()), SUFFIX);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    static String createSql(String table, LocalDate week) {
+        return String.format(
+                "CREATE TABLE IF NOT EXISTS public.%s PARTITION OF public.%s FOR VALUES FROM (%d) TO (%d)",
+                partitionName(table, week), table, epochOf(week), epochOf(week.plusWeeks(1)));
+    }
+
+    static String partitionName(String table, LocalDate week) {
+        return table + "_p" + week.format(SUFFIX);
+    }
+
+    /** Monday of the week containing the given day, matching Postgres date_trunc('week', ...). */
+    static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    static long epochOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+}
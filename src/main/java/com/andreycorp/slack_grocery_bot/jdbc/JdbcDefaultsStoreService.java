@@ -31,9 +31,17 @@ public class JdbcDefaultsStoreService {
      * Return all default items for the current workspace as a LinkedHashMap to preserve insertion order.
      */
     public Map<String, Integer> listAll() {
+        return listAll(tenantContext.getTeamId());
+    }
+
+    /**
+     * Return all default items for the given workspace.
+     * Safe to call outside a request scope (e.g. from async event workers).
+     * @param teamId Slack workspace ID
+     */
+    public Map<String, Integer> listAll(String teamId) {
         String sql = "SELECT item_name, quantity FROM default_item WHERE team_id = ? ORDER BY id";
         Map<String, Integer> defaults = new LinkedHashMap<>();
-        String teamId = tenantContext.getTeamId();
         try (Connection c = ds.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, teamId);
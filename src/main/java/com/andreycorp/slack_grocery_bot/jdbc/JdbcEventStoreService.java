@@ -4,203 +4,271 @@ import com.andreycorp.slack_grocery_bot.context.TenantContext;
 import com.andreycorp.slack_grocery_bot.model.EventStore;
 import com.andreycorp.slack_grocery_bot.model.MessageEvent;
 import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * JDBC-backed implementation of EventStore that persists and loads
  * Slack message and reaction events, with both legacy and per-tenant methods.
+ * Inserts are idempotent: unique indexes (V2 migration) + ON CONFLICT DO NOTHING.
+ *
+ * Saves go through JdbcEventWriteBuffer (batched write-behind); every read and prune
+ * flushes that tenant's buffered rows first, so callers always see their own writes.
+ *
+ * Both tables are partitioned by week on ts_epoch (V4 migration). Pruning moves a per-tenant
+ * watermark in event_retention instead of deleting rows; reads filter on it.
+ *
+ * All reads are streamed: a server-side cursor (autocommit off + fetch size) hands rows to a
+ * visitor one page at a time. The list-returning methods are thin wrappers collecting into a list.
  */
 @Repository
 public class JdbcEventStoreService implements EventStore {
+
+    private static final String MESSAGE_COLUMNS  = "SELECT team_id,user_id,channel_id,text,ts FROM message_event ";
+    private static final String REACTION_COLUMNS = "SELECT team_id,user_id,reaction,channel_id,ts FROM reaction_event ";
+
+    // rows below the tenant's retention watermark are pruned, even before their partition is dropped
+    private static final String MESSAGE_NOT_PRUNED  = "AND NOT EXISTS (SELECT 1 FROM event_retention r " +
+            "WHERE r.team_id = message_event.team_id AND message_event.ts_epoch < r.prune_before_epoch) ";
+    private static final String REACTION_NOT_PRUNED = "AND NOT EXISTS (SELECT 1 FROM event_retention r " +
+            "WHERE r.team_id = reaction_event.team_id AND reaction_event.ts_epoch < r.prune_before_epoch) ";
+
+    private static final RowMapper<MessageEvent> MESSAGE_ROW = (rs, i) -> new MessageEvent(
+            rs.getString("team_id"),
+            rs.getString("user_id"),
+            rs.getString("channel_id"),
+            rs.getString("text"),
+            rs.getString("ts")
+    );
+    private static final RowMapper<ReactionEvent> REACTION_ROW = (rs, i) -> new ReactionEvent(
+            rs.getString("team_id"),
+            rs.getString("user_id"),
+            rs.getString("reaction"),
+            rs.getString("channel_id"),
+            rs.getString("ts")
+    );
+
     private final DataSource ds;
     private final TenantContext tenantContext;
+    private final JdbcEventWriteBuffer writeBuffer;
+    private final int fetchSize;
 
-    public JdbcEventStoreService(DataSource ds, TenantContext tenantContext) {
+    public JdbcEventStoreService(
+            DataSource ds,
+            TenantContext tenantContext,
+            JdbcEventWriteBuffer writeBuffer,
+            @Value("${slack.events.fetch-size:500}") int fetchSize
+    ) {
         this.ds = ds;
         this.tenantContext = tenantContext;  // for legacy request-scoped methods
+        this.writeBuffer = writeBuffer;
+        this.fetchSize = fetchSize;
     }
 
     @Override
     public void saveMessage(MessageEvent e) {
-        String sql = "INSERT INTO message_event(team_id,channel_id,user_id,text,ts,ts_epoch) VALUES(?,?,?,?,?,?)";
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, e.teamId());
-            ps.setString(2, e.channel());
-            ps.setString(3, e.user());
-            ps.setString(4, e.text());
-            ps.setString(5, e.ts());
-            ps.setDouble(6, Double.parseDouble(e.ts()));
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException("saveMessage failed", ex);
-        }
+        writeBuffer.addMessage(e);
     }
 
     @Override
     public void saveReaction(ReactionEvent e) {
-        String sql = "INSERT INTO reaction_event(team_id,channel_id,user_id,reaction,ts,ts_epoch) VALUES(?,?,?,?,?,?)";
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, e.teamId());
-            ps.setString(2, e.channel());
-            ps.setString(3, e.user());
-            ps.setString(4, e.reaction());
-            ps.setString(5, e.ts());
-            ps.setDouble(6, Double.parseDouble(e.ts()));
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException("saveReaction failed", ex);
-        }
+        writeBuffer.addReaction(e);
+    }
+
+    @Override
+    public void flush() {
+        writeBuffer.flush();
     }
 
     @Override
     public List<MessageEvent> fetchMessagesSince(String fromTs) {
-        String sql = "SELECT team_id,user_id,channel_id,text,ts " +
-                "FROM message_event WHERE team_id = ? AND ts_epoch >= ? " +
-                "ORDER BY ts_epoch";
-        List<MessageEvent> out = new ArrayList<>();
         String currentTeamId = tenantContext.getTeamId();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, currentTeamId);
-            ps.setDouble(2, Double.parseDouble(fromTs));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new MessageEvent(
-                            rs.getString("team_id"),
-                            rs.getString("user_id"),
-                            rs.getString("channel_id"),
-                            rs.getString("text"),
-                            rs.getString("ts")
-                    ));
-                }
-            }
-        } catch (SQLException ex) {
-            throw new RuntimeException("fetchMessagesSince failed", ex);
-        }
+        List<MessageEvent> out = new ArrayList<>();
+        stream(currentTeamId,
+                MESSAGE_COLUMNS + "WHERE team_id = ? AND ts_epoch >= ? " + MESSAGE_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> {
+                    ps.setString(1, currentTeamId);
+                    ps.setDouble(2, Double.parseDouble(fromTs));
+                },
+                MESSAGE_ROW, out::add, "fetchMessagesSince");
         return out;
     }
 
     @Override
     public List<ReactionEvent> fetchReactionsSince(String fromTs) {
-        String sql = "SELECT team_id,user_id,reaction,channel_id,ts " +
-                "FROM reaction_event WHERE team_id = ? AND ts_epoch >= ? " +
-                "ORDER BY ts_epoch";
-        List<ReactionEvent> out = new ArrayList<>();
         String currentTeamId = tenantContext.getTeamId();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, currentTeamId);
-            ps.setDouble(2, Double.parseDouble(fromTs));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new ReactionEvent(
-                            rs.getString("team_id"),
-                            rs.getString("user_id"),
-                            rs.getString("reaction"),
-                            rs.getString("channel_id"),
-                            rs.getString("ts")
-                    ));
-                }
-            }
-        } catch (SQLException ex) {
-            throw new RuntimeException("fetchReactionsSince failed", ex);
-        }
+        List<ReactionEvent> out = new ArrayList<>();
+        stream(currentTeamId,
+                REACTION_COLUMNS + "WHERE team_id = ? AND ts_epoch >= ? " + REACTION_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> {
+                    ps.setString(1, currentTeamId);
+                    ps.setDouble(2, Double.parseDouble(fromTs));
+                },
+                REACTION_ROW, out::add, "fetchReactionsSince");
         return out;
     }
 
     @Override
     public void pruneEventsBefore(String beforeTs) {
-        String delMsg   = "DELETE FROM message_event WHERE team_id = ? AND ts_epoch < ?";
-        String delReact = "DELETE FROM reaction_event WHERE team_id = ? AND ts_epoch < ?";
-        String currentTeamId = tenantContext.getTeamId();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps1 = c.prepareStatement(delMsg);
-             PreparedStatement ps2 = c.prepareStatement(delReact)) {
-            ps1.setString(1, currentTeamId);
-            ps1.setDouble(2, Double.parseDouble(beforeTs));
-            ps1.executeUpdate();
-            ps2.setString(1, currentTeamId);
-            ps2.setDouble(2, Double.parseDouble(beforeTs));
-            ps2.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException("pruneEventsBefore failed", ex);
-        }
+        pruneEventsBeforeForTeam(tenantContext.getTeamId(), beforeTs);
     }
 
     // --- Per-tenant implementations ---
 
     @Override
     public List<MessageEvent> fetchMessagesForTeam(String teamId) {
-        String sql = "SELECT team_id,user_id,channel_id,text,ts " +
-                "FROM message_event WHERE team_id = ? ORDER BY ts_epoch";
         List<MessageEvent> out = new ArrayList<>();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, teamId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new MessageEvent(
-                            rs.getString("team_id"),
-                            rs.getString("user_id"),
-                            rs.getString("channel_id"),
-                            rs.getString("text"),
-                            rs.getString("ts")
-                    ));
-                }
-            }
-        } catch (SQLException ex) {
-            throw new RuntimeException("fetchMessagesForTeam failed", ex);
-        }
+        forEachMessageForTeam(teamId, out::add);
         return out;
     }
 
     @Override
     public List<ReactionEvent> fetchReactionsForTeam(String teamId) {
-        String sql = "SELECT team_id,user_id,reaction,channel_id,ts " +
-                "FROM reaction_event WHERE team_id = ? ORDER BY ts_epoch";
         List<ReactionEvent> out = new ArrayList<>();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, teamId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new ReactionEvent(
-                            rs.getString("team_id"),
-                            rs.getString("user_id"),
-                            rs.getString("reaction"),
-                            rs.getString("channel_id"),
-                            rs.getString("ts")
-                    ));
-                }
-            }
-        } catch (SQLException ex) {
-            throw new RuntimeException("fetchReactionsForTeam failed", ex);
-        }
+        forEachReactionForTeam(teamId, out::add);
         return out;
     }
 
+    @Override
+    public List<MessageEvent> fetchMessagesInRangeForTeam(String teamId, String channelId, String fromTs, String toTs) {
+        List<MessageEvent> out = new ArrayList<>();
+        forEachMessageInRangeForTeam(teamId, channelId, fromTs, toTs, out::add);
+        return out;
+    }
+
+    @Override
+    public List<ReactionEvent> fetchReactionsInRangeForTeam(String teamId, String channelId, String fromTs, String toTs) {
+        List<ReactionEvent> out = new ArrayList<>();
+        forEachReactionInRangeForTeam(teamId, channelId, fromTs, toTs, out::add);
+        return out;
+    }
+
+    // --- Streaming (visitor) implementations ---
+
+    @Override
+    public void forEachMessageForTeam(String teamId, Consumer<? super MessageEvent> visitor) {
+        stream(teamId, MESSAGE_COLUMNS + "WHERE team_id = ? " + MESSAGE_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> ps.setString(1, teamId),
+                MESSAGE_ROW, visitor, "forEachMessageForTeam");
+    }
+
+    @Override
+    public void forEachReactionForTeam(String teamId, Consumer<? super ReactionEvent> visitor) {
+        stream(teamId, REACTION_COLUMNS + "WHERE team_id = ? " + REACTION_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> ps.setString(1, teamId),
+                REACTION_ROW, visitor, "forEachReactionForTeam");
+    }
+
+    @Override
+    public void forEachMessageInRangeForTeam(String teamId, String channelId, String fromTs, String toTs,
+                                             Consumer<? super MessageEvent> visitor) {
+        // served by idx_msg_team_channel_ts (team_id, channel_id, ts_epoch)
+        stream(teamId, MESSAGE_COLUMNS + "WHERE team_id = ? AND channel_id = ? " +
+                        "AND ts_epoch >= ? AND ts_epoch < ? " + MESSAGE_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> bindRange(ps, teamId, channelId, fromTs, toTs),
+                MESSAGE_ROW, visitor, "forEachMessageInRangeForTeam");
+    }
+
+    @Override
+    public void forEachReactionInRangeForTeam(String teamId, String channelId, String fromTs, String toTs,
+                                              Consumer<? super ReactionEvent> visitor) {
+        // served by idx_react_team_channel_ts (team_id, channel_id, ts_epoch)
+        stream(teamId, REACTION_COLUMNS + "WHERE team_id = ? AND channel_id = ? " +
+                        "AND ts_epoch >= ? AND ts_epoch < ? " + REACTION_NOT_PRUNED + "ORDER BY ts_epoch",
+                ps -> bindRange(ps, teamId, channelId, fromTs, toTs),
+                REACTION_ROW, visitor, "forEachReactionInRangeForTeam");
+    }
+
+    /**
+     * Pruning only raises the tenant's retention watermark: reads stop returning older rows at
+     * once, and EventPartitionManager drops the weekly partitions every tenant has moved past.
+     */
     @Override
     public void pruneEventsBeforeForTeam(String teamId, String beforeTs) {
-        String delMsg   = "DELETE FROM message_event WHERE team_id = ? AND ts_epoch < ?";
-        String delReact = "DELETE FROM reaction_event WHERE team_id = ? AND ts_epoch < ?";
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps1 = c.prepareStatement(delMsg);
-             PreparedStatement ps2 = c.prepareStatement(delReact)) {
-            ps1.setString(1, teamId);
-            ps1.setDouble(2, Double.parseDouble(beforeTs));
-            ps1.executeUpdate();
-            ps2.setString(1, teamId);
-            ps2.setDouble(2, Double.parseDouble(beforeTs));
-            ps2.executeUpdate();
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                moveRetentionWatermark(c, teamId, beforeTs);
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
         } catch (SQLException ex) {
             throw new RuntimeException("pruneEventsBeforeForTeam failed", ex);
         }
     }
+
+    /**
+     * Moves the tenant's retention watermark forward on the caller's connection,
+     * so it can commit together with other writes (JdbcOrderThreadStore).
+     * Pruned rows leave the summary, so the tenant's summary version moves with it.
+     */
+    static void moveRetentionWatermark(Connection c, String teamId, String beforeTs) throws SQLException {
+        String sql = "INSERT INTO event_retention(team_id, prune_before_epoch) VALUES(?, ?) " +
+                "ON CONFLICT (team_id) DO UPDATE SET " +
+                "prune_before_epoch = GREATEST(event_retention.prune_before_epoch, EXCLUDED.prune_before_epoch), " +
+                "updated_at = now()";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, teamId);
+            ps.setDouble(2, Double.parseDouble(beforeTs));
+            ps.executeUpdate();
+        }
+        JdbcSummaryVersionStore.bump(c, List.of(teamId));
+    }
+
+    /**
+     * Runs a query through a server-side cursor and hands each row to the visitor.
+     * PostgreSQL only honours the fetch size outside autocommit, so the read runs in
+     * its own short transaction; at most fetchSize rows are held in memory at a time.
+     */
+    private <T> void stream(String teamId, String sql, PreparedStatementSetter binder, RowMapper<T> mapper,
+                            Consumer<? super T> visitor, String operation) {
+        writeBuffer.flushTeam(teamId); // read-your-writes
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                binder.setValues(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int row = 0;
+                    while (rs.next()) {
+                        visitor.accept(mapper.mapRow(rs, row++));
+                    }
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(operation + " failed", ex);
+        }
+    }
+
+    private static void bindRange(PreparedStatement ps, String teamId, String channelId,
+                                  String fromTs, String toTs) throws SQLException {
+        ps.setString(1, teamId);
+        ps.setString(2, channelId);
+        ps.setDouble(3, Double.parseDouble(fromTs));
+        ps.setDouble(4, upperBound(toTs));
+    }
+
+    /** Exclusive upper bound for ts_epoch; a null Slack timestamp means "no bound". */
+    private static double upperBound(String toTs) {
+        return toTs == null ? Double.MAX_VALUE : Double.parseDouble(toTs);
+    }
 }
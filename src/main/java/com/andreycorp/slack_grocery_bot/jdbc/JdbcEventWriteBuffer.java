@@ -0,0 +1,458 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer for message_event, reaction_event and order_line inserts.
+ *
+ * Saved rows are queued per table and written with JDBC batch inserts, in one transaction,
+ * when either the batch-size or the flush-interval threshold is reached. This replaces one
+ * connection + one single-row INSERT per Slack event during thread-open bursts.
+ *
+ * {@link #flushTeam(String)} is synchronous: the stores call it before every read of a
+ * tenant, so summaries always see their own writes. It writes only that tenant's rows, so
+ * one tenant's bad row cannot fail another tenant's read.
+ *
+ * Each batch also moves the summary_version of the tenants whose order lines or +1 reactions
+ * it wrote (JdbcSummaryVersionStore), so other instances' live summaries notice the change.
+ *
+ * Failures are never silent:
+ *  - rows whose ts is not a Slack timestamp are rejected (logged + counted) when queued;
+ *  - a transient failure (connection, timeout) keeps the events queued and rethrows;
+ *    the background flusher retries on its next tick;
+ *  - if a batch fails, rows are retried one by one, and rows violating a constraint
+ *    (SQLState class 23, e.g. unknown team_id) are logged and counted instead of blocking
+ *    the rest of the queue; they are not thrown to readers or writers;
+ *  - when the queue grows past max-pending, writers flush synchronously, so a failing
+ *    database surfaces in the event handler rather than growing the heap.
+ */
+@Component
+public class JdbcEventWriteBuffer {
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO message_event(team_id,channel_id,user_id,text,ts,ts_epoch) VALUES(?,?,?,?,?,?) " +
+            "ON CONFLICT DO NOTHING"; // redelivered event: already stored
+    private static final String INSERT_REACTION =
+            "INSERT INTO reaction_event(team_id,channel_id,user_id,reaction,ts,ts_epoch) VALUES(?,?,?,?,?,?) " +
+            "ON CONFLICT DO NOTHING";
+    private static final String INSERT_ORDER_LINE =
+            "INSERT INTO order_line(team_id,channel_id,thread_ts,user_id,item,qty,message_ts,message_ts_epoch,line_no) " +
+            "VALUES(?,?,?,?,?,?,?,?,?) ON CONFLICT DO NOTHING";
+
+    private final DataSource ds;
+    private final JdbcSummaryVersionStore summaryVersions;
+    private final int batchSize;
+    private final int maxPending;
+
+    // pending rows per table, guarded by "this"
+    private final Deque<MessageEvent>  pendingMessages  = new ArrayDeque<>();
+    private final Deque<ReactionEvent> pendingReactions = new ArrayDeque<>();
+    private final Deque<OrderLine>     pendingLines     = new ArrayDeque<>();
+
+    // only one flush writes at a time
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    private final Timer               flushTimer;
+    private final DistributionSummary flushedRows;
+    private final Counter             flushFailures;
+    private final Counter             rejectedRows;
+
+    public JdbcEventWriteBuffer(
+            DataSource ds,
+            JdbcSummaryVersionStore summaryVersions,
+            MeterRegistry meterRegistry,
+            @Value("${slack.events.write-buffer.batch-size:200}") int batchSize,
+            @Value("${slack.events.write-buffer.flush-interval-ms:250}") long flushIntervalMs,
+            @Value("${slack.events.write-buffer.max-pending:10000}") int maxPending
+    ) {
+        this.ds         = ds;
+        this.summaryVersions = summaryVersions;
+        this.batchSize  = batchSize;
+        this.maxPending = maxPending;
+
+        Gauge.builder("slack.events.write-buffer.pending", this, JdbcEventWriteBuffer::pendingCount)
+                .description("Events queued for the next batch insert")
+                .register(meterRegistry);
+        this.flushTimer    = meterRegistry.timer("slack.events.write-buffer.flush");
+        this.flushedRows   = meterRegistry.summary("slack.events.write-buffer.batch.rows");
+        this.flushFailures = meterRegistry.counter("slack.events.write-buffer.failures");
+        this.rejectedRows  = meterRegistry.counter("slack.events.write-buffer.rejected");
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "event-write-buffer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::backgroundFlush,
+                flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queue a message_event row. */
+    public void addMessage(MessageEvent e) {
+        if (!isSlackTs(e.ts())) {
+            reject(e);
+            return;
+        }
+        int pending;
+        synchronized (this) {
+            pendingMessages.addLast(e);
+            pending = pendingCount();
+        }
+        afterAdd(pending);
+    }
+
+    /** Queue a reaction_event row. */
+    public void addReaction(ReactionEvent e) {
+        if (!isSlackTs(e.ts())) {
+            reject(e);
+            return;
+        }
+        int pending;
+        synchronized (this) {
+            pendingReactions.addLast(e);
+            pending = pendingCount();
+        }
+        afterAdd(pending);
+    }
+
+    /** Queue the order_line rows of one message. */
+    public void addOrderLines(List<OrderLine> lines) {
+        List<OrderLine> valid = new ArrayList<>(lines.size());
+        for (OrderLine l : lines) {
+            if (isSlackTs(l.messageTs())) valid.add(l);
+            else reject(l);
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        int pending;
+        synchronized (this) {
+            pendingLines.addAll(valid);
+            pending = pendingCount();
+        }
+        afterAdd(pending);
+    }
+
+    private void afterAdd(int pending) {
+        if (pending >= maxPending) {
+            flush(); // back-pressure: the writer pays for the flush and sees its failure
+        } else if (pending >= batchSize) {
+            flusher.execute(this::backgroundFlush);
+        }
+    }
+
+    private synchronized int pendingCount() {
+        return pendingMessages.size() + pendingReactions.size() + pendingLines.size();
+    }
+
+    /** ts_epoch is bound from the ts string, so a row that cannot be parsed is never queued. */
+    private static boolean isSlackTs(String ts) {
+        if (ts == null) {
+            return false;
+        }
+        try {
+            return Double.isFinite(Double.parseDouble(ts));
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private void reject(Object row) {
+        rejectedRows.increment();
+        System.err.println("Rejected event row with invalid ts: " + row);
+    }
+
+    /**
+     * Synchronously writes everything queued so far.
+     * @throws RuntimeException if rows could not be written for a transient reason; they stay queued
+     */
+    public void flush() {
+        flush(null);
+    }
+
+    /**
+     * Synchronously writes one tenant's queued rows (read-your-writes before that tenant's
+     * queries); other tenants' rows are left to the background flusher.
+     * @throws RuntimeException if the tenant's rows could not be written for a transient reason
+     */
+    public void flushTeam(String teamId) {
+        flush(teamId);
+    }
+
+    /** @param teamId the tenant whose rows to write, or null for every tenant */
+    private void flush(String teamId) {
+        List<JdbcSummaryVersionStore.Bump> bumps = List.of();
+        flushLock.lock();
+        try {
+            List<MessageEvent> messages;
+            List<ReactionEvent> reactions;
+            List<OrderLine> lines;
+            synchronized (this) {
+                messages  = drain(pendingMessages, teamId, MessageEvent::teamId);
+                reactions = drain(pendingReactions, teamId, ReactionEvent::teamId);
+                lines     = drain(pendingLines, teamId, OrderLine::teamId);
+            }
+            if (messages.isEmpty() && reactions.isEmpty() && lines.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                bumps = writeBatch(messages, reactions, lines);
+                flushedRows.record(messages.size() + reactions.size() + lines.size());
+            } catch (SQLException | RuntimeException batchFailure) {
+                // a row the driver refuses to bind must not take the rest of the batch with it
+                flushFailures.increment();
+                writeRowByRow(messages, reactions, lines, batchFailure);
+            } finally {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        // outside the flush lock: listeners take their own locks, which may be held by a reader
+        // that is itself waiting to flush
+        bumps.forEach(summaryVersions::committed);
+    }
+
+    /** Removes and returns the queued rows of one tenant (all rows if teamId is null), in order. */
+    private static <T> List<T> drain(Deque<T> queue, String teamId, Function<T, String> team) {
+        List<T> out = new ArrayList<>();
+        for (Iterator<T> it = queue.iterator(); it.hasNext(); ) {
+            T row = it.next();
+            if (teamId == null || teamId.equals(team.apply(row))) {
+                out.add(row);
+                it.remove();
+            }
+        }
+        return out;
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            System.err.println("Event write-behind flush failed, will retry: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * All tables in one transaction, one JDBC batch each, so a message and its order lines
+     * become visible together. The summary version of every tenant whose order lines or +1
+     * reactions were written moves in the same transaction.
+     * @return the committed version bumps, with the rows behind each
+     */
+    private List<JdbcSummaryVersionStore.Bump> writeBatch(List<MessageEvent> messages, List<ReactionEvent> reactions,
+                                                          List<OrderLine> lines) throws SQLException {
+        Map<String, List<OrderLine>> linesByTeam = new HashMap<>();
+        Map<String, List<ReactionEvent>> plusOnesByTeam = new HashMap<>();
+        for (OrderLine l : lines) {
+            linesByTeam.computeIfAbsent(l.teamId(), t -> new ArrayList<>()).add(l);
+        }
+        for (ReactionEvent e : reactions) {
+            if ("+1".equals(e.reaction())) {
+                plusOnesByTeam.computeIfAbsent(e.teamId(), t -> new ArrayList<>()).add(e);
+            }
+        }
+        Set<String> summaryTeams = new HashSet<>(linesByTeam.keySet());
+        summaryTeams.addAll(plusOnesByTeam.keySet());
+
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement pm = c.prepareStatement(INSERT_MESSAGE);
+                 PreparedStatement pr = c.prepareStatement(INSERT_REACTION);
+                 PreparedStatement pl = c.prepareStatement(INSERT_ORDER_LINE)) {
+                for (MessageEvent e : messages) {
+                    bindMessage(pm, e);
+                    pm.addBatch();
+                }
+                for (ReactionEvent e : reactions) {
+                    bindReaction(pr, e);
+                    pr.addBatch();
+                }
+                for (OrderLine l : lines) {
+                    bindOrderLine(pl, l);
+                    pl.addBatch();
+                }
+                if (!messages.isEmpty()) pm.executeBatch();
+                if (!reactions.isEmpty()) pr.executeBatch();
+                if (!lines.isEmpty()) pl.executeBatch();
+                Map<String, Long> versions = JdbcSummaryVersionStore.bump(c, summaryTeams);
+                c.commit();
+
+                List<JdbcSummaryVersionStore.Bump> bumps = new ArrayList<>(versions.size());
+                versions.forEach((team, version) -> bumps.add(new JdbcSummaryVersionStore.Bump(team, version,
+                        linesByTeam.getOrDefault(team, List.of()),
+                        plusOnesByTeam.getOrDefault(team, List.of()))));
+                return bumps;
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Fallback after a failed batch: isolates bad rows so they cannot block the queue.
+     * Constraint violations and rows that cannot be bound are rejected (logged + counted);
+     * anything else is re-queued.
+     */
+    private void writeRowByRow(List<MessageEvent> messages, List<ReactionEvent> reactions,
+                               List<OrderLine> lines, Exception batchFailure) {
+        List<MessageEvent> retryMessages = new ArrayList<>();
+        List<ReactionEvent> retryReactions = new ArrayList<>();
+        List<OrderLine> retryLines = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        Set<String> summaryTeams = new HashSet<>();
+
+        try (Connection c = ds.getConnection();
+             PreparedStatement pm = c.prepareStatement(INSERT_MESSAGE);
+             PreparedStatement pr = c.prepareStatement(INSERT_REACTION);
+             PreparedStatement pl = c.prepareStatement(INSERT_ORDER_LINE)) {
+            for (MessageEvent e : messages) {
+                try {
+                    bindMessage(pm, e);
+                    pm.executeUpdate();
+                } catch (SQLException ex) {
+                    if (isConstraintViolation(ex)) rejected.add(e + ": " + ex.getMessage());
+                    else retryMessages.add(e);
+                } catch (RuntimeException ex) {
+                    rejected.add(e + ": " + ex);
+                }
+            }
+            for (ReactionEvent e : reactions) {
+                try {
+                    bindReaction(pr, e);
+                    pr.executeUpdate();
+                    if ("+1".equals(e.reaction())) summaryTeams.add(e.teamId());
+                } catch (SQLException ex) {
+                    if (isConstraintViolation(ex)) rejected.add(e + ": " + ex.getMessage());
+                    else retryReactions.add(e);
+                } catch (RuntimeException ex) {
+                    rejected.add(e + ": " + ex);
+                }
+            }
+            for (OrderLine l : lines) {
+                try {
+                    bindOrderLine(pl, l);
+                    pl.executeUpdate();
+                    summaryTeams.add(l.teamId());
+                } catch (SQLException ex) {
+                    if (isConstraintViolation(ex)) rejected.add(l + ": " + ex.getMessage());
+                    else retryLines.add(l);
+                } catch (RuntimeException ex) {
+                    rejected.add(l + ": " + ex);
+                }
+            }
+            // not reported to the listeners: a live summary may hold rows that were rejected here,
+            // so it rebuilds once it sees the new version
+            try {
+                JdbcSummaryVersionStore.bump(c, summaryTeams);
+            } catch (SQLException ex) {
+                System.err.println("Failed to bump summary versions after row-by-row flush: " + ex.getMessage());
+            }
+        } catch (SQLException connectionFailure) {
+            // could not even get a connection: keep everything that was not written yet
+            retryMessages  = messages;
+            retryReactions = reactions;
+            retryLines     = lines;
+        }
+
+        int retried = retryMessages.size() + retryReactions.size() + retryLines.size();
+        if (retried > 0) {
+            requeue(retryMessages, retryReactions, retryLines);
+        }
+        if (!rejected.isEmpty()) {
+            rejectedRows.increment(rejected.size());
+            rejected.forEach(r -> System.err.println("Rejected event row: " + r));
+        }
+        if (retried > 0) {
+            // rejected rows are already logged and counted; only a transient failure is thrown
+            throw new RuntimeException(String.format(
+                    "Event flush failed: %d rejected, %d re-queued",
+                    rejected.size(), retried), batchFailure);
+        }
+    }
+
+    /** Put rows back at the head of the queue, preserving their original order. */
+    private synchronized void requeue(List<MessageEvent> messages, List<ReactionEvent> reactions,
+                                      List<OrderLine> lines) {
+        for (int i = messages.size() - 1; i >= 0; i--) pendingMessages.addFirst(messages.get(i));
+        for (int i = reactions.size() - 1; i >= 0; i--) pendingReactions.addFirst(reactions.get(i));
+        for (int i = lines.size() - 1; i >= 0; i--) pendingLines.addFirst(lines.get(i));
+    }
+
+    private static boolean isConstraintViolation(SQLException ex) {
+        return ex.getSQLState() != null && ex.getSQLState().startsWith("23");
+    }
+
+    private static void bindMessage(PreparedStatement ps, MessageEvent e) throws SQLException {
+        ps.setString(1, e.teamId());
+        ps.setString(2, e.channel());
+        ps.setString(3, e.user());
+        ps.setString(4, e.text());
+        ps.setString(5, e.ts());
+        ps.setDouble(6, Double.parseDouble(e.ts()));
+    }
+
+    private static void bindReaction(PreparedStatement ps, ReactionEvent e) throws SQLException {
+        ps.setString(1, e.teamId());
+        ps.setString(2, e.channel());
+        ps.setString(3, e.user());
+        ps.setString(4, e.reaction());
+        ps.setString(5, e.ts());
+        ps.setDouble(6, Double.parseDouble(e.ts()));
+    }
+
+    private static void bindOrderLine(PreparedStatement ps, OrderLine l) throws SQLException {
+        ps.setString(1, l.teamId());
+        ps.setString(2, l.channel());
+        ps.setString(3, l.threadTs());
+        ps.setString(4, l.user());
+        ps.setString(5, l.item());
+        ps.setDouble(6, l.qty());
+        ps.setString(7, l.messageTs());
+        ps.setDouble(8, Double.parseDouble(l.messageTs()));
+        ps.setInt(9, l.lineNo());
+    }
+
+    /**
+     * Write whatever is still queued before the DataSource goes away.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+}
@@ -0,0 +1,160 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.OrderLineStore;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-backed OrderLineStore over the order_line table (V5 migration).
+ *
+ * Lines are written through JdbcEventWriteBuffer, in the same transaction as their message.
+ * Totals are one GROUP BY over the pre-parsed lines, LEFT JOINed with the +1 count of each
+ * message; lines below the tenant's retention watermark are hidden like pruned events.
+ */
+@Repository
+public class JdbcOrderLineStore implements OrderLineStore {
+
+    private static final String NOT_PRUNED = "AND NOT EXISTS (SELECT 1 FROM event_retention r " +
+            "WHERE r.team_id = l.team_id AND l.message_ts_epoch < r.prune_before_epoch) ";
+
+    private final DataSource ds;
+    private final JdbcEventWriteBuffer writeBuffer;
+    private final int fetchSize;
+
+    public JdbcOrderLineStore(
+            DataSource ds,
+            JdbcEventWriteBuffer writeBuffer,
+            @Value("${slack.events.fetch-size:500}") int fetchSize
+    ) {
+        this.ds = ds;
+        this.writeBuffer = writeBuffer;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void saveLines(List<OrderLine> lines) {
+        writeBuffer.addOrderLines(lines);
+    }
+
+    @Override
+    public List<OrderLineTotal> totalsForTeam(String teamId) {
+        String sql = totalsSql("", "");
+        return queryTotals(teamId, sql, ps -> {
+            ps.setString(1, teamId);
+            ps.setString(2, teamId);
+        }, "totalsForTeam");
+    }
+
+    @Override
+    public List<OrderLineTotal> totalsInRangeForTeam(String teamId, String channelId, String fromTs, String toTs) {
+        // served by idx_order_line_team_channel_ts and idx_react_team_channel_ts
+        String sql = totalsSql(
+                "AND channel_id = ? AND ts_epoch >= ? AND ts_epoch < ? ",
+                "AND l.channel_id = ? AND l.message_ts_epoch >= ? AND l.message_ts_epoch < ? ");
+        double from = Double.parseDouble(fromTs);
+        double to = toTs == null ? Double.MAX_VALUE : Double.parseDouble(toTs);
+        return queryTotals(teamId, sql, ps -> {
+            ps.setString(1, teamId);
+            ps.setString(2, channelId);
+            ps.setDouble(3, from);
+            ps.setDouble(4, to);
+            ps.setString(5, teamId);
+            ps.setString(6, channelId);
+            ps.setDouble(7, from);
+            ps.setDouble(8, to);
+        }, "totalsInRangeForTeam");
+    }
+
+    /**
+     * Streams through a server-side cursor: PostgreSQL only honours the fetch size outside
+     * autocommit, so the read runs in its own short transaction.
+     */
+    @Override
+    public void forEachLineForTeam(String teamId, Consumer<? super OrderLine> visitor) {
+        writeBuffer.flushTeam(teamId); // read-your-writes
+        String sql = "SELECT l.team_id, l.channel_id, l.thread_ts, l.user_id, l.item, l.qty, " +
+                "l.message_ts, l.line_no FROM order_line l " +
+                "WHERE l.team_id = ? " + NOT_PRUNED +
+                "ORDER BY l.message_ts_epoch, l.line_no";
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                ps.setString(1, teamId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.accept(new OrderLine(
+                                rs.getString("team_id"),
+                                rs.getString("channel_id"),
+                                rs.getString("thread_ts"),
+                                rs.getString("user_id"),
+                                rs.getString("item"),
+                                rs.getDouble("qty"),
+                                rs.getString("message_ts"),
+                                rs.getInt("line_no")
+                        ));
+                    }
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("forEachLineForTeam failed", ex);
+        }
+    }
+
+    /**
+     * Per (user, item) totals; users and items come out in the order they were first ordered.
+     */
+    private static String totalsSql(String reactionFilter, String lineFilter) {
+        return "SELECT l.user_id, l.item, SUM(l.qty) AS qty, COALESCE(SUM(p.cnt), 0) AS plus_ones " +
+                "FROM order_line l " +
+                "LEFT JOIN (SELECT channel_id, ts, COUNT(*) AS cnt FROM reaction_event " +
+                "           WHERE team_id = ? AND reaction = '+1' " + reactionFilter +
+                "           GROUP BY channel_id, ts) p " +
+                "  ON p.channel_id = l.channel_id AND p.ts = l.message_ts " +
+                "WHERE l.team_id = ? " + lineFilter + NOT_PRUNED +
+                "GROUP BY l.user_id, l.item " +
+                "ORDER BY MIN(l.message_ts_epoch), MIN(l.line_no)";
+    }
+
+    private List<OrderLineTotal> queryTotals(String teamId, String sql, PreparedStatementSetter binder,
+                                             String operation) {
+        writeBuffer.flushTeam(teamId); // read-your-writes
+        List<OrderLineTotal> out = new ArrayList<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            binder.setValues(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new OrderLineTotal(
+                            rs.getString("user_id"),
+                            rs.getString("item"),
+                            rs.getDouble("qty"),
+                            rs.getLong("plus_ones")
+                    ));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(operation + " failed", ex);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,276 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.OrderThread;
+import com.andreycorp.slack_grocery_bot.model.OrderThreadStore;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC-backed OrderThreadStore over the order_thread table (V7 migration).
+ *
+ * Opens are claimed by the unique (team_id, fired_for) key with ON CONFLICT DO NOTHING, in the
+ * same transaction that queues the post; closes are claimed with FOR UPDATE SKIP LOCKED and a
+ * lease, so an instance that dies mid-close (or a close that fails) leaves a row that the next
+ * close or the stuck-close sweep (claimExpiredClose) takes over. Threads are closed oldest first,
+ * each with its own summary. Closing and compacting (pruning the thread's events) are separate
+ * transactions.
+ *
+ * channel_id holds the configured channel (possibly a #name) until the thread is posted, then
+ * the channel ID Slack returned, which is what the events store. A thread's ID and ts are also
+ * read from its delivered outbox post, so a thread posted just before a crash (markOpened never
+ * ran) is still found.
+ */
+@Repository
+public class JdbcOrderThreadStore implements OrderThreadStore {
+
+    /** Unclosed threads of one team, with the ts of their post once delivered. */
+    private static final String POSTED_THREADS =
+            "FROM order_thread t " +
+            "LEFT JOIN slack_outbox o ON o.idempotency_key = t.open_key AND o.delivered_at IS NOT NULL " +
+            "WHERE COALESCE(t.thread_ts, o.result_ts) IS NOT NULL ";
+
+    /** The channel ID of a posted thread, from its outbox post if markOpened has not run. */
+    private static final String POSTED_CHANNEL =
+            "CASE WHEN t.thread_ts IS NULL THEN COALESCE(o.result_channel, t.channel_id) ELSE t.channel_id END " +
+            "AS channel_id";
+
+    private final DataSource ds;
+
+    public JdbcOrderThreadStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    @Override
+    public boolean claimOpen(String teamId, Instant firedFor, OutboxMessage post) {
+        String sql = "INSERT INTO order_thread(team_id, channel_id, fired_for, open_key) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT DO NOTHING";
+        boolean[] claimed = {false};
+        inTransaction(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, teamId);
+                ps.setString(2, post.channel());
+                ps.setTimestamp(3, Timestamp.from(firedFor));
+                ps.setString(4, post.idempotencyKey());
+                claimed[0] = ps.executeUpdate() == 1;
+            }
+            if (claimed[0]) {
+                JdbcSlackOutbox.insert(c, List.of(post));
+            }
+        }, "claimOpen failed");
+        return claimed[0];
+    }
+
+    @Override
+    public void markOpened(String openKey, String channelId, String threadTs) {
+        String sql = "UPDATE order_thread SET channel_id = ?, thread_ts = ?, status = 'OPEN', opened_at = now() " +
+                "WHERE open_key = ? AND status = 'OPENING'";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, channelId);
+            ps.setString(2, threadTs);
+            ps.setString(3, openKey);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("markOpened failed", ex);
+        }
+    }
+
+    @Override
+    public OrderThread claimClose(String teamId, int leaseSeconds) {
+        String select = "SELECT t.id, t.team_id, t.fired_for, " + POSTED_CHANNEL + ", " +
+                "       COALESCE(t.thread_ts, o.result_ts) AS ts " +
+                POSTED_THREADS +
+                "  AND t.team_id = ? " +
+                "  AND (t.status IN ('OPENING', 'OPEN') " +
+                "       OR (t.status = 'CLOSING' AND t.close_lease_until < now())) " +
+                "ORDER BY t.fired_for LIMIT 1 " +
+                "FOR UPDATE OF t SKIP LOCKED";
+        return claimFirst(select, ps -> ps.setString(1, teamId), leaseSeconds, "claimClose failed");
+    }
+
+    @Override
+    public OrderThread claimExpiredClose(int leaseSeconds) {
+        String select = "SELECT t.id, t.team_id, t.fired_for, " + POSTED_CHANNEL + ", " +
+                "       COALESCE(t.thread_ts, o.result_ts) AS ts " +
+                POSTED_THREADS +
+                "  AND t.status = 'CLOSING' AND t.close_lease_until < now() " +
+                "ORDER BY t.fired_for LIMIT 1 " +
+                "FOR UPDATE OF t SKIP LOCKED";
+        return claimFirst(select, ps -> {}, leaseSeconds, "claimExpiredClose failed");
+    }
+
+    /**
+     * Leases the first thread the select returns (locked FOR UPDATE) and looks up where its orders end.
+     */
+    private OrderThread claimFirst(String select, Binder binder, int leaseSeconds, String failure) {
+        String lease = "UPDATE order_thread SET status = 'CLOSING', channel_id = ?, thread_ts = ?, " +
+                "close_lease_until = now() + make_interval(secs => ?) WHERE id = ?";
+        String next = "SELECT COALESCE(t.thread_ts, o.result_ts) " + POSTED_THREADS +
+                "  AND t.team_id = ? AND t.fired_for > ? ORDER BY t.fired_for LIMIT 1";
+        OrderThread[] claimed = {null};
+        inTransaction(c -> {
+            long id;
+            String teamId, channel, ts;
+            Timestamp firedFor;
+            try (PreparedStatement ps = c.prepareStatement(select)) {
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return;
+                    }
+                    id = rs.getLong("id");
+                    teamId = rs.getString("team_id");
+                    channel = rs.getString("channel_id");
+                    firedFor = rs.getTimestamp("fired_for");
+                    ts = rs.getString("ts");
+                }
+            }
+            String untilTs = null;
+            try (PreparedStatement ps = c.prepareStatement(next)) {
+                ps.setString(1, teamId);
+                ps.setTimestamp(2, firedFor);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        untilTs = rs.getString(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(lease)) {
+                ps.setString(1, channel);
+                ps.setString(2, ts);
+                ps.setInt(3, leaseSeconds);
+                ps.setLong(4, id);
+                ps.executeUpdate();
+            }
+            claimed[0] = new OrderThread(id, teamId, channel, ts, untilTs);
+        }, failure);
+        return claimed[0];
+    }
+
+    @Override
+    public void completeClose(OrderThread thread, List<OutboxMessage> summaries) {
+        // only this thread: an older unclosed one is claimed (and summarized) on its own
+        String sql = "UPDATE order_thread SET status = 'CLOSED', closed_at = now(), close_lease_until = NULL " +
+                "WHERE id = ? AND status <> 'CLOSED'";
+        inTransaction(c -> {
+            JdbcSlackOutbox.insert(c, summaries);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setLong(1, thread.id());
+                ps.executeUpdate();
+            }
+        }, "completeClose failed");
+    }
+
+    @Override
+    public void compact(OrderThread thread) {
+        String olderUnclosed = "SELECT 1 FROM order_thread " +
+                "WHERE team_id = ? AND status <> 'CLOSED' " +
+                "  AND fired_for < (SELECT fired_for FROM order_thread WHERE id = ?) LIMIT 1";
+        String sql = "UPDATE order_thread SET compacted_at = now() " +
+                "WHERE team_id = ? AND status = 'CLOSED' AND compacted_at IS NULL " +
+                "  AND fired_for <= (SELECT fired_for FROM order_thread WHERE id = ?)";
+        inTransaction(c -> {
+            try (PreparedStatement ps = c.prepareStatement(olderUnclosed)) {
+                ps.setString(1, thread.teamId());
+                ps.setLong(2, thread.id());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return; // left to the sweep until the older thread is closed
+                    }
+                }
+            }
+            JdbcEventStoreService.moveRetentionWatermark(c, thread.teamId(), thread.threadTs());
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, thread.teamId());
+                ps.setLong(2, thread.id());
+                ps.executeUpdate();
+            }
+        }, "compact failed");
+    }
+
+    @Override
+    public List<OrderThread> pendingCompaction(int limit) {
+        String sql = "SELECT id, team_id, channel_id, thread_ts FROM order_thread " +
+                "WHERE status = 'CLOSED' AND compacted_at IS NULL AND thread_ts IS NOT NULL " +
+                "ORDER BY id LIMIT ?";
+        List<OrderThread> out = new ArrayList<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new OrderThread(rs.getLong("id"), rs.getString("team_id"),
+                            rs.getString("channel_id"), rs.getString("thread_ts"), null));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("pendingCompaction failed", ex);
+        }
+        return out;
+    }
+
+    @Override
+    public String currentThreadTs(String teamId) {
+        String sql = "SELECT COALESCE(t.thread_ts, o.result_ts) " + POSTED_THREADS +
+                "  AND t.team_id = ? AND t.status <> 'CLOSED' ORDER BY t.fired_for DESC LIMIT 1";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, teamId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("currentThreadTs failed", ex);
+        }
+    }
+
+    @Override
+    public String oldestOpenThreadTs() {
+        String sql = "SELECT COALESCE(t.thread_ts, o.result_ts) AS ts " + POSTED_THREADS +
+                "  AND t.status <> 'CLOSED' ORDER BY CAST(COALESCE(t.thread_ts, o.result_ts) AS NUMERIC) LIMIT 1";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException ex) {
+            throw new RuntimeException("oldestOpenThreadTs failed", ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run(Connection c) throws SQLException;
+    }
+
+    private void inTransaction(Work work, String failure) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                work.run(c);
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(failure, ex);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DAO for the schedule_run table (V9 migration): the last run of each tenant's weekly jobs.
+ */
+@Repository
+public class JdbcScheduleRunStore {
+
+    private final DataSource ds;
+
+    public JdbcScheduleRunStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * Record a run of the job; an older firedFor never moves the recorded one back.
+     * @param job      "open" or "close"
+     * @param firedFor scheduled fire time of the run
+     */
+    public void recordRun(String teamId, String job, Instant firedFor) {
+        String sql = "INSERT INTO schedule_run(team_id, job, last_fired_for) VALUES (?, ?, ?) " +
+                "ON CONFLICT (team_id, job) DO UPDATE SET " +
+                "last_fired_for = GREATEST(schedule_run.last_fired_for, EXCLUDED.last_fired_for), " +
+                "last_run_at = now()";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, teamId);
+            ps.setString(2, job);
+            ps.setTimestamp(3, Timestamp.from(firedFor));
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to record " + job + " run for team_id=" + teamId, ex);
+        }
+    }
+
+    /**
+     * Every recorded run, in one query.
+     * @return runKey(teamId, job) → scheduled fire time of its last run
+     */
+    public Map<String, Instant> findAllLastRuns() {
+        String sql = "SELECT team_id, job, last_fired_for FROM schedule_run";
+        Map<String, Instant> runs = new HashMap<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    runs.put(runKey(rs.getString("team_id"), rs.getString("job")),
+                            rs.getTimestamp("last_fired_for").toInstant());
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to load schedule runs", ex);
+        }
+        return runs;
+    }
+
+    public static String runKey(String teamId, String job) {
+        return teamId + ":" + job;
+    }
+}
@@ -7,8 +7,8 @@ import org.springframework.stereotype.Repository;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * DAO for persisting and retrieving per-tenant schedule settings.
@@ -40,8 +40,8 @@ public class JdbcScheduleSettingsService {
      * Upsert the schedule settings for the current workspace (from TenantContext).
      */
     public void upsert(String openDay, LocalTime openTime,
-                       String closeDay, LocalTime closeTime) {
-        upsert(tenantContext.getTeamId(), openDay, openTime, closeDay, closeTime);
+                       String closeDay, LocalTime closeTime, String timezone) {
+        upsert(tenantContext.getTeamId(), openDay, openTime, closeDay, closeTime, timezone);
     }
 
     //––– NEW EXPLICIT-TENANT ID METHODS –––//
@@ -56,7 +56,7 @@ public class JdbcScheduleSettingsService {
      */
     public ScheduleSettings findByTeamId(String teamId) {
         String sql = """
-            SELECT open_day, open_time, close_day, close_time
+            SELECT open_day, open_time, close_day, close_time, timezone
               FROM schedule_settings
              WHERE team_id = ?
             """;
@@ -66,16 +66,7 @@ public class JdbcScheduleSettingsService {
             ps.setString(1, teamId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    String openDay  = rs.getString("open_day");
-                    Time   ot       = rs.getTime("open_time");
-                    String closeDay = rs.getString("close_day");
-                    Time   ct       = rs.getTime("close_time");
-                    return new ScheduleSettings(
-                            openDay,
-                            ot.toLocalTime().toString(),
-                            closeDay,
-                            ct.toLocalTime().toString()
-                    );
+                    return read(rs);
                 }
             }
         } catch (SQLException ex) {
@@ -95,18 +86,21 @@ public class JdbcScheduleSettingsService {
      * @param openTime  e.g. LocalTime.of(9,0)
      * @param closeDay  e.g. "THU"
      * @param closeTime e.g. LocalTime.of(17,0)
+     * @param timezone  IANA zone ID, e.g. "Asia/Jerusalem"
      */
     public void upsert(String teamId,
                        String openDay, LocalTime openTime,
-                       String closeDay, LocalTime closeTime) {
+                       String closeDay, LocalTime closeTime,
+                       String timezone) {
         String sql = """
-            INSERT INTO schedule_settings(team_id, open_day, open_time, close_day, close_time)
-            VALUES (?, ?, ?, ?, ?)
+            INSERT INTO schedule_settings(team_id, open_day, open_time, close_day, close_time, timezone)
+            VALUES (?, ?, ?, ?, ?, ?)
             ON CONFLICT (team_id) DO UPDATE SET
               open_day   = EXCLUDED.open_day,
               open_time  = EXCLUDED.open_time,
               close_day  = EXCLUDED.close_day,
               close_time = EXCLUDED.close_time,
+              timezone   = EXCLUDED.timezone,
               updated_at = now()
             """;
         try (Connection c = ds.getConnection();
@@ -117,6 +111,7 @@ public class JdbcScheduleSettingsService {
             ps.setTime(3, Time.valueOf(openTime));
             ps.setString(4, closeDay);
             ps.setTime(5, Time.valueOf(closeTime));
+            ps.setString(6, timezone);
             ps.executeUpdate();
 
         } catch (SQLException ex) {
@@ -127,22 +122,51 @@ public class JdbcScheduleSettingsService {
     }
 
     /**
-     * Return the list of all workspace IDs.
-     * Used at startup to bootstrap each tenant's scheduler.
+     * Every workspace with its schedule settings, in one query (workspace LEFT JOIN schedule_settings).
+     * Used at startup to bootstrap all tenants' jobs.
+     * @return team ID → settings, or → null for a workspace still on the defaults
      */
-    public List<String> findAllTeamIds() {
-        String sql = "SELECT team_id FROM workspace";
-        List<String> ids = new ArrayList<>();
-        try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                ids.add(rs.getString("team_id"));
+    public Map<String, ScheduleSettings> findAllWithSettings() {
+        String sql = """
+            SELECT w.team_id, s.open_day, s.open_time, s.close_day, s.close_time, s.timezone
+              FROM workspace w
+              LEFT JOIN schedule_settings s ON s.team_id = w.team_id
+            """;
+        Map<String, ScheduleSettings> all = new LinkedHashMap<>();
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false); // the driver only streams with a fetch size inside a transaction
+            try (PreparedStatement ps = c.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        all.put(rs.getString("team_id"), rs.getString("open_day") == null ? null : read(rs));
+                    }
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
             }
         } catch (SQLException ex) {
-            throw new RuntimeException("Failed to list all workspaces", ex);
+            throw new RuntimeException("Failed to load schedule settings of all workspaces", ex);
         }
-        return ids;
+        return all;
+    }
+
+    private static ScheduleSettings read(ResultSet rs) throws SQLException {
+        String openDay  = rs.getString("open_day");
+        Time   ot       = rs.getTime("open_time");
+        String closeDay = rs.getString("close_day");
+        Time   ct       = rs.getTime("close_time");
+        return new ScheduleSettings(
+                openDay,
+                ot.toLocalTime().toString(),
+                closeDay,
+                ct.toLocalTime().toString(),
+                rs.getString("timezone")
+        );
     }
 }
@@ -0,0 +1,87 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO for the scheduler_node heartbeat table (V8 migration).
+ */
+@Repository
+public class JdbcSchedulerNodeStore {
+
+    private final DataSource ds;
+
+    public JdbcSchedulerNodeStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * Record that the node is alive, registering it on its first heartbeat.
+     */
+    public void heartbeat(String nodeId) {
+        String sql = "INSERT INTO scheduler_node(node_id) VALUES (?) " +
+                "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, nodeId);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to heartbeat scheduler node " + nodeId, ex);
+        }
+    }
+
+    /**
+     * IDs of the nodes that sent a heartbeat within the last timeoutSeconds, sorted.
+     */
+    public List<String> liveNodes(int timeoutSeconds) {
+        String sql = "SELECT node_id FROM scheduler_node " +
+                "WHERE heartbeat_at > now() - make_interval(secs => ?) ORDER BY node_id";
+        List<String> ids = new ArrayList<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, timeoutSeconds);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString("node_id"));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to list live scheduler nodes", ex);
+        }
+        return ids;
+    }
+
+    /**
+     * Remove the node, so the others take over its tenants without waiting for the timeout.
+     */
+    public void remove(String nodeId) {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM scheduler_node WHERE node_id = ?")) {
+            ps.setString(1, nodeId);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to remove scheduler node " + nodeId, ex);
+        }
+    }
+
+    /**
+     * Delete nodes silent for longer than olderThanSeconds (instances that died without leaving).
+     */
+    public void purgeSilent(int olderThanSeconds) {
+        String sql = "DELETE FROM scheduler_node WHERE heartbeat_at < now() - make_interval(secs => ?)";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, olderThanSeconds);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to purge silent scheduler nodes", ex);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import com.andreycorp.slack_grocery_bot.model.SlackOutbox;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC-backed SlackOutbox over the slack_outbox table (V6 migration), plus the claim/ack
+ * operations SlackOutboxDelivery drains it with.
+ *
+ * Claims use FOR UPDATE SKIP LOCKED and push next_attempt_at forward by a lease, so several
+ * instances can deliver concurrently without taking the same row, and a row claimed by an
+ * instance that died is retried once the lease runs out. Delivery is at-least-once.
+ */
+@Repository
+public class JdbcSlackOutbox implements SlackOutbox {
+
+    private static final String INSERT =
+            "INSERT INTO slack_outbox(team_id, kind, channel_id, thread_ts, text, idempotency_key) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (idempotency_key) DO NOTHING";
+
+    private static final String CLAIM =
+            "UPDATE slack_outbox SET attempts = attempts + 1, " +
+            "       next_attempt_at = now() + make_interval(secs => ?) " +
+            "WHERE id IN (SELECT id FROM slack_outbox " +
+            "             WHERE delivered_at IS NULL AND failed_at IS NULL AND next_attempt_at <= now() " +
+            "             ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, team_id, kind, channel_id, thread_ts, text, idempotency_key, attempts, " +
+            "          extract(epoch FROM created_at) AS created_epoch";
+
+    private final DataSource ds;
+
+    public JdbcSlackOutbox(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * A claimed outbox row.
+     */
+    public record Claimed(long id, int attempts, double createdEpoch, OutboxMessage message) {}
+
+    @Override
+    public void enqueue(List<OutboxMessage> messages) {
+        inTransaction(c -> insert(c, messages), "enqueue outbox messages failed");
+    }
+
+    /**
+     * Claims up to limit due rows for leaseSeconds and counts the attempt.
+     */
+    public List<Claimed> claim(int limit, int leaseSeconds) {
+        List<Claimed> out = new ArrayList<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(CLAIM)) {
+            ps.setInt(1, leaseSeconds);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    OutboxMessage m = new OutboxMessage(
+                            rs.getString("team_id"),
+                            OutboxMessage.Kind.valueOf(rs.getString("kind")),
+                            rs.getString("channel_id"),
+                            rs.getString("thread_ts"),
+                            rs.getString("text"),
+                            rs.getString("idempotency_key")
+                    );
+                    out.add(new Claimed(rs.getLong("id"), rs.getInt("attempts"),
+                            rs.getDouble("created_epoch"), m));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("claim outbox messages failed", ex);
+        }
+        return out;
+    }
+
+    /**
+     * Marks a row delivered and queues its follow-up messages (e.g. the pin of a posted thread)
+     * in the same transaction.
+     * @param resultChannel channel ID Slack posted the message in (null for a pin)
+     * @param resultTs      ts of the posted message (null for a pin)
+     */
+    public void markDelivered(long id, String resultChannel, String resultTs, List<OutboxMessage> followUps) {
+        inTransaction(c -> {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE slack_outbox SET delivered_at = now(), result_channel = ?, result_ts = ?, last_error = NULL " +
+                    "WHERE id = ?")) {
+                ps.setString(1, resultChannel);
+                ps.setString(2, resultTs);
+                ps.setLong(3, id);
+                ps.executeUpdate();
+            }
+            insert(c, followUps);
+        }, "markDelivered failed");
+    }
+
+    /**
+     * Records a failed attempt: retried after retryInSeconds, or given up on.
+     */
+    public void markFailed(long id, String error, int retryInSeconds, boolean giveUp) {
+        String sql = "UPDATE slack_outbox SET last_error = ?, next_attempt_at = now() + make_interval(secs => ?), " +
+                "failed_at = CASE WHEN ? THEN now() END WHERE id = ?";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, error);
+            ps.setInt(2, retryInSeconds);
+            ps.setBoolean(3, giveUp);
+            ps.setLong(4, id);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("markFailed failed", ex);
+        }
+    }
+
+    /**
+     * Deletes rows delivered more than the given number of days ago.
+     * @return number of rows deleted
+     */
+    public int purgeDelivered(int olderThanDays) {
+        String sql = "DELETE FROM slack_outbox WHERE delivered_at < now() - make_interval(days => ?)";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, olderThanDays);
+            return ps.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException("purgeDelivered failed", ex);
+        }
+    }
+
+    /**
+     * Queues messages on the caller's connection, so they commit together with other writes
+     * (JdbcOrderThreadStore).
+     */
+    static void insert(Connection c, List<OutboxMessage> messages) throws SQLException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = c.prepareStatement(INSERT)) {
+            for (OutboxMessage m : messages) {
+                ps.setString(1, m.teamId());
+                ps.setString(2, m.kind().name());
+                ps.setString(3, m.channel());
+                ps.setString(4, m.threadTs());
+                ps.setString(5, m.text() == null ? "" : m.text());
+                ps.setString(6, m.idempotencyKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run(Connection c) throws SQLException;
+    }
+
+    private void inTransaction(Work work, String failure) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                work.run(c);
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(failure, ex);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * DAO for the summary_version table (V12 migration): a per-tenant counter that every committed
+ * write able to change the order summary moves forward.
+ *
+ * Instances compare it with the version their in-memory live summary was built at. Writes this
+ * instance committed itself are reported to the listeners with the rows they wrote, so a live
+ * summary that already applied those rows can move to the new version without a rebuild.
+ */
+@Repository
+public class JdbcSummaryVersionStore {
+
+    private final DataSource ds;
+    private final List<Consumer<Bump>> listeners = new CopyOnWriteArrayList<>();
+
+    public JdbcSummaryVersionStore(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /**
+     * Current version of the tenant's summary data; 0 if nothing was written yet.
+     */
+    public long current(String teamId) {
+        String sql = "SELECT version FROM summary_version WHERE team_id = ?";
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, teamId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Failed to read summary version for team_id=" + teamId, ex);
+        }
+    }
+
+    /** Called with each of this instance's committed bumps, outside any store lock. */
+    public void addListener(Consumer<Bump> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Moves the tenants' versions forward on the caller's connection, so the bump commits
+     * together with the write. Tenants are locked in a fixed order to avoid deadlocks between
+     * concurrent batches.
+     * @return teamId → new version
+     */
+    static Map<String, Long> bump(Connection c, Collection<String> teamIds) throws SQLException {
+        String sql = "INSERT INTO summary_version(team_id, version) VALUES(?, 1) " +
+                "ON CONFLICT (team_id) DO UPDATE SET version = summary_version.version + 1 " +
+                "RETURNING version";
+        Map<String, Long> versions = new LinkedHashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (String teamId : new TreeSet<>(teamIds)) {
+                ps.setString(1, teamId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    versions.put(teamId, rs.getLong(1));
+                }
+            }
+        }
+        return versions;
+    }
+
+    void committed(Bump bump) {
+        for (Consumer<Bump> listener : listeners) {
+            listener.accept(bump);
+        }
+    }
+
+    /**
+     * One tenant's version moved by a write of this instance.
+     * @param version  the version the write moved the tenant to
+     * @param lines    order lines the write inserted
+     * @param plusOnes +1 reactions the write inserted
+     */
+    public record Bump(String teamId, long version, List<OrderLine> lines, List<ReactionEvent> plusOnes) {}
+}
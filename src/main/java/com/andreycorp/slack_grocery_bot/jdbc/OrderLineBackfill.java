@@ -0,0 +1,156 @@
+package com.andreycorp.slack_grocery_bot.jdbc;
+
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Parses message_event rows stored before order_line existed (or whose lines were lost)
+ * and writes their order lines through the write buffer.
+ *
+ * Runs once per database: a completed run is recorded in maintenance_marker and later startups
+ * skip it (delete the marker row to run it again). An advisory lock keeps instances starting
+ * together from running it side by side. It stays idempotent anyway: only messages without any
+ * order line are read, and inserts ignore conflicts. The original thread_ts of those messages
+ * was never stored; the message ts is used instead, which the ts-range summaries do not depend on.
+ */
+@Component
+public class OrderLineBackfill {
+
+    private static final String MISSING_LINES =
+            "SELECT m.team_id, m.user_id, m.channel_id, m.text, m.ts FROM message_event m " +
+            "WHERE NOT EXISTS (SELECT 1 FROM order_line l " +
+            "                  WHERE l.team_id = m.team_id AND l.channel_id = m.channel_id " +
+            "                    AND l.message_ts = m.ts) " +
+            "AND NOT EXISTS (SELECT 1 FROM event_retention r " +
+            "                WHERE r.team_id = m.team_id AND m.ts_epoch < r.prune_before_epoch)";
+
+    static final String MARKER = "order_line_backfill";
+
+    private final DataSource ds;
+    private final JdbcEventWriteBuffer writeBuffer;
+    private final OrderParser orderParser;
+    private final boolean onStartup;
+    private final int fetchSize;
+
+    public OrderLineBackfill(
+            DataSource ds,
+            JdbcEventWriteBuffer writeBuffer,
+            OrderParser orderParser,
+            @Value("${slack.order-lines.backfill-on-startup:true}") boolean onStartup,
+            @Value("${slack.events.fetch-size:500}") int fetchSize
+    ) {
+        this.ds = ds;
+        this.writeBuffer = writeBuffer;
+        this.orderParser = orderParser;
+        this.onStartup = onStartup;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Runs the backfill off the startup thread once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!onStartup) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException ex) {
+                System.err.println("Order line backfill failed: " + ex.getMessage());
+            }
+        }, "order-line-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Parses every message that has no order line yet, unless a run already completed or
+     * another instance is running it.
+     * @return number of messages parsed
+     */
+    public int backfill() {
+        try (Connection c = ds.getConnection()) {
+            if (!AdvisoryLocks.tryLock(c, AdvisoryLocks.ORDER_LINE_BACKFILL)) {
+                return 0;
+            }
+            try {
+                if (isDone(c)) {
+                    return 0;
+                }
+                int messages = parseMissing(c);
+                writeBuffer.flush(); // throws if the lines were not written: no marker then
+                markDone(c);
+                return messages;
+            } finally {
+                AdvisoryLocks.unlock(c, AdvisoryLocks.ORDER_LINE_BACKFILL);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("backfill order lines failed", ex);
+        }
+    }
+
+    private int parseMissing(Connection c) throws SQLException {
+        int messages = 0;
+        int lines = 0;
+        c.setAutoCommit(false); // server-side cursor
+        try (PreparedStatement ps = c.prepareStatement(MISSING_LINES)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    MessageEvent m = new MessageEvent(
+                            rs.getString("team_id"),
+                            rs.getString("user_id"),
+                            rs.getString("channel_id"),
+                            rs.getString("text"),
+                            rs.getString("ts")
+                    );
+                    List<OrderLine> parsed = orderParser.parseLines(m, m.ts());
+                    writeBuffer.addOrderLines(parsed);
+                    messages++;
+                    lines += parsed.size();
+                }
+            }
+            c.commit();
+        } catch (SQLException | RuntimeException ex) {
+            c.rollback();
+            throw ex;
+        } finally {
+            c.setAutoCommit(true);
+        }
+        if (messages > 0) {
+            System.out.printf("Backfilled %d order lines from %d messages%n", lines, messages);
+        }
+        return messages;
+    }
+
+    private static boolean isDone(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM maintenance_marker WHERE name = ?")) {
+            ps.setString(1, MARKER);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void markDone(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO maintenance_marker(name) VALUES (?) ON CONFLICT (name) DO NOTHING")) {
+            ps.setString(1, MARKER);
+            ps.executeUpdate();
+        }
+    }
+}
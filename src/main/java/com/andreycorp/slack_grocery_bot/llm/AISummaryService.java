@@ -4,6 +4,7 @@ import com.andreycorp.slack_grocery_bot.Services.SlackMessageService;
 import com.andreycorp.slack_grocery_bot.Services.SummaryService;
 import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
 import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Value;
@@ -49,11 +50,35 @@ public class AISummaryService {
      * @throws Exception on any error during generation or messaging
      */
     public void postDeepseekSummary(List<MessageEvent> threadMsgs, String threadTs) throws Exception {
+        String deepseekResult = generateDeepseekSummary(threadMsgs);
+        if (deepseekResult == null) return;
+        slackMessageService.sendMessage(
+                orderChannel,
+                "*Deepseek Simple items Summary:*\n" + deepseekResult,
+                threadTs
+        );
+    }
+
+    /**
+     * Builds the Deepseek item list for an explicit tenant's thread, as a thread reply for the
+     * Slack outbox (no request scope needed).
+     * @return the post, or null if the thread has no items
+     */
+    public OutboxMessage deepseekSummaryMessageForTeam(
+            String teamId, String channel, String threadTs, List<MessageEvent> threadMsgs) throws Exception {
+        String deepseekResult = generateDeepseekSummary(threadMsgs);
+        if (deepseekResult == null) return null;
+        return new OutboxMessage(teamId, OutboxMessage.Kind.POST, channel, threadTs,
+                "*Deepseek Simple items Summary:*\n" + deepseekResult,
+                "close:" + teamId + ":" + threadTs + ":deepseek");
+    }
+
+    private String generateDeepseekSummary(List<MessageEvent> threadMsgs) throws Exception {
         List<String> rawOrders = threadMsgs.stream()
                 .flatMap(m -> orderParser.parseAll(m.text()).stream())
                 .map(po -> po.item)
                 .collect(Collectors.toList());
-        if (rawOrders.isEmpty()) return;
+        if (rawOrders.isEmpty()) return null;
 
         ObjectMapper mapper = new ObjectMapper();
         ObjectNode dsPayload = mapper.createObjectNode();
@@ -66,12 +91,7 @@ public class AISummaryService {
                 .append("```json\n").append(dsJson).append("\n```\n")
                 .append("### ANSWER:");
 
-        String deepseekResult = ollamaClientService.generate(dsPrompt.toString());
-        slackMessageService.sendMessage(
-                orderChannel,
-                "*Deepseek Simple items Summary:*\n" + deepseekResult,
-                threadTs
-        );
+        return ollamaClientService.generate(dsPrompt.toString());
     }
 
     /**
@@ -86,6 +106,27 @@ public class AISummaryService {
                 summaryService.processReactions(threadTs)
         );
 
+        String polished = polishWithChatGpt(rawSummary);
+        slackMessageService.sendMessage(
+                orderChannel,
+                "*ChatGPT Weekly Summary:*\n" + polished,
+                threadTs
+        );
+    }
+
+    /**
+     * Builds the ChatGPT weekly summary for an explicit tenant's thread, as a thread reply for
+     * the Slack outbox (no request scope needed).
+     */
+    public OutboxMessage chatGptSummaryMessageForTeam(
+            String teamId, String channel, String threadTs, String untilTs) throws Exception {
+        String polished = polishWithChatGpt(summaryService.threadSummaryTextForTeam(teamId, channel, threadTs, untilTs));
+        return new OutboxMessage(teamId, OutboxMessage.Kind.POST, channel, threadTs,
+                "*ChatGPT Weekly Summary:*\n" + polished,
+                "close:" + teamId + ":" + threadTs + ":chatgpt");
+    }
+
+    private String polishWithChatGpt(String rawSummary) throws Exception {
         String systemPrompt = """
             You are a helpful assistant that improves the tone and formatting of grocery summaries.
             Given an existing grocery summary, improve its tone and formatting
@@ -94,11 +135,6 @@ public class AISummaryService {
             Output only the polished summary text.
             """;
 
-        String polished = openAIClientService.generate(systemPrompt, rawSummary);
-        slackMessageService.sendMessage(
-                orderChannel,
-                "*ChatGPT Weekly Summary:*\n" + polished,
-                threadTs
-        );
+        return openAIClientService.generate(systemPrompt, rawSummary);
     }
 }
@@ -1,6 +1,7 @@
 package com.andreycorp.slack_grocery_bot.model;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for storing and retrieving events related to messages and reactions in Slack.
@@ -19,6 +20,12 @@ public interface EventStore {
      */
     void saveReaction(ReactionEvent event);
 
+    /**
+     * Synchronously persist any saved events that are still buffered.
+     * Reads flush implicitly; call this when other code must see the rows right away.
+     */
+    void flush();
+
     /**
      * Retrieve all message events recorded since (and including) the given timestamp.
      * @param fromTs Slack timestamp (string) to start from
@@ -34,8 +41,10 @@ public interface EventStore {
     List<ReactionEvent> fetchReactionsSince(String fromTs);
 
     /**
-     * Remove events older than a given cutoff to free memory.
-     * @param beforeTs Slack timestamp; all events strictly before this will be deleted
+     * Hide events older than a given cutoff by raising the retention watermark.
+     * Reads stop returning them at once; the rows themselves go away when the weekly
+     * partition holding them is dropped (see EventPartitionManager).
+     * @param beforeTs Slack timestamp; events strictly before this are no longer returned
      */
     void pruneEventsBefore(String beforeTs);
 
@@ -56,9 +65,60 @@ public interface EventStore {
     List<ReactionEvent> fetchReactionsForTeam(String teamId);
 
     /**
-     * Remove events older than a given cutoff for the specified workspace.
+     * Retrieve the message events of one channel within a timestamp range, for the given workspace.
+     * The predicates run in SQL, so the cost scales with the range rather than the tenant's history.
+     * @param teamId    Slack workspace ID
+     * @param channelId channel the messages were posted in
+     * @param fromTs    Slack timestamp, inclusive
+     * @param toTs      Slack timestamp, exclusive; null for no upper bound
+     * @return list of MessageEvent ordered by timestamp
+     */
+    List<MessageEvent> fetchMessagesInRangeForTeam(String teamId, String channelId, String fromTs, String toTs);
+
+    /**
+     * Retrieve the reaction events on messages of one channel within a timestamp range.
+     * @param teamId    Slack workspace ID
+     * @param channelId channel of the reacted-to messages
+     * @param fromTs    Slack timestamp, inclusive
+     * @param toTs      Slack timestamp, exclusive; null for no upper bound
+     * @return list of ReactionEvent ordered by timestamp
+     */
+    List<ReactionEvent> fetchReactionsInRangeForTeam(String teamId, String channelId, String fromTs, String toTs);
+
+    // --- Streaming variants ---
+    // Rows are read through a database cursor and handed to the visitor one at a time,
+    // so callers can aggregate without materializing the tenant's events in memory.
+
+    /**
+     * Visit every message event of the given workspace, in timestamp order.
+     * @param teamId  Slack workspace ID
+     * @param visitor called once per row
+     */
+    void forEachMessageForTeam(String teamId, Consumer<? super MessageEvent> visitor);
+
+    /**
+     * Visit every reaction event of the given workspace, in timestamp order.
+     * @param teamId  Slack workspace ID
+     * @param visitor called once per row
+     */
+    void forEachReactionForTeam(String teamId, Consumer<? super ReactionEvent> visitor);
+
+    /**
+     * Streaming variant of {@link #fetchMessagesInRangeForTeam}.
+     */
+    void forEachMessageInRangeForTeam(String teamId, String channelId, String fromTs, String toTs,
+                                      Consumer<? super MessageEvent> visitor);
+
+    /**
+     * Streaming variant of {@link #fetchReactionsInRangeForTeam}.
+     */
+    void forEachReactionInRangeForTeam(String teamId, String channelId, String fromTs, String toTs,
+                                       Consumer<? super ReactionEvent> visitor);
+
+    /**
+     * Raise the retention watermark for the specified workspace, as {@link #pruneEventsBefore}.
      * @param teamId Slack workspace ID
-     * @param beforeTs Slack timestamp; all events strictly before this will be deleted
+     * @param beforeTs Slack timestamp; events strictly before this are no longer returned
      */
     void pruneEventsBeforeForTeam(String teamId, String beforeTs);
 }
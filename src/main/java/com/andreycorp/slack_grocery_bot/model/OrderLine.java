@@ -0,0 +1,17 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+/** OrderLine carries one parsed order entry of a message.
+
+ * Written once at ingestion (and by the backfill) into the order_line table,
+ * so summaries aggregate pre-parsed rows instead of re-parsing message text.
+ */
+public record OrderLine(
+        String teamId, // Slack team ID of where the message was posted
+        String channel, // Channel ID where the message was posted
+        String threadTs, // Timestamp of the thread the message belongs to (its own ts if top-level)
+        String user, // Slack user ID who ordered
+        String item, // Normalized item name, as returned by OrderParser
+        double qty, // Ordered quantity, integer or fraction
+        String messageTs, // Timestamp of the message the line was parsed from
+        int lineNo // Position of the entry within the message, starting at 0
+) {}
@@ -0,0 +1,42 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Interface for storing pre-parsed order lines and reading per-user item totals.
+ */
+public interface OrderLineStore {
+
+    /**
+     * Persist the parsed lines of one message. Saving the same message twice is a no-op.
+     * @param lines the OrderLines to save
+     */
+    void saveLines(List<OrderLine> lines);
+
+    /**
+     * Per-user item totals over every order line of the given workspace,
+     * in the order users and items were first ordered.
+     * @param teamId Slack workspace ID
+     * @return list of OrderLineTotal
+     */
+    List<OrderLineTotal> totalsForTeam(String teamId);
+
+    /**
+     * Per-user item totals over the order lines of one channel within a timestamp range.
+     * @param teamId    Slack workspace ID
+     * @param channelId channel the messages were posted in
+     * @param fromTs    Slack timestamp, inclusive
+     * @param toTs      Slack timestamp, exclusive; null for no upper bound
+     * @return list of OrderLineTotal
+     */
+    List<OrderLineTotal> totalsInRangeForTeam(String teamId, String channelId, String fromTs, String toTs);
+
+    /**
+     * Streams every order line of the given workspace in message order, without holding
+     * them all in memory.
+     * @param teamId  Slack workspace ID
+     * @param visitor called once per OrderLine
+     */
+    void forEachLineForTeam(String teamId, Consumer<? super OrderLine> visitor);
+}
@@ -0,0 +1,12 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+/**
+ * Aggregated quantity of one item for one user, with the number of +1 reactions
+ * on the messages the item was ordered in.
+ */
+public record OrderLineTotal(
+        String user, // Slack user ID
+        String item, // Normalized item name
+        double qty, // Sum of the ordered quantities
+        long plusOnes // +1 reactions summed over the item's order lines
+) {}
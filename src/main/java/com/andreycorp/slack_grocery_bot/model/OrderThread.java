@@ -0,0 +1,12 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+/**
+ * A weekly order thread claimed for closing.
+ */
+public record OrderThread(
+        long id,
+        String teamId, // Slack team ID
+        String channel, // Channel the thread was posted in
+        String threadTs, // Timestamp of the thread's root message
+        String untilTs // Root timestamp of the workspace's next thread, where this one's orders end; null if none
+) {}
@@ -0,0 +1,71 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Interface for the durable open/close state of each workspace's weekly order thread.
+ * Claims are safe across instances: a scheduled open or close runs once however many fire it.
+ */
+public interface OrderThreadStore {
+
+    /**
+     * Claim the open scheduled for firedFor and queue its thread post, atomically.
+     * @param teamId   Slack workspace ID
+     * @param firedFor scheduled fire time of the open
+     * @param post     the OPEN_THREAD OutboxMessage
+     * @return false if this open was already claimed
+     */
+    boolean claimOpen(String teamId, Instant firedFor, OutboxMessage post);
+
+    /**
+     * Record the thread as posted.
+     * @param openKey   idempotency key of the OPEN_THREAD post
+     * @param channelId ID of the channel Slack posted it in (the events of its replies carry this ID)
+     * @param threadTs  timestamp of the posted root message
+     */
+    void markOpened(String openKey, String channelId, String threadTs);
+
+    /**
+     * Claim the workspace's oldest posted, unclosed thread for closing, for leaseSeconds.
+     * Older threads come first so each one that missed its close still gets its own summary.
+     * @return the thread, or null if there is nothing to close (or another instance is closing it)
+     */
+    OrderThread claimClose(String teamId, int leaseSeconds);
+
+    /**
+     * Claim the oldest thread in any workspace whose close was claimed but never completed
+     * (its lease ran out), for another leaseSeconds.
+     * @return the thread, or null if no close is stuck
+     */
+    OrderThread claimExpiredClose(int leaseSeconds);
+
+    /**
+     * Queue the summaries and mark the thread closed, atomically.
+     * Its events are pruned later, by compact.
+     * @param thread    the thread returned by claimClose
+     * @param summaries the OutboxMessages to queue
+     */
+    void completeClose(OrderThread thread, List<OutboxMessage> summaries);
+
+    /**
+     * Prune the workspace's events before the closed thread and mark it (and older closed threads) compacted.
+     * Does nothing while an older thread is still unclosed: its events are needed for its summary.
+     */
+    void compact(OrderThread thread);
+
+    /**
+     * Closed threads not compacted yet (e.g. the instance stopped right after closing them), oldest first.
+     */
+    List<OrderThread> pendingCompaction(int limit);
+
+    /**
+     * Timestamp of the workspace's latest posted, unclosed thread, or null if none.
+     */
+    String currentThreadTs(String teamId);
+
+    /**
+     * Timestamp of the oldest posted, unclosed thread in any workspace, or null if none.
+     */
+    String oldestOpenThreadTs();
+}
@@ -0,0 +1,24 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+/** OutboxMessage carries one outbound Slack post waiting in the slack_outbox table.
+
+ * Enqueued together with the state change that produced it and delivered asynchronously;
+ * the idempotency key makes enqueueing the same logical post twice a no-op.
+ */
+public record OutboxMessage(
+        String teamId, // Slack team ID to post as
+        Kind kind, // What to do with it
+        String channel, // Channel ID or #name
+        String threadTs, // POST: thread to reply in (null for top-level); PIN: ts of the message to pin
+        String text, // Message text; empty for PIN
+        String idempotencyKey // Unique per logical post
+) {
+    public enum Kind {
+        /** Post the weekly order thread, then pin it and announce it as the current thread. */
+        OPEN_THREAD,
+        /** Post a message, optionally as a thread reply. */
+        POST,
+        /** Pin an already posted message. */
+        PIN
+    }
+}
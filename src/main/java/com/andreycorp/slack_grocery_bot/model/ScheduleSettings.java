@@ -5,10 +5,13 @@ package com.andreycorp.slack_grocery_bot.model;
  * the weekly grocery order thread.
  *
  * Contains both the day of week (MON, TUE, ... SUN) and time (HH:mm) for
- * opening and closing the thread.
+ * opening and closing the thread, in the workspace's time zone.
  */
 public class ScheduleSettings {
 
+    /** Zone of workspaces that have not picked one (and of every schedule before zones were configurable) */
+    public static final String DEFAULT_TIMEZONE = "Asia/Jerusalem";
+
     /** Day code for when the order thread opens (MON, TUE, ..., SUN) */
     private String openDay;
     /** Time (HH:mm) for when the order thread opens */
@@ -19,14 +22,22 @@ public class ScheduleSettings {
     /** Time (HH:mm) for when the order thread closes */
     private String closeTime;
 
+    /** IANA time zone ID the days and times are in, e.g. "America/New_York" */
+    private String timezone = DEFAULT_TIMEZONE;
+
     public ScheduleSettings() {
     }
 
     public ScheduleSettings(String openDay, String openTime, String closeDay, String closeTime) {
+        this(openDay, openTime, closeDay, closeTime, DEFAULT_TIMEZONE);
+    }
+
+    public ScheduleSettings(String openDay, String openTime, String closeDay, String closeTime, String timezone) {
         this.openDay = openDay;
         this.openTime = openTime;
         this.closeDay = closeDay;
         this.closeTime = closeTime;
+        this.timezone = timezone;
     }
 
     public String getOpenDay() {
@@ -61,6 +72,14 @@ public class ScheduleSettings {
         this.closeTime = closeTime;
     }
 
+    public String getTimezone() {
+        return timezone;
+    }
+
+    public void setTimezone(String timezone) {
+        this.timezone = timezone;
+    }
+
     @Override
     public String toString() {
         return "ScheduleSettings{" +
@@ -68,6 +87,7 @@ public class ScheduleSettings {
                 ", openTime='" + openTime + '\'' +
                 ", closeDay='" + closeDay + '\'' +
                 ", closeTime='" + closeTime + '\'' +
+                ", timezone='" + timezone + '\'' +
                 '}';
     }
 }
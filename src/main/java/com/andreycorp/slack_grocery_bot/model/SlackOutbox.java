@@ -0,0 +1,15 @@
+package com.andreycorp.slack_grocery_bot.model;
+
+import java.util.List;
+
+/**
+ * Interface for queueing outbound Slack posts that must survive Slack failures and restarts.
+ */
+public interface SlackOutbox {
+
+    /**
+     * Queue messages for delivery. Messages whose idempotency key is already queued are skipped.
+     * @param messages the OutboxMessages to queue
+     */
+    void enqueue(List<OutboxMessage> messages);
+}
@@ -1,15 +1,16 @@
 package com.andreycorp.slack_grocery_bot.parsers;
 
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
 import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A component responsible for converting raw Slack order messages into
  * structured quantity–item pairs. Supports processing multiple orders in a single
- * message, separated by commas, semicolons, or period delimiters only when followed by a space+digit.
+ * message, separated by commas, semicolons, or period delimiters only when followed by a space+digit
+ * (a run of two or more periods, e.g. "....", may be followed by the digit directly).
  *
  * This parser handles various input formats including:
  * - Single items: "2 apples"
@@ -19,17 +20,20 @@ import java.util.regex.Pattern;
  * - Fractional quantities: "1.5 kg sugar"
  * - Items with special characters: "2 hähnchen, 3 crème fraîche"
  * - Multi-word items: "2 green apples"
+ *
+ * Parsing is a single hand-written pass over the text: no regex, no intermediate token strings.
+ * The only strings allocated are the final item names. Its results are identical to the former
+ * regex implementation (mention "^<@[^>]+>\s*", split on "\s*(?:[,;]|\.(?=\s+\d))\s*",
+ * entry "^\s*(\d+(?:\.\d+)?)\s*(.+)$"), including its backtracking corner cases,
+ * except for the period-run delimiter above; OrderParserFuzzTest checks this.
  */
 @Component
 public class OrderParser {
 
-    /**
-     * Regex pattern matching optional leading whitespace, a quantity (integer or decimal),
-     * optional whitespace, then the item name.
-     * Group 1 captures the quantity digits (possibly with decimal), Group 2 captures the item text.
-     */
-    private static final Pattern ENTRY_PATTERN =
-            Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*(.+)$");
+    // 10^0 .. 10^15, exact as doubles
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
 
     /**
      * Processes a raw message string (which include a bot mention and multiple
@@ -40,38 +44,196 @@ public class OrderParser {
      * @return a list of ParsedOrder objects, one per detected order entry
      */
     public List<ParsedOrder> parseAll(String rawText) {
-        // Strip bot mention and trim whitespace
-        String text = rawText.trim().replaceAll("^<@[^>]+>\\s*", "");
-        // Split on commas, semicolons, or periods when followed by space+digit
-        String[] tokens = text.split("\\s*(?:[,;]|\\.(?=\\s+\\d))\\s*");
+        return parseAll((CharSequence) rawText);
+    }
+
+    /**
+     * Same as {@link #parseAll(String)} over any CharSequence.
+     */
+    public List<ParsedOrder> parseAll(CharSequence text) {
+        // Trim (String.trim semantics) and strip a leading bot mention
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        start = skipMention(text, start, end);
+
         List<ParsedOrder> orders = new ArrayList<>();
-        for (String token : tokens) {
-            if (token.isBlank()) {
-                continue;
+        int tokenStart = start;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == ',' || c == ';') {
+                addEntry(text, tokenStart, i, orders);
+                tokenStart = ++i;
+            } else if (c == '.') {
+                // a period run is a delimiter when a quantity follows:
+                // one period needs whitespace before the digit, a longer run does not
+                int runEnd = i;
+                while (runEnd < end && text.charAt(runEnd) == '.') runEnd++;
+                int next = runEnd;
+                while (next < end && isRegexSpace(text.charAt(next))) next++;
+                boolean quantityFollows = next < end && isDigit(text.charAt(next));
+                if (quantityFollows && (runEnd - i >= 2 || next > runEnd)) {
+                    addEntry(text, tokenStart, i, orders);
+                    tokenStart = runEnd;
+                }
+                i = runEnd;
+            } else {
+                i++;
             }
-            orders.add(parseEntry(token));
         }
+        addEntry(text, tokenStart, end, orders);
         return orders;
     }
 
     /**
-     * Parses a single token into a ParsedOrder. If the token matches ENTRY_PATTERN,
-     * the extracted quantity and item are used; otherwise defaults to qty=1.
-     *
-     * @param entry a string representing one order, e.g. "2 apples" or "banana"
-     * @return a ParsedOrder containing the quantity and item name
+     * Returns the index after a leading "<@...>" mention and the whitespace following it,
+     * or start if the text does not begin with a mention.
+     */
+    private static int skipMention(CharSequence text, int start, int end) {
+        if (end - start < 4 || text.charAt(start) != '<' || text.charAt(start + 1) != '@'
+                || text.charAt(start + 2) == '>') {
+            return start;
+        }
+        for (int i = start + 3; i < end; i++) {
+            if (text.charAt(i) == '>') {
+                int j = i + 1;
+                while (j < end && isRegexSpace(text.charAt(j))) j++;
+                return j;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Parses the entry text[start, end) and appends it, unless it is blank.
+     * If the entry starts with a quantity, the quantity and item are used; otherwise defaults to qty=1.
      */
-    private ParsedOrder parseEntry(String entry) {
-        String trimmed = entry.trim().toLowerCase();
-        Matcher matcher = ENTRY_PATTERN.matcher(trimmed);
-        if (matcher.matches()) {
-            double qty = Double.parseDouble(matcher.group(1));
-            String item = matcher.group(2).trim();
-            return new ParsedOrder(qty, item);
+    private static void addEntry(CharSequence text, int start, int end, List<ParsedOrder> orders) {
+        if (isBlank(text, start, end)) {
+            return;
+        }
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        // quantity: digits, optionally "." and more digits
+        int intEnd = start;
+        while (intEnd < end && isDigit(text.charAt(intEnd))) intEnd++;
+        if (intEnd == start) {
+            orders.add(new ParsedOrder(1.0, item(text, start, end)));
+            return;
+        }
+        int qtyEnd = intEnd;
+        if (intEnd + 1 < end && text.charAt(intEnd) == '.' && isDigit(text.charAt(intEnd + 1))) {
+            qtyEnd = intEnd + 1;
+            while (qtyEnd < end && isDigit(text.charAt(qtyEnd))) qtyEnd++;
+        }
+        int itemStart = qtyEnd;
+        while (itemStart < end && isRegexSpace(text.charAt(itemStart))) itemStart++;
+
+        if (itemStart < end) {
+            // the item must fit on one line (regex '.' stops at line terminators)
+            if (hasLineTerminator(text, itemStart, end)) {
+                orders.add(new ParsedOrder(1.0, item(text, start, end)));
+            } else {
+                orders.add(new ParsedOrder(parseQty(text, start, qtyEnd), item(text, itemStart, end)));
+            }
+            return;
+        }
+
+        // The whole entry is a number: the item needs at least one character, so it is taken
+        // from the end of the quantity, as regex backtracking did ("12" -> 1× "2", "2.5" -> 2× ".5").
+        if (qtyEnd > intEnd) {
+            int fractionDigits = qtyEnd - intEnd - 1;
+            int split = fractionDigits >= 2 ? end - 1 : intEnd;
+            orders.add(new ParsedOrder(parseQty(text, start, split), item(text, split, end)));
+        } else if (intEnd - start >= 2) {
+            orders.add(new ParsedOrder(parseQty(text, start, end - 1), item(text, end - 1, end)));
         } else {
-            // Default to qty = 1
-            return new ParsedOrder(1.0, trimmed);
+            orders.add(new ParsedOrder(1.0, item(text, start, end)));
+        }
+    }
+
+    /**
+     * Normalized item name: trimmed and lower-cased. The only string allocated per entry.
+     */
+    private static String item(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') start++;
+        return text.subSequence(start, end).toString().toLowerCase();
+    }
+
+    /**
+     * Parses digits with an optional '.' fraction. Up to 15 digits the value is an exact long
+     * divided by an exact power of ten, which rounds exactly like Double.parseDouble.
+     */
+    private static double parseQty(CharSequence text, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (fraction) fractionDigits++;
+        }
+        if (digits > 15) {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+        return mantissa / POW10[fractionDigits];
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** Regex \s: [ \t\n\x0B\f\r]. */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Characters the regex '.' does not match. */
+    private static boolean hasLineTerminator(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** String.isBlank semantics. */
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a stored message into the order_line rows persisted at ingestion.
+     *
+     * @param message  the message event to parse
+     * @param threadTs timestamp of the thread the message was posted in (its own ts if top-level)
+     * @return one OrderLine per detected order entry, numbered from 0 in message order
+     */
+    public List<OrderLine> parseLines(MessageEvent message, String threadTs) {
+        List<ParsedOrder> parsed = parseAll(message.text());
+        List<OrderLine> lines = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            ParsedOrder po = parsed.get(i);
+            lines.add(new OrderLine(message.teamId(), message.channel(), threadTs,
+                    message.user(), po.item, po.qty, message.ts(), i));
         }
+        return lines;
     }
 
     /**
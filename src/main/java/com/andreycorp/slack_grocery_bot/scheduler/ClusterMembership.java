@@ -0,0 +1,134 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSchedulerNodeStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which scheduler instance owns which tenant.
+ *
+ * Every instance heartbeats into the scheduler_node table; the instances seen within
+ * node-timeout-seconds form a HashRing, and each one registers the weekly jobs of its own
+ * tenants only (ScheduleSettingsService). When an instance joins, leaves or stops
+ * heartbeating, the next refresh on every instance yields the new ring and they rebalance.
+ *
+ * The heartbeat runs on its own thread, so slow maintenance or reconcile work elsewhere cannot
+ * delay it past node-timeout-seconds and make the other instances take this one's tenants.
+ *
+ * If the database cannot be reached the last known ring is kept.
+ *
+ * Metrics: slack.scheduler.cluster.nodes, slack.scheduler.cluster.rebalances.
+ */
+@Component
+public class ClusterMembership {
+
+    private final JdbcSchedulerNodeStore store;
+    private final String nodeId;
+    private final int virtualNodes;
+    private final int nodeTimeoutSeconds;
+    private final long heartbeatSeconds;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            r -> new Thread(r, "cluster-heartbeat"));
+    private final Counter rebalances;
+    private volatile HashRing ring;
+
+    public ClusterMembership(
+            JdbcSchedulerNodeStore store,
+            MeterRegistry meterRegistry,
+            @Value("${slack.scheduler.cluster.node-id:}") String nodeId,
+            @Value("${slack.scheduler.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${slack.scheduler.cluster.node-timeout-seconds:30}") int nodeTimeoutSeconds,
+            @Value("${slack.scheduler.cluster.heartbeat-seconds:10}") long heartbeatSeconds
+    ) {
+        this.store = store;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.virtualNodes = virtualNodes;
+        this.nodeTimeoutSeconds = nodeTimeoutSeconds;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.ring = new HashRing(List.of(this.nodeId), virtualNodes); // alone until the first refresh
+        this.rebalances = meterRegistry.counter("slack.scheduler.cluster.rebalances");
+        Gauge.builder("slack.scheduler.cluster.nodes", this, m -> m.ring.nodes().size())
+                .description("Live scheduler instances sharing the tenants")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Heartbeats and reloads the live nodes.
+     * @return true if the ring changed, i.e. tenants must be rebalanced
+     */
+    public synchronized boolean refresh() {
+        try {
+            store.heartbeat(nodeId);
+            store.purgeSilent(nodeTimeoutSeconds * 10);
+            List<String> live = new ArrayList<>(store.liveNodes(nodeTimeoutSeconds));
+            if (!live.contains(nodeId)) {
+                live.add(nodeId);
+            }
+            if (live.stream().sorted().toList().equals(ring.nodes())) {
+                return false;
+            }
+            ring = new HashRing(live, virtualNodes);
+            rebalances.increment();
+            System.out.printf("Scheduler node %s: cluster is now %s%n", nodeId, ring.nodes());
+            return true;
+        } catch (RuntimeException ex) {
+            System.err.println("Scheduler heartbeat failed, keeping the current ring: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Refreshes every heartbeat-seconds on the heartbeat thread.
+     * @param onRebalance called on that thread when the ring changed; hand heavy work off
+     */
+    public void startHeartbeat(Runnable onRebalance) {
+        heartbeat.scheduleWithFixedDelay(() -> {
+            if (refresh()) {
+                onRebalance.run();
+            }
+        }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Whether this instance schedules the tenant's jobs.
+     */
+    public boolean owns(String teamId) {
+        return nodeId.equals(ring.ownerOf(teamId));
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @PreDestroy
+    public void leave() {
+        heartbeat.shutdownNow();
+        try {
+            store.remove(nodeId);
+        } catch (RuntimeException ex) {
+            System.err.println("Failed to leave the scheduler cluster: " + ex.getMessage());
+        }
+    }
+
+    /** The host name, so a restarted instance takes its own tenants back. */
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent-hash ring of scheduler nodes.
+ *
+ * Each node is placed at virtualNodes points; a tenant belongs to the first point at or after
+ * its own hash. Adding or removing a node moves only about 1/n of the tenants, and every
+ * instance computes the same owner from the same node list.
+ */
+public final class HashRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final List<String> nodes;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = nodes.stream().sorted().distinct().toList();
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Node that owns the key, or null if the ring is empty.
+     */
+    public String ownerOf(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> e = points.ceilingEntry(hash(key));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+
+    /**
+     * Member nodes, sorted.
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /** First 8 bytes of MD5: stable across JVMs and evenly spread, unlike String.hashCode. */
+    private static long hash(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (d[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM ships MD5
+        }
+    }
+}
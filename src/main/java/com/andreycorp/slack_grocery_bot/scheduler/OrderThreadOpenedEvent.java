@@ -0,0 +1,11 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+/**
+ * Published once the weekly order thread of a workspace has been posted to Slack.
+ */
+public record OrderThreadOpenedEvent(
+        String teamId, // Slack team ID
+        String channel, // ID of the channel the thread was posted in
+        String threadTs, // Timestamp of the thread's root message
+        String openKey // Idempotency key of the OPEN_THREAD post
+) {}
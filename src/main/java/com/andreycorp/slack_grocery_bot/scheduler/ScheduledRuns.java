@@ -0,0 +1,162 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcScheduleRunStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the weekly open/close jobs and records each completed run in schedule_run, so runs
+ * missed while no instance was scheduling a tenant (downtime, a node dying before another
+ * took over) can be caught up.
+ *
+ * catchUp compares each tenant's recorded runs with its jobs' latest due fire times (one query
+ * for all tenants, then O(1) per tenant) and runs what was missed:
+ *   - a missed close always runs (it closes whatever thread is still open);
+ *   - a missed open runs only if it is due after the latest close, i.e. the thread should be open now.
+ * Tenants with missed runs are started at most catch-up.per-second; a tenant's close runs before its open. Opens and closes are claimed in
+ * order_thread, so running one twice is harmless. A tenant with no recorded runs yet (new install,
+ * first deploy) is only baselined.
+ *
+ * Metrics: slack.scheduler.catch-up{job}.
+ */
+@Component
+public class ScheduledRuns {
+
+    public static final String OPEN = "open";
+    public static final String CLOSE = "close";
+
+    // jobs are weekly; a fire older than this is not looked for
+    private static final Duration LOOKBACK = Duration.ofDays(8);
+
+    private final WeeklyOrderScheduler weeklyOrderScheduler;
+    private final TenantScheduler tenantScheduler;
+    private final JdbcScheduleRunStore runStore;
+    private final MeterRegistry meterRegistry;
+    private final int perSecond;
+    private final ExecutorService runner = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ScheduledRuns(
+            WeeklyOrderScheduler weeklyOrderScheduler,
+            TenantScheduler tenantScheduler,
+            JdbcScheduleRunStore runStore,
+            MeterRegistry meterRegistry,
+            @Value("${slack.scheduler.catch-up.per-second:5}") int perSecond
+    ) {
+        this.weeklyOrderScheduler = weeklyOrderScheduler;
+        this.tenantScheduler = tenantScheduler;
+        this.runStore = runStore;
+        this.meterRegistry = meterRegistry;
+        this.perSecond = Math.max(1, perSecond);
+    }
+
+    /**
+     * TenantScheduler key of the tenant's open or close job.
+     */
+    public static String jobKey(String job, String teamId) {
+        return job + ":" + teamId;
+    }
+
+    /**
+     * Opens the tenant's thread scheduled for firedFor and records the run.
+     */
+    public void open(String teamId, Instant firedFor) throws Exception {
+        weeklyOrderScheduler.openOrderThreadFor(teamId, firedFor);
+        runStore.recordRun(teamId, OPEN, firedFor);
+    }
+
+    /**
+     * Closes the tenant's thread for the close scheduled at firedFor and records the run.
+     */
+    public void close(String teamId, Instant firedFor) throws Exception {
+        weeklyOrderScheduler.closeOrderThreadFor(teamId);
+        runStore.recordRun(teamId, CLOSE, firedFor);
+    }
+
+    /**
+     * Runs the missed opens/closes of the given tenants, whose jobs must already be scheduled on
+     * this instance. Returns once the missed runs are queued; they start at the configured rate.
+     */
+    public void catchUp(Collection<String> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Map<String, Instant> lastRuns = runStore.findAllLastRuns();
+        List<List<MissedRun>> missed = new ArrayList<>(); // per tenant, in run order
+        int count = 0;
+        for (String teamId : teamIds) {
+            Instant dueOpen = tenantScheduler.lastFireAtOrBefore(jobKey(OPEN, teamId), now, LOOKBACK);
+            Instant dueClose = tenantScheduler.lastFireAtOrBefore(jobKey(CLOSE, teamId), now, LOOKBACK);
+            Instant ranOpen = lastRuns.get(JdbcScheduleRunStore.runKey(teamId, OPEN));
+            Instant ranClose = lastRuns.get(JdbcScheduleRunStore.runKey(teamId, CLOSE));
+
+            if (ranOpen == null && ranClose == null) {
+                baseline(teamId, dueOpen, dueClose);
+                continue;
+            }
+            List<MissedRun> runs = new ArrayList<>(2);
+            if (dueClose != null && (ranClose == null || ranClose.isBefore(dueClose))) {
+                runs.add(new MissedRun(teamId, CLOSE, dueClose));
+            }
+            if (dueOpen != null && (ranOpen == null || ranOpen.isBefore(dueOpen))
+                    && (dueClose == null || dueOpen.isAfter(dueClose))) {
+                runs.add(new MissedRun(teamId, OPEN, dueOpen)); // after the close of the previous thread
+            }
+            if (!runs.isEmpty()) {
+                missed.add(runs);
+                count += runs.size();
+            }
+        }
+        if (!missed.isEmpty()) {
+            System.out.printf("Catching up %d missed scheduled runs of %d tenants%n", count, missed.size());
+            runner.execute(() -> runPaced(missed));
+        }
+    }
+
+    private void baseline(String teamId, Instant dueOpen, Instant dueClose) {
+        if (dueOpen != null) runStore.recordRun(teamId, OPEN, dueOpen);
+        if (dueClose != null) runStore.recordRun(teamId, CLOSE, dueClose);
+    }
+
+    private void runPaced(List<List<MissedRun>> missed) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+        for (List<MissedRun> runs : missed) {
+            runner.execute(() -> runs.forEach(this::runQuietly));
+            try {
+                TimeUnit.NANOSECONDS.sleep(intervalNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runQuietly(MissedRun run) {
+        meterRegistry.counter("slack.scheduler.catch-up", "job", run.job()).increment();
+        try {
+            if (run.job().equals(OPEN)) open(run.teamId(), run.firedFor());
+            else close(run.teamId(), run.firedFor());
+        } catch (Exception e) {
+            System.err.println("Catch-up " + run.job() + " for team " + run.teamId() + " failed: " + e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private record MissedRun(String teamId, String job, Instant firedFor) {}
+}
@@ -0,0 +1,83 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spreads the weekly open/close runs of tenants that share a fire time over a window,
+ * so they do not all hit Slack and the database in the same second.
+ *
+ * Each job gets a deterministic offset in [0, window) from a hash of team ID and job kind:
+ * the same tenant fires at the same moment after every restart and on every instance.
+ * By default only tenants on the default schedule are spread; an admin who picked a time
+ * gets exactly that time.
+ *
+ * Metrics: slack.scheduler.offset (seconds, one sample per scheduled job); spread() summarizes
+ * the current offsets for the startup log.
+ */
+@Component
+public class SpreadPolicy {
+
+    private final long windowSeconds;
+    private final boolean defaultsOnly;
+    private final DistributionSummary offsets;
+    private final Map<String, Long> current = new ConcurrentHashMap<>();
+
+    public SpreadPolicy(
+            MeterRegistry meterRegistry,
+            @Value("${slack.scheduler.spread.window-seconds:300}") long windowSeconds,
+            @Value("${slack.scheduler.spread.defaults-only:true}") boolean defaultsOnly
+    ) {
+        this.windowSeconds = windowSeconds;
+        this.defaultsOnly = defaultsOnly;
+        this.offsets = DistributionSummary.builder("slack.scheduler.offset")
+                .description("Offset of tenant jobs from their nominal fire time")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Offset to add to the job's nominal fire time.
+     * @param jobKey          job key, e.g. "open:T123"
+     * @param defaultSchedule true if the tenant has not chosen its own schedule
+     */
+    public Duration offsetFor(String jobKey, boolean defaultSchedule) {
+        long seconds = windowSeconds <= 0 || (defaultsOnly && !defaultSchedule)
+                ? 0
+                : Math.floorMod(mix(jobKey.hashCode()), windowSeconds);
+        offsets.record(seconds);
+        current.put(jobKey, seconds);
+        return Duration.ofSeconds(seconds);
+    }
+
+    /**
+     * Drops a cancelled job from spread().
+     */
+    public void forget(String jobKey) {
+        current.remove(jobKey);
+    }
+
+    /**
+     * One-line summary of the current offsets, e.g. "120 jobs spread over 4 s..296 s".
+     */
+    public String spread() {
+        var stats = current.values().stream().mapToLong(Long::longValue).summaryStatistics();
+        return stats.getCount() == 0
+                ? "no jobs"
+                : String.format("%d jobs spread over %d s..%d s (mean %.0f s)",
+                        stats.getCount(), stats.getMin(), stats.getMax(), stats.getAverage());
+    }
+
+    /** String.hashCode of similar keys ("open:T1", "open:T2") is clustered; scramble it. */
+    private static long mix(int h) {
+        long z = h * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 32)) * 0xD6E8FEB86659FD93L;
+        return z ^ (z >>> 32);
+    }
+}
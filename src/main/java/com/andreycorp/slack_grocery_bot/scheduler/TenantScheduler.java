@@ -0,0 +1,247 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the per-tenant weekly jobs (thread open/close) from one shared min-heap of
+ * next-fire times instead of one scheduled future per job.
+ *
+ * Each job's next fire is resolved to an epoch millisecond once, when it is pushed (WeeklySchedule,
+ * in the tenant's own time zone), so the timer only ever compares longs.
+ *
+ * A single timer thread sleeps until the earliest fire, pops every due job and hands it to a
+ * bounded elastic executor (threads are started on demand up to max-workers and retire when
+ * idle), so hundreds of tenants opening at MON 09:00 run in parallel instead of queuing behind
+ * a two-thread pool. The next fire is computed after a job is handed off.
+ *
+ * schedule/cancel are O(log n): a rescheduled job is pushed again and its old heap slot is
+ * skipped when it surfaces (lazy deletion).
+ *
+ * Metrics: slack.scheduler.jobs, slack.scheduler.lag (due → started), slack.scheduler.running.
+ */
+@Component
+public class TenantScheduler {
+
+    private final PriorityQueue<Slot> heap = new PriorityQueue<>();
+    private final Map<String, Fire> current = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicLong seq = new AtomicLong();
+    private final ThreadPoolExecutor workers;
+    private final Thread timer;
+    private final Timer lag;
+
+    public TenantScheduler(
+            MeterRegistry meterRegistry,
+            @Value("${slack.scheduler.max-workers:16}") int maxWorkers
+    ) {
+        AtomicInteger threadSeq = new AtomicInteger();
+        // core == max with core timeout: grows one thread per concurrent job up to maxWorkers,
+        // shrinks back to zero when idle; beyond that, jobs wait in the queue
+        this.workers = new ThreadPoolExecutor(
+                maxWorkers, maxWorkers,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "tenant-scheduler-" + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+        workers.allowCoreThreadTimeOut(true);
+
+        this.lag = Timer.builder("slack.scheduler.lag")
+                .description("Delay between a job's fire time and the start of its run")
+                .register(meterRegistry);
+        Gauge.builder("slack.scheduler.jobs", current, Map::size)
+                .description("Scheduled tenant jobs")
+                .register(meterRegistry);
+        Gauge.builder("slack.scheduler.running", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Tenant jobs currently running")
+                .register(meterRegistry);
+
+        this.timer = new Thread(this::timerLoop, "tenant-scheduler-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    /**
+     * A job run; firedFor is the scheduled fire time (the same on every instance), not the start time.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run(Instant firedFor);
+    }
+
+    /**
+     * Schedules (or reschedules) the job under key.
+     */
+    public void schedule(String key, WeeklySchedule schedule, Task task) {
+        schedule(key, schedule, Duration.ZERO, task);
+    }
+
+    /**
+     * Same, with every fire shifted by a fixed offset after the scheduled time (see SpreadPolicy).
+     */
+    public void schedule(String key, WeeklySchedule schedule, Duration offset, Task task) {
+        Fire fire = new Fire(key, schedule, offset, task);
+        Fire previous = current.put(key, fire);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        push(fire, fire.nextAfter(Instant.now()));
+    }
+
+    /**
+     * Cancels the job under key, if any. A run already handed to a worker is not interrupted.
+     */
+    public void cancel(String key) {
+        Fire previous = current.remove(key);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+    }
+
+    /**
+     * The job's next fire time, as precomputed when it was last pushed; null if not scheduled.
+     */
+    public Instant nextFire(String key) {
+        Fire fire = current.get(key);
+        return fire == null || fire.nextDueAt == 0 ? null : Instant.ofEpochMilli(fire.nextDueAt);
+    }
+
+    /**
+     * Latest fire time of the job at or before the given instant, looking back up to lookback;
+     * null if the job is not scheduled or did not fire in that span.
+     */
+    public Instant lastFireAtOrBefore(String key, Instant at, Duration lookback) {
+        Fire fire = current.get(key);
+        if (fire == null) {
+            return null;
+        }
+        Instant last = null;
+        Instant next = fire.nextAfter(at.minus(lookback));
+        while (!next.isAfter(at)) {
+            last = next;
+            next = fire.nextAfter(next);
+        }
+        return last;
+    }
+
+    private void push(Fire fire, Instant at) {
+        lock.lock();
+        try {
+            Slot slot = new Slot(at.toEpochMilli(), seq.incrementAndGet(), fire);
+            fire.slotSeq = slot.seq();
+            fire.nextDueAt = slot.dueAt();
+            heap.add(slot);
+            changed.signal(); // the new fire may be earlier than the one being waited for
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void timerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Slot due;
+            lock.lock();
+            try {
+                Slot head = heap.peek();
+                long waitMs = head == null ? Long.MAX_VALUE : head.dueAt() - System.currentTimeMillis();
+                if (waitMs > 0) {
+                    if (head == null) changed.await();
+                    else changed.await(waitMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                due = heap.poll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            Fire live = due.fire();
+            if (live.cancelled || live.slotSeq != due.seq()) {
+                continue; // cancelled or rescheduled since this slot was pushed
+            }
+            long dueAt = due.dueAt();
+            try {
+                workers.execute(() -> run(live, dueAt));
+            } catch (RejectedExecutionException e) {
+                return; // shutting down
+            }
+            // the following fire is computed from the slot just taken, not from "now",
+            // so a late timer thread never skips a fire
+            push(live, live.nextAfter(Instant.ofEpochMilli(dueAt)));
+        }
+    }
+
+    private void run(Fire fire, long dueAt) {
+        lag.record(System.currentTimeMillis() - dueAt, TimeUnit.MILLISECONDS);
+        try {
+            fire.task.run(Instant.ofEpochMilli(dueAt));
+        } catch (RuntimeException e) {
+            System.err.println("Scheduled job " + fire.key + " failed: " + e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.interrupt();
+        workers.shutdown();
+    }
+
+    /**
+     * One scheduled job; slotSeq identifies its latest slot in the heap, nextDueAt is that slot's time.
+     */
+    private static final class Fire {
+        final String key;
+        final WeeklySchedule schedule;
+        final Duration offset;
+        final Task task;
+        volatile boolean cancelled;
+        volatile long slotSeq;
+        volatile long nextDueAt;
+
+        Fire(String key, WeeklySchedule schedule, Duration offset, Task task) {
+            this.key = key;
+            this.schedule = schedule;
+            this.offset = offset;
+            this.task = task;
+        }
+
+        /** First scheduled time + offset strictly after the given instant. */
+        Instant nextAfter(Instant after) {
+            return schedule.nextAfter(after.minus(offset)).plus(offset);
+        }
+    }
+
+    /**
+     * A heap entry: when the job is due next. Ties fire in scheduling order.
+     */
+    private record Slot(long dueAt, long seq, Fire fire) implements Comparable<Slot> {
+        @Override
+        public int compareTo(Slot o) {
+            int c = Long.compare(dueAt, o.dueAt);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
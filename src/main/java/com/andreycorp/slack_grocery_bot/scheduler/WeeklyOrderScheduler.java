@@ -1,98 +1,317 @@
 package com.andreycorp.slack_grocery_bot.scheduler;
 
-import com.andreycorp.slack_grocery_bot.Services.SlackMessageService;
+import com.andreycorp.slack_grocery_bot.Services.LiveSummaryRegistry;
+import com.andreycorp.slack_grocery_bot.Services.StageRunner;
 import com.andreycorp.slack_grocery_bot.Services.SummaryService;
 import com.andreycorp.slack_grocery_bot.model.EventStore;
 import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderThread;
+import com.andreycorp.slack_grocery_bot.model.OrderThreadStore;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
 import com.andreycorp.slack_grocery_bot.llm.AISummaryService;
-import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Opens and closes the weekly order thread of each workspace.
+ *
+ * Neither step talks to Slack directly: the posts go to the Slack outbox (SlackOutboxDelivery
+ * sends them with retries), so a Slack outage cannot lose a summary or tie up the scheduler
+ * threads. The thread becomes current once its post is delivered (OrderThreadOpenedEvent).
+ *
+ * Thread state lives in the order_thread table (OrderThreadStore), so a restart between open
+ * and close loses nothing, and when several instances fire the same schedule only one of them
+ * opens or closes the thread.
+ *
+ * A close is a staged pipeline: fetch the thread's messages, then build the summary and the
+ * optional AI summaries (slack.close.ai-summaries) concurrently, then queue them and mark the
+ * thread closed in one transaction. Pruning the thread's events (compaction) runs afterwards in
+ * the background; closed threads a stopped instance did not compact are swept up periodically.
+ * A close that failed or whose instance stopped is retried by a sweep once its lease runs out.
+ * At most max-concurrent-closes pipelines run at once; the rest wait for a permit.
+ *
+ * Metrics: slack.close.stage{stage=fetch|summary|ai_deepseek|ai_chatgpt|commit|compact}, slack.scheduler.closes.active,
+ * slack.scheduler.closes.wait.
+ */
 @Component
 public class WeeklyOrderScheduler {
 
-    private final SlackMessageService slackMessageService;
+    private final OrderThreadStore    threads;
     private final EventStore          eventStore;
     private final SummaryService      summaryService;
     private final AISummaryService    aiSummaryService; // optional
+    private final LiveSummaryRegistry liveSummaries;
     private final String              orderChannel;
     private final String              adminChannel;
-
-    // Keep track of the current thread timestamp per workspace
-    private final Map<String,String> currentThreadTs = new ConcurrentHashMap<>();
+    private final Semaphore           closePermits;
+    private final Timer               closeWait;
+    private final int                 closeLeaseSeconds;
+    private final Set<String>         aiSummaries;
+    private final long                aiTimeoutSeconds;
+    private final StageRunner         stages;
 
     public WeeklyOrderScheduler(
-            SlackMessageService slackMessageService,
+            OrderThreadStore threads,
             EventStore eventStore,
             SummaryService summaryService,
             AISummaryService aiSummaryService,
+            LiveSummaryRegistry liveSummaries,
             @Value("${slack.order.channel}") String orderChannel, // #office-grocery same for all tenants
-            @Value("${slack.admin.channel:}") String adminChannel //  not in production.
+            @Value("${slack.admin.channel:}") String adminChannel, //  not in production.
+            @Value("${slack.scheduler.max-concurrent-closes:4}") int maxConcurrentCloses,
+            @Value("${slack.scheduler.close-lease-seconds:600}") int closeLeaseSeconds,
+            @Value("${slack.close.ai-summaries:}") Set<String> aiSummaries,
+            @Value("${slack.close.ai-timeout-seconds:60}") long aiTimeoutSeconds,
+            @Value("${slack.close.compaction-sweep-minutes:10}") long compactionSweepMinutes,
+            @Value("${slack.close.stuck-sweep-minutes:5}") long stuckCloseSweepMinutes,
+            TaskScheduler maintenanceScheduler,
+            MeterRegistry meterRegistry
     ) {
-        this.slackMessageService = slackMessageService;
+        this.threads             = threads;
         this.eventStore          = eventStore;
         this.summaryService      = summaryService;
         this.aiSummaryService    = aiSummaryService;
+        this.liveSummaries       = liveSummaries;
         this.orderChannel        = orderChannel;
         this.adminChannel        = adminChannel;
+        this.closePermits        = new Semaphore(maxConcurrentCloses, true);
+        this.closeLeaseSeconds   = closeLeaseSeconds;
+        this.aiSummaries         = aiSummaries;
+        this.aiTimeoutSeconds    = aiTimeoutSeconds;
+        this.stages              = new StageRunner(meterRegistry, "slack.close.stage");
+        this.closeWait = Timer.builder("slack.scheduler.closes.wait")
+                .description("Time a close waited for a free close pipeline")
+                .register(meterRegistry);
+        Gauge.builder("slack.scheduler.closes.active", closePermits,
+                        p -> maxConcurrentCloses - p.availablePermits())
+                .description("Close pipelines currently running")
+                .register(meterRegistry);
+        maintenanceScheduler.scheduleWithFixedDelay(this::sweepCompactions,
+                Instant.now().plus(Duration.ofMinutes(1)), Duration.ofMinutes(compactionSweepMinutes));
+        maintenanceScheduler.scheduleWithFixedDelay(this::sweepStuckCloses,
+                Instant.now().plus(Duration.ofMinutes(1)), Duration.ofMinutes(stuckCloseSweepMinutes));
     }
 
     /**
-     * Opens a new order thread for the given workspace (teamId).
+     * Opens a new order thread for the given workspace (teamId) now, e.g. from the test endpoint.
      */
     public void openOrderThreadFor(String teamId) throws Exception {
-        ChatPostMessageResponse resp =
-                slackMessageService.sendMessageForTeam(teamId, orderChannel, NEW_THREAD_MSG);
-        if (resp.isOk()) {
-            String ts = resp.getTs();
-            currentThreadTs.put(teamId, ts);
-            slackMessageService.pinMessageForTeam(teamId, orderChannel, ts);
-        } else {
-            System.err.println("Failed to open thread for " + teamId + ": " + resp.getError());
+        openOrderThreadFor(teamId, Instant.now().truncatedTo(ChronoUnit.MINUTES));
+    }
+
+    /**
+     * Opens the order thread scheduled for firedFor: claims it and queues the thread post.
+     * Another fire of the same schedule (e.g. from another instance) finds it claimed and does nothing.
+     */
+    public void openOrderThreadFor(String teamId, Instant firedFor) throws Exception {
+        OutboxMessage post = new OutboxMessage(teamId, OutboxMessage.Kind.OPEN_THREAD, orderChannel,
+                null, NEW_THREAD_MSG, "open:" + teamId + ":" + firedFor);
+        if (!threads.claimOpen(teamId, firedFor, post)) {
+            System.out.printf("Order thread of team %s for %s already opened%n", teamId, firedFor);
         }
     }
 
     /**
-     * Closes the current order thread for the given workspace, posts summaries, and prunes history.
+     * Records the thread as open once its post (queued by openOrderThreadFor) went out.
+     */
+    @EventListener
+    public void onOrderThreadOpened(OrderThreadOpenedEvent event) {
+        threads.markOpened(event.openKey(), event.channel(), event.threadTs());
+    }
+
+    /**
+     * Closes the open order threads of the given workspace, oldest first, each with its own
+     * summary: queues the summaries and marks the thread closed in one transaction. Does
+     * nothing if no thread is open or another instance is already closing it.
      */
     public void closeOrderThreadFor(String teamId) throws Exception {
-        String threadTs = currentThreadTs.get(teamId);
-        if (threadTs == null) {
-            return;
+        long waitStart = System.nanoTime();
+        closePermits.acquire();
+        try {
+            closeWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            OrderThread thread;
+            while ((thread = threads.claimClose(teamId, closeLeaseSeconds)) != null) {
+                closeThread(thread);
+            }
+        } finally {
+            closePermits.release();
         }
+    }
 
-        // Fetch only this team's thread messages
-        List<MessageEvent> threadMsgs = eventStore.fetchMessagesForTeam(teamId).stream()
-                .filter(m -> orderChannel.equals(m.channel()) && m.ts().compareTo(threadTs) >= 0)
-                .collect(Collectors.toList());
+    /**
+     * Retries closes whose lease ran out (the close failed or its instance stopped). A close
+     * that fails again keeps its renewed lease, so it is retried one lease later.
+     *
+     * Runs on the maintenance scheduler, so it never waits: it only claims as many closes as
+     * there are free close pipelines and hands them to the pipeline executor. The rest are
+     * left to the next sweep.
+     */
+    private void sweepStuckCloses() {
+        for (int i = 0; i < 100; i++) {
+            OrderThread thread;
+            try {
+                // the timed form keeps the semaphore fair to closes already waiting
+                if (!closePermits.tryAcquire(0, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                thread = threads.claimExpiredClose(closeLeaseSeconds);
+            } catch (RuntimeException ex) {
+                closePermits.release();
+                System.err.println("Stuck close sweep failed: " + ex.getMessage());
+                return;
+            }
+            if (thread == null) {
+                closePermits.release();
+                return;
+            }
+            System.out.printf("Retrying the close of team %s thread %s%n", thread.teamId(), thread.threadTs());
+            stages.execute(() -> {
+                try {
+                    closeThread(thread);
+                } catch (RuntimeException ex) {
+                    System.err.printf("Retried close of team %s failed: %s%n", thread.teamId(), ex.getMessage());
+                } finally {
+                    closePermits.release();
+                }
+            });
+        }
+    }
+
+    private void closeThread(OrderThread thread) {
+        String teamId = thread.teamId();
+        String threadTs = thread.threadTs();
+        String channel = thread.channel(); // where it was posted, even if the setting changed since
+        String untilTs = thread.untilTs(); // a later thread's orders are not this one's
 
-        // Manual summary
-        summaryService.summarizeThreadForTeam(
-                teamId, orderChannel, threadTs, threadMsgs, adminChannel
-        );
+        // Fetch only this thread's messages (channel + ts range filtered in SQL)
+        CompletableFuture<List<MessageEvent>> threadMsgs = stages.run("fetch",
+                () -> eventStore.fetchMessagesInRangeForTeam(teamId, channel, threadTs, untilTs));
 
-        // Optional AI summaries
-        // aiSummaryService.postDeepseekSummaryForTeam(teamId, threadMsgs, threadTs);
-        // aiSummaryService.postChatGptSummaryForTeam(teamId, threadMsgs, threadTs);
+        // Manual summary and optional AI summaries, side by side
+        CompletableFuture<List<OutboxMessage>> summaries = threadMsgs.thenCompose(msgs -> stages.run("summary",
+                () -> summaryService.threadSummaryMessagesForTeam(teamId, channel, threadTs, untilTs,
+                        !msgs.isEmpty(), adminChannel)));
+        CompletableFuture<List<OutboxMessage>> aiPosts = aiSummaries.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : threadMsgs.thenCompose(msgs -> aiSummaryMessages(teamId, channel, threadTs, untilTs, msgs))
+                        .completeOnTimeout(List.of(), aiTimeoutSeconds, TimeUnit.SECONDS)
+                        .exceptionally(e -> {
+                            // the AI summaries are extras: the close goes ahead without them
+                            System.err.println("AI summaries for team " + teamId + " failed: " + e.getCause());
+                            return List.of();
+                        });
 
-        // Prune past events for this workspace
-        eventStore.pruneEventsBeforeForTeam(teamId, threadTs);
+        // Queue the posts and mark the thread closed, atomically
+        join(summaries.thenCombine(aiPosts, (manual, ai) -> {
+            List<OutboxMessage> posts = new ArrayList<>(manual);
+            posts.addAll(ai);
+            return posts;
+        }).thenCompose(posts -> stages.run("commit", () -> {
+            threads.completeClose(thread, posts);
+            return null;
+        })));
 
-        // Clear the stored timestamp
-        currentThreadTs.remove(teamId);
+        // Prune past events in the background; the close (and its permit) is done
+        stages.run("compact", () -> {
+            compact(thread);
+            return null;
+        }).exceptionally(e -> {
+            System.err.println("Compaction of team " + teamId + " failed, left to the sweep: " + e.getCause());
+            return null;
+        });
     }
 
+    /**
+     * The configured AI summaries, generated concurrently; a summary with nothing to say is left out.
+     */
+    private CompletableFuture<List<OutboxMessage>> aiSummaryMessages(String teamId, String channel, String threadTs,
+                                                                     String untilTs, List<MessageEvent> msgs) {
+        CompletableFuture<OutboxMessage> deepseek = aiSummaries.contains("deepseek")
+                ? stages.run("ai_deepseek", () -> aiSummaryService.deepseekSummaryMessageForTeam(teamId, channel, threadTs, msgs))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<OutboxMessage> chatGpt = aiSummaries.contains("chatgpt")
+                ? stages.run("ai_chatgpt", () -> aiSummaryService.chatGptSummaryMessageForTeam(teamId, channel, threadTs, untilTs))
+                : CompletableFuture.completedFuture(null);
+        return deepseek.thenCombine(chatGpt, (d, c) -> {
+            List<OutboxMessage> posts = new ArrayList<>(2);
+            if (d != null) posts.add(d);
+            if (c != null) posts.add(c);
+            return posts;
+        });
+    }
     /**
      * (Optional) Retrieve the last-opened thread timestamp for a workspace.
      */
     public String getCurrentThreadTsFor(String teamId) {
-        return currentThreadTs.get(teamId);
+        return threads.currentThreadTs(teamId);
+    }
+
+    /**
+     * Oldest thread still open in any workspace, or null if none is open.
+     * Event partitions at or after this timestamp must be kept.
+     */
+    public String getOldestOpenThreadTs() {
+        return threads.oldestOpenThreadTs();
+    }
+
+    /**
+     * Compaction stage: prunes the workspace's events before the closed thread.
+     */
+    private void compact(OrderThread thread) {
+        threads.compact(thread);
+        liveSummaries.invalidate(thread.teamId()); // pruned events must leave the live summary too
+    }
+
+    /**
+     * Compacts closed threads whose compaction never ran (instance stopped or compaction failed).
+     */
+    private void sweepCompactions() {
+        try {
+            for (OrderThread thread : threads.pendingCompaction(100)) {
+                compact(thread);
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("Compaction sweep failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Waits for a stage and rethrows its failure unwrapped.
+     */
+    private static <T> T join(CompletableFuture<T> stage) {
+        try {
+            return stage.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages.close();
     }
 
     // Message to open a new grocery-order thread
@@ -0,0 +1,50 @@
+package com.andreycorp.slack_grocery_bot.scheduler;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * A weekly fire time — day of week and local time in a time zone — e.g. MON 09:00 America/New_York.
+ *
+ * Fire instants are resolved with ZonedDateTime, so DST transitions behave like a wall clock:
+ * a time skipped by a spring-forward gap fires right after the gap (02:30 → 03:30), and a time
+ * repeated by a fall-back overlap fires once, at its first occurrence.
+ */
+public record WeeklySchedule(DayOfWeek day, LocalTime time, ZoneId zone) {
+
+    /**
+     * Parses the schedule_settings form, e.g. ("MON", "09:00", "Asia/Jerusalem").
+     */
+    public static WeeklySchedule of(String day, String time, String zone) {
+        return new WeeklySchedule(parseDay(day), LocalTime.parse(time), ZoneId.of(zone));
+    }
+
+    /**
+     * First fire strictly after the given instant.
+     */
+    public Instant nextAfter(Instant after) {
+        LocalDate date = after.atZone(zone).toLocalDate().with(TemporalAdjusters.nextOrSame(day));
+        while (true) {
+            Instant fire = ZonedDateTime.of(date, time, zone).toInstant(); // earlier offset in an overlap
+            if (fire.isAfter(after)) {
+                return fire;
+            }
+            date = date.plusWeeks(1);
+        }
+    }
+
+    /** The three-letter codes stored in schedule_settings ("MON" … "SUN"), nothing else. */
+    private static DayOfWeek parseDay(String day) {
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if (d.name().substring(0, 3).equals(day)) {
+                return d;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day of week: " + day);
+    }
+}
@@ -0,0 +1,10 @@
+-- V10__order_thread_compaction.sql
+-- Pruning a closed thread's events (moving the retention watermark) is no longer part of
+-- the close transaction but a later compaction stage. compacted_at marks it done; closed
+-- threads still missing it are picked up by the periodic compaction sweep.
+
+ALTER TABLE public.order_thread ADD COLUMN IF NOT EXISTS compacted_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_order_thread_uncompacted
+  ON public.order_thread(id)
+  WHERE status = 'CLOSED' AND compacted_at IS NULL;
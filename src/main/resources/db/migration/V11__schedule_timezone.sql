@@ -0,0 +1,6 @@
+-- V11__schedule_timezone.sql
+-- Each workspace's open/close times are local to its own time zone (IANA ID).
+-- Existing rows keep the zone every schedule used so far.
+
+ALTER TABLE public.schedule_settings
+  ADD COLUMN IF NOT EXISTS timezone VARCHAR(64) NOT NULL DEFAULT 'Asia/Jerusalem';
@@ -0,0 +1,10 @@
+-- V12__summary_version.sql
+-- Per-tenant counter moved in the same transaction as every write that can change the order
+-- summary (order lines, +1 reactions, retention watermark). Each instance keeps its own
+-- in-memory live summary and compares it with this version, so writes ingested by another
+-- instance show up there too.
+
+CREATE TABLE IF NOT EXISTS public.summary_version (
+  team_id  VARCHAR(50)  PRIMARY KEY REFERENCES public.workspace(team_id),
+  version  BIGINT       NOT NULL
+);
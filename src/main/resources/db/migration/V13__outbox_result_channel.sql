@@ -0,0 +1,7 @@
+-- V13__outbox_result_channel.sql
+-- order_thread.channel_id starts out as the configured #name and becomes the channel ID that
+-- chat.postMessage returned once the thread is posted, so the close's channel + ts range reads
+-- match message_event/order_line. The outbox keeps the returned ID next to result_ts, so a thread
+-- posted just before a crash (markOpened never ran) resolves to the ID as well.
+
+ALTER TABLE public.slack_outbox ADD COLUMN IF NOT EXISTS result_channel VARCHAR(50);
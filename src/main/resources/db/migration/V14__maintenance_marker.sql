@@ -0,0 +1,9 @@
+-- V14__maintenance_marker.sql
+-- One row per one-off maintenance job that has run to completion, so every instance can skip it
+-- on later startups (e.g. 'order_line_backfill': messages without order lines are parsed once,
+-- not re-read on every start). Delete the row to run the job again.
+
+CREATE TABLE IF NOT EXISTS public.maintenance_marker (
+  name     VARCHAR(50)  PRIMARY KEY,
+  done_at  TIMESTAMP    NOT NULL DEFAULT now()
+);
@@ -0,0 +1,28 @@
+-- V2__event_dedupe.sql
+-- Make event ingestion idempotent: Slack redelivers events (X-Slack-Retry-Num) and
+-- duplicated rows double-count quantities in the summary.
+
+-- Drop existing duplicates, keeping the first stored copy
+DELETE FROM public.message_event m
+ USING public.message_event d
+ WHERE m.team_id = d.team_id
+   AND m.channel_id = d.channel_id
+   AND m.ts = d.ts
+   AND m.id > d.id;
+
+DELETE FROM public.reaction_event r
+ USING public.reaction_event d
+ WHERE r.team_id = d.team_id
+   AND r.channel_id = d.channel_id
+   AND r.ts = d.ts
+   AND r.user_id = d.user_id
+   AND r.reaction = d.reaction
+   AND r.id > d.id;
+
+-- One row per Slack message
+CREATE UNIQUE INDEX IF NOT EXISTS uq_msg_team_channel_ts
+  ON public.message_event(team_id, channel_id, ts);
+
+-- A user can add a given reaction to a message only once
+CREATE UNIQUE INDEX IF NOT EXISTS uq_react_team_channel_ts_user
+  ON public.reaction_event(team_id, channel_id, ts, user_id, reaction);
@@ -0,0 +1,8 @@
+-- V3__event_thread_index.sql
+-- Thread-scoped reads (one channel, one ts range) at close time instead of full-tenant scans.
+
+CREATE INDEX IF NOT EXISTS idx_msg_team_channel_ts
+  ON public.message_event(team_id, channel_id, ts_epoch);
+
+CREATE INDEX IF NOT EXISTS idx_react_team_channel_ts
+  ON public.reaction_event(team_id, channel_id, ts_epoch);
@@ -0,0 +1,102 @@
+-- V4__partition_events.sql
+-- Range-partition message_event and reaction_event by week on ts_epoch, so retention can drop
+-- whole partitions instead of running row-by-row DELETEs on the shared tables.
+-- Weekly partitions are named <table>_pYYYYMMDD (Monday 00:00 UTC) and are kept ahead of time
+-- by EventPartitionManager; the default partition only catches rows outside every range.
+
+-- Keep the old tables aside while their rows are copied
+ALTER TABLE public.message_event  RENAME TO message_event_legacy;
+ALTER TABLE public.reaction_event RENAME TO reaction_event_legacy;
+
+CREATE TABLE public.message_event (
+  id         BIGSERIAL         NOT NULL,
+  team_id    VARCHAR(50)       NOT NULL REFERENCES public.workspace(team_id),
+  channel_id VARCHAR(50)       NOT NULL,
+  user_id    VARCHAR(50)       NOT NULL,
+  text       TEXT              NOT NULL,
+  ts         VARCHAR(30)       NOT NULL,
+  ts_epoch   DOUBLE PRECISION  NOT NULL,
+  PRIMARY KEY (id, ts_epoch)
+) PARTITION BY RANGE (ts_epoch);
+
+CREATE TABLE public.reaction_event (
+  id         BIGSERIAL         NOT NULL,
+  team_id    VARCHAR(50)       NOT NULL REFERENCES public.workspace(team_id),
+  channel_id VARCHAR(50)       NOT NULL,
+  user_id    VARCHAR(50)       NOT NULL,
+  reaction   VARCHAR(50)       NOT NULL,
+  ts         VARCHAR(30)       NOT NULL,
+  ts_epoch   DOUBLE PRECISION  NOT NULL,
+  PRIMARY KEY (id, ts_epoch)
+) PARTITION BY RANGE (ts_epoch);
+
+CREATE TABLE public.message_event_default  PARTITION OF public.message_event  DEFAULT;
+CREATE TABLE public.reaction_event_default PARTITION OF public.reaction_event DEFAULT;
+
+-- Weekly partitions covering the existing rows and the next four weeks
+DO $$
+DECLARE
+  first_week TIMESTAMP;
+  wk         TIMESTAMP;
+  tbl        TEXT;
+BEGIN
+  SELECT date_trunc('week', to_timestamp(min(ts_epoch)) AT TIME ZONE 'UTC')
+    INTO first_week
+    FROM (SELECT ts_epoch FROM public.message_event_legacy
+          UNION ALL
+          SELECT ts_epoch FROM public.reaction_event_legacy) e;
+  first_week := COALESCE(first_week, date_trunc('week', now() AT TIME ZONE 'UTC'));
+
+  FOR wk IN SELECT generate_series(first_week,
+                                   date_trunc('week', now() AT TIME ZONE 'UTC') + INTERVAL '4 weeks',
+                                   INTERVAL '1 week')
+  LOOP
+    FOREACH tbl IN ARRAY ARRAY['message_event', 'reaction_event']
+    LOOP
+      EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS public.%I PARTITION OF public.%I FOR VALUES FROM (%s) TO (%s)',
+        tbl || '_p' || to_char(wk, 'YYYYMMDD'), tbl,
+        extract(epoch FROM wk AT TIME ZONE 'UTC'),
+        extract(epoch FROM (wk + INTERVAL '1 week') AT TIME ZONE 'UTC'));
+    END LOOP;
+  END LOOP;
+END $$;
+
+INSERT INTO public.message_event(id, team_id, channel_id, user_id, text, ts, ts_epoch)
+SELECT id, team_id, channel_id, user_id, text, ts, ts_epoch FROM public.message_event_legacy;
+
+INSERT INTO public.reaction_event(id, team_id, channel_id, user_id, reaction, ts, ts_epoch)
+SELECT id, team_id, channel_id, user_id, reaction, ts, ts_epoch FROM public.reaction_event_legacy;
+
+SELECT setval(pg_get_serial_sequence('public.message_event', 'id'),
+              COALESCE((SELECT max(id) FROM public.message_event), 0) + 1, false);
+SELECT setval(pg_get_serial_sequence('public.reaction_event', 'id'),
+              COALESCE((SELECT max(id) FROM public.reaction_event), 0) + 1, false);
+
+-- Dropping the legacy tables frees the index names reused below
+DROP TABLE public.message_event_legacy;
+DROP TABLE public.reaction_event_legacy;
+
+CREATE INDEX IF NOT EXISTS idx_msg_team_ts
+  ON public.message_event(team_id, ts_epoch);
+CREATE INDEX IF NOT EXISTS idx_react_team_ts
+  ON public.reaction_event(team_id, ts_epoch);
+CREATE INDEX IF NOT EXISTS idx_msg_team_channel_ts
+  ON public.message_event(team_id, channel_id, ts_epoch);
+CREATE INDEX IF NOT EXISTS idx_react_team_channel_ts
+  ON public.reaction_event(team_id, channel_id, ts_epoch);
+
+-- Unique indexes on a partitioned table must contain the partition key;
+-- ts_epoch is derived from ts, so uniqueness is unchanged
+CREATE UNIQUE INDEX IF NOT EXISTS uq_msg_team_channel_ts
+  ON public.message_event(team_id, channel_id, ts, ts_epoch);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_react_team_channel_ts_user
+  ON public.reaction_event(team_id, channel_id, ts, user_id, reaction, ts_epoch);
+
+-- Per-tenant retention watermark: pruning only raises it, reads hide older rows,
+-- and EventPartitionManager drops a week once every tenant's watermark has passed it
+CREATE TABLE IF NOT EXISTS public.event_retention (
+  team_id            VARCHAR(50)       PRIMARY KEY REFERENCES public.workspace(team_id),
+  prune_before_epoch DOUBLE PRECISION  NOT NULL,
+  updated_at         TIMESTAMP         NOT NULL DEFAULT now()
+);
@@ -0,0 +1,28 @@
+-- V5__order_line.sql
+-- Order entries parsed once at ingestion, so summaries aggregate rows instead of
+-- re-parsing every message text on each mention and Home tab open.
+
+CREATE TABLE IF NOT EXISTS public.order_line (
+  id               BIGSERIAL         PRIMARY KEY,
+  team_id          VARCHAR(50)       NOT NULL REFERENCES public.workspace(team_id),
+  channel_id       VARCHAR(50)       NOT NULL,
+  thread_ts        VARCHAR(30)       NOT NULL,
+  user_id          VARCHAR(50)       NOT NULL,
+  item             TEXT              NOT NULL,
+  qty              DOUBLE PRECISION  NOT NULL,
+  message_ts       VARCHAR(30)       NOT NULL,
+  message_ts_epoch DOUBLE PRECISION  NOT NULL,
+  line_no          INTEGER           NOT NULL,
+  -- one row per entry of a Slack message; redelivered events insert nothing
+  UNIQUE (team_id, channel_id, message_ts, line_no)
+);
+
+-- Summary scans: whole tenant, or one channel within a ts range
+CREATE INDEX IF NOT EXISTS idx_order_line_team_ts
+  ON public.order_line(team_id, message_ts_epoch);
+CREATE INDEX IF NOT EXISTS idx_order_line_team_channel_ts
+  ON public.order_line(team_id, channel_id, message_ts_epoch);
+
+-- +1 counts per reacted message
+CREATE INDEX IF NOT EXISTS idx_react_team_reaction_ts
+  ON public.reaction_event(team_id, reaction, channel_id, ts);
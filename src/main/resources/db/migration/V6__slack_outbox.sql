@@ -0,0 +1,28 @@
+-- V6__slack_outbox.sql
+-- Scheduled Slack posts (thread open, summaries, pins) are written here in the same
+-- transaction as the state change that produced them, then delivered by SlackOutboxDelivery
+-- with retries and backoff. The scheduler threads never wait on Slack.
+
+CREATE TABLE IF NOT EXISTS public.slack_outbox (
+  id               BIGSERIAL     PRIMARY KEY,
+  team_id          VARCHAR(50)   NOT NULL REFERENCES public.workspace(team_id),
+  kind             VARCHAR(20)   NOT NULL,          -- OPEN_THREAD | POST | PIN
+  channel_id       VARCHAR(80)   NOT NULL,          -- channel ID or #name
+  thread_ts        VARCHAR(30),                     -- POST: reply target; PIN: message to pin
+  text             TEXT          NOT NULL DEFAULT '',
+  -- one row per logical post: a double-fired schedule or a retried close enqueues nothing
+  idempotency_key  VARCHAR(200)  NOT NULL UNIQUE,
+  attempts         INTEGER       NOT NULL DEFAULT 0,
+  -- also the claim lease: a claimed row is pushed forward until delivered or retried
+  next_attempt_at  TIMESTAMPTZ   NOT NULL DEFAULT now(),
+  last_error       TEXT,
+  result_ts        VARCHAR(30),                     -- ts of the posted message
+  created_at       TIMESTAMPTZ   NOT NULL DEFAULT now(),
+  delivered_at     TIMESTAMPTZ,
+  failed_at        TIMESTAMPTZ                      -- gave up after max attempts
+);
+
+-- Delivery polls only the pending rows
+CREATE INDEX IF NOT EXISTS idx_slack_outbox_pending
+  ON public.slack_outbox(next_attempt_at, id)
+  WHERE delivered_at IS NULL AND failed_at IS NULL;
@@ -0,0 +1,28 @@
+-- V7__order_thread.sql
+-- The weekly order thread of each workspace, one row per scheduled open. Replaces the
+-- in-memory map WeeklyOrderScheduler used to keep, so a restart between open and close
+-- loses nothing and several instances can run the same schedules.
+--
+-- Lifecycle: OPENING (claimed, post queued) → OPEN (posted) → CLOSING (close claimed,
+-- leased) → CLOSED.
+
+CREATE TABLE IF NOT EXISTS public.order_thread (
+  id                 BIGSERIAL     PRIMARY KEY,
+  team_id            VARCHAR(50)   NOT NULL REFERENCES public.workspace(team_id),
+  channel_id         VARCHAR(80)   NOT NULL,
+  -- scheduled fire time: every instance firing the same schedule claims the same row
+  fired_for          TIMESTAMPTZ   NOT NULL,
+  open_key           VARCHAR(200)  NOT NULL UNIQUE,   -- slack_outbox idempotency key of the post
+  thread_ts          VARCHAR(30),                     -- known once the post is delivered
+  status             VARCHAR(10)   NOT NULL DEFAULT 'OPENING',
+  opened_at          TIMESTAMPTZ,
+  close_lease_until  TIMESTAMPTZ,                     -- a CLOSING row past this can be reclaimed
+  closed_at          TIMESTAMPTZ,
+  created_at         TIMESTAMPTZ   NOT NULL DEFAULT now(),
+  UNIQUE (team_id, fired_for)
+);
+
+-- Open/close and the partition manager only look at threads that are not closed yet
+CREATE INDEX IF NOT EXISTS idx_order_thread_active
+  ON public.order_thread(team_id, fired_for)
+  WHERE status <> 'CLOSED';
@@ -0,0 +1,10 @@
+-- V8__scheduler_node.sql
+-- Cluster membership for the weekly open/close scheduler. Every instance upserts its row
+-- on each heartbeat; instances with a recent heartbeat share the tenants by consistent
+-- hashing (ClusterMembership), so each tenant's jobs are registered on one instance only.
+
+CREATE TABLE IF NOT EXISTS public.scheduler_node (
+  node_id       VARCHAR(200)  PRIMARY KEY,
+  started_at    TIMESTAMPTZ   NOT NULL DEFAULT now(),
+  heartbeat_at  TIMESTAMPTZ   NOT NULL DEFAULT now()
+);
@@ -0,0 +1,12 @@
+-- V9__schedule_run.sql
+-- Last completed run of each tenant's weekly open/close job. On startup (and when an
+-- instance takes over tenants) ScheduledRuns compares it with the job's latest due fire
+-- time and runs what was missed while no instance was running it.
+
+CREATE TABLE IF NOT EXISTS public.schedule_run (
+  team_id         VARCHAR(50)   NOT NULL REFERENCES public.workspace(team_id),
+  job             VARCHAR(10)   NOT NULL,          -- open | close
+  last_fired_for  TIMESTAMPTZ   NOT NULL,          -- scheduled fire time of the last run
+  last_run_at     TIMESTAMPTZ   NOT NULL DEFAULT now(),
+  PRIMARY KEY (team_id, job)
+);
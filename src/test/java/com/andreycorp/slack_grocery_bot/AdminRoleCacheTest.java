@@ -0,0 +1,44 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.AdminRoleCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminRoleCacheTest {
+
+    @Test
+    void rolesAreCachedPerTenantAndOverwritten() {
+        AdminRoleCache cache = new AdminRoleCache(new SimpleMeterRegistry(), 15, 100, false);
+
+        assertNull(cache.get("T1", "U1"));
+        cache.put("T1", "U1", true);
+        assertTrue(cache.get("T1", "U1"));
+        assertNull(cache.get("T2", "U1"));
+
+        cache.put("T1", "U1", false); // user_change: demoted
+        assertFalse(cache.get("T1", "U1"));
+    }
+
+    @Test
+    void expiredRolesAreMisses() {
+        AdminRoleCache cache = new AdminRoleCache(new SimpleMeterRegistry(), 0, 100, false);
+        cache.put("T1", "U1", true);
+        assertNull(cache.get("T1", "U1"));
+    }
+
+    @Test
+    void warmUpIsClaimedOncePerTenant() {
+        AdminRoleCache cache = new AdminRoleCache(new SimpleMeterRegistry(), 15, 100, true);
+
+        assertTrue(cache.claimWarmUp("T1"));
+        assertFalse(cache.claimWarmUp("T1"));
+        assertTrue(cache.claimWarmUp("T2"));
+
+        cache.releaseWarmUp("T1"); // failed users.list
+        assertTrue(cache.claimWarmUp("T1"));
+
+        assertFalse(new AdminRoleCache(new SimpleMeterRegistry(), 15, 100, false).claimWarmUp("T1"));
+    }
+}
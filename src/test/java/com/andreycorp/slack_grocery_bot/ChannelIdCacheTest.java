@@ -0,0 +1,63 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.ChannelIdCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelIdCacheTest {
+
+    @Test
+    void channelsAreCachedPerTenant() {
+        ChannelIdCache cache = new ChannelIdCache(new SimpleMeterRegistry(), 60, 60, 100);
+
+        assertNull(cache.get("T1", "grocery-office"));
+        cache.put("T1", "grocery-office", "C1");
+        assertEquals("C1", cache.get("T1", "grocery-office"));
+        assertNull(cache.get("T2", "grocery-office"));
+    }
+
+    @Test
+    void renameAndDeleteUpdateTheEntries() {
+        ChannelIdCache cache = new ChannelIdCache(new SimpleMeterRegistry(), 60, 60, 100);
+        cache.put("T1", "grocery-office", "C1");
+        cache.put("T2", "grocery-office", "C1"); // same ID in another workspace is left alone
+
+        // channel_rename: the old name goes, the new one maps to the same ID
+        cache.removeChannel("T1", "C1");
+        cache.put("T1", "groceries", "C1");
+        assertNull(cache.get("T1", "grocery-office"));
+        assertEquals("C1", cache.get("T1", "groceries"));
+        assertEquals("C1", cache.get("T2", "grocery-office"));
+
+        // channel_deleted
+        cache.removeChannel("T1", "C1");
+        assertNull(cache.get("T1", "groceries"));
+    }
+
+    @Test
+    void missingNamesAreRememberedForTheNegativeTtl() {
+        ChannelIdCache cache = new ChannelIdCache(new SimpleMeterRegistry(), 60, 60, 100);
+        cache.putMissing("T1", "grocery-office");
+        assertEquals(ChannelIdCache.NOT_FOUND, cache.get("T1", "grocery-office"));
+
+        // channel_created replaces the negative entry
+        cache.put("T1", "grocery-office", "C1");
+        assertEquals("C1", cache.get("T1", "grocery-office"));
+
+        ChannelIdCache noNegativeTtl = new ChannelIdCache(new SimpleMeterRegistry(), 60, 0, 100);
+        noNegativeTtl.putMissing("T1", "grocery-office");
+        assertNull(noNegativeTtl.get("T1", "grocery-office"));
+    }
+
+    @Test
+    void expiredChannelsAreMisses() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChannelIdCache cache = new ChannelIdCache(registry, 0, 60, 100);
+        cache.put("T1", "grocery-office", "C1");
+
+        assertNull(cache.get("T1", "grocery-office"));
+        assertEquals(1.0, registry.counter("slack.channel-cache", "result", "miss").count());
+    }
+}
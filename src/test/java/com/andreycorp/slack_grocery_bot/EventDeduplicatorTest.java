@@ -0,0 +1,49 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.EventDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDeduplicatorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void firstDeliveryIsNewRetryIsDuplicate() {
+        EventDeduplicator dedupe = new EventDeduplicator(registry, 100);
+
+        assertTrue(dedupe.markIfNew("T1", "Ev1", null, null));
+        assertFalse(dedupe.markIfNew("T1", "Ev1", "1", "http_timeout"));
+        assertEquals(1.0, registry.counter("slack.events.duplicates", "retry_reason", "http_timeout").count());
+    }
+
+    @Test
+    void sameEventIdInDifferentTeamsIsNotADuplicate() {
+        EventDeduplicator dedupe = new EventDeduplicator(registry, 100);
+
+        assertTrue(dedupe.markIfNew("T1", "Ev1", null, null));
+        assertTrue(dedupe.markIfNew("T2", "Ev1", null, null));
+    }
+
+    @Test
+    void missingEventIdIsAlwaysProcessed() {
+        EventDeduplicator dedupe = new EventDeduplicator(registry, 100);
+
+        assertTrue(dedupe.markIfNew("T1", null, null, null));
+        assertTrue(dedupe.markIfNew("T1", null, null, null));
+    }
+
+    @Test
+    void evictsLeastRecentlySeenWhenFull() {
+        EventDeduplicator dedupe = new EventDeduplicator(registry, 2);
+
+        dedupe.markIfNew("T1", "Ev1", null, null);
+        dedupe.markIfNew("T1", "Ev2", null, null);
+        dedupe.markIfNew("T1", "Ev3", null, null); // evicts Ev1
+
+        assertTrue(dedupe.markIfNew("T1", "Ev1", "1", "http_timeout"));
+        assertFalse(dedupe.markIfNew("T1", "Ev3", "1", "http_timeout"));
+    }
+}
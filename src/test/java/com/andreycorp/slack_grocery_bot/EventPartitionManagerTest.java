@@ -0,0 +1,120 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.jdbc.EventPartitionManager;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class EventPartitionManagerTest {
+
+    private static final LocalDate THIS_WEEK =
+            LocalDate.now(ZoneOffset.UTC).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    private static final LocalDate OLD_WEEK = THIS_WEEK.minusWeeks(10);
+    // the migration pre-creates four weeks ahead, so the fifth is the manager's to create
+    private static final LocalDate NEW_WEEK = THIS_WEEK.plusWeeks(5);
+
+    private DataSource ds;
+    private EventPartitionManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ds = TestDatabase.migrated();
+        TestDatabase.addWorkspace(ds, "T1");
+        execute("CREATE TABLE public." + partition("message_event", OLD_WEEK)
+                + " PARTITION OF public.message_event FOR VALUES FROM (" + epochOf(OLD_WEEK)
+                + ") TO (" + epochOf(OLD_WEEK.plusWeeks(1)) + ")");
+        execute("INSERT INTO event_retention(team_id, prune_before_epoch) VALUES ('T1', " + epochOf(THIS_WEEK) + ")");
+        manager = new EventPartitionManager(ds, mock(WeeklyOrderScheduler.class), mock(TaskScheduler.class),
+                new SimpleMeterRegistry(), false, 5, 0, 60);
+    }
+
+    @Test
+    void failedCreateDoesNotSkipTheDrops() throws Exception {
+        // a row already in the default partition for that week makes its CREATE fail
+        execute("INSERT INTO message_event(team_id, channel_id, user_id, text, ts, ts_epoch) "
+                + "VALUES ('T1', 'C1', 'U1', 'milk', 'x', " + (epochOf(NEW_WEEK) + 60) + ")");
+        execute("INSERT INTO order_line(team_id, channel_id, thread_ts, user_id, item, qty, message_ts, message_ts_epoch, line_no) "
+                + "VALUES ('T1', 'C1', 'x', 'U1', 'milk', 1, 'x', " + (epochOf(OLD_WEEK) + 60) + ", 0)");
+
+        manager.maintain();
+
+        assertFalse(exists(partition("message_event", NEW_WEEK)));
+        assertTrue(exists(partition("reaction_event", NEW_WEEK)), "the other partitions are still created");
+        assertFalse(exists(partition("message_event", OLD_WEEK)), "expired partition dropped");
+        assertEquals(0, count("SELECT count(*) FROM order_line"), "order_line trimmed");
+    }
+
+    @Test
+    void skipsThePassWhileAnotherInstanceHoldsTheLock() throws Exception {
+        try (Connection other = ds.getConnection();
+             Statement st = other.createStatement()) {
+            st.execute("SELECT pg_advisory_lock(" + 0x67726F63_00000001L + ")");
+
+            manager.maintain();
+
+            assertTrue(exists(partition("message_event", OLD_WEEK)));
+            assertFalse(exists(partition("message_event", NEW_WEEK)));
+        }
+        manager.maintain();
+        assertFalse(exists(partition("message_event", OLD_WEEK)));
+        assertTrue(exists(partition("message_event", NEW_WEEK)));
+    }
+
+    @Test
+    void keepsHistoryWithoutAWatermarkUnlessTheHardCapIsOn() throws Exception {
+        execute("DELETE FROM event_retention");
+
+        manager.maintain();
+        assertTrue(exists(partition("message_event", OLD_WEEK)));
+
+        new EventPartitionManager(ds, mock(WeeklyOrderScheduler.class), mock(TaskScheduler.class),
+                new SimpleMeterRegistry(), false, 5, 8, 60).maintain();
+        assertFalse(exists(partition("message_event", OLD_WEEK)));
+    }
+
+    private boolean exists(String table) throws SQLException {
+        return count("SELECT count(*) FROM pg_class WHERE relname = '" + table + "'") > 0;
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static String partition(String table, LocalDate week) {
+        return table + "_p" + week.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+    }
+
+    private static long epochOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+}
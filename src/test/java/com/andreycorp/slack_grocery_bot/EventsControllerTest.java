@@ -0,0 +1,67 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.EventDeduplicator;
+import com.andreycorp.slack_grocery_bot.Services.SlackClientRegistry;
+import com.andreycorp.slack_grocery_bot.Services.SlackEventDispatcher;
+import com.andreycorp.slack_grocery_bot.Services.SlackEventHandlers;
+import com.andreycorp.slack_grocery_bot.context.TenantContext;
+import com.andreycorp.slack_grocery_bot.controllers.EventsController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EventsControllerTest {
+
+    private static final String MENTION = """
+            {"type":"event_callback","team_id":"T1","event_id":"Ev1",
+             "event":{"type":"app_mention","text":"milk","ts":"1.0","channel":"C1"}}""";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlackEventHandlers handlers = mock(SlackEventHandlers.class);
+    // sync mode: the handler runs inside the request, so its failure reaches Slack as a 500
+    private final SlackEventDispatcher dispatcher = new SlackEventDispatcher(
+            handlers, mock(SlackClientRegistry.class), registry, false, 1, 1, 0);
+    private final EventsController controller = new EventsController(
+            dispatcher, new EventDeduplicator(registry, 100), new TenantContext());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    private static MockHttpServletRequest delivery(String retryNum) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/slack/events");
+        request.setAttribute("rawBody", MENTION);
+        if (retryNum != null) {
+            request.addHeader("X-Slack-Retry-Num", retryNum);
+            request.addHeader("X-Slack-Retry-Reason", "http_error");
+        }
+        return request;
+    }
+
+    @Test
+    void retryOfAFailedEventIsProcessed() throws Exception {
+        doThrow(new IllegalStateException("db down"))
+                .doNothing()
+                .when(handlers).handleMessageEvent(eq("T1"), any());
+
+        assertThrows(IllegalStateException.class, () -> controller.receive(delivery(null)));
+        assertEquals(200, controller.receive(delivery("1")).getStatusCode().value());
+
+        verify(handlers, times(2)).handleMessageEvent(eq("T1"), any());
+    }
+
+    @Test
+    void retryOfAProcessedEventIsDropped() throws Exception {
+        controller.receive(delivery(null));
+        controller.receive(delivery("1"));
+
+        verify(handlers, times(1)).handleMessageEvent(eq("T1"), any());
+    }
+}
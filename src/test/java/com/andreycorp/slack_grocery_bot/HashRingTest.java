@@ -0,0 +1,56 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.scheduler.HashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    private static final int TENANTS = 10_000;
+
+    private static String team(int i) {
+        return "T" + Integer.toString(i * 7919, 36).toUpperCase();
+    }
+
+    @Test
+    void ownerDoesNotDependOnNodeOrder() {
+        HashRing a = new HashRing(List.of("node-a", "node-b", "node-c"), 128);
+        HashRing b = new HashRing(List.of("node-c", "node-a", "node-b"), 128);
+        for (int i = 0; i < TENANTS; i++) {
+            assertEquals(a.ownerOf(team(i)), b.ownerOf(team(i)));
+        }
+        assertNull(new HashRing(List.of(), 128).ownerOf("T1"));
+    }
+
+    @Test
+    void tenantsAreSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), 128);
+        Map<String, Integer> share = new HashMap<>();
+        for (int i = 0; i < TENANTS; i++) {
+            share.merge(ring.ownerOf(team(i)), 1, Integer::sum);
+        }
+        assertEquals(4, share.size());
+        share.values().forEach(n -> assertTrue(n > TENANTS / 4 * 0.75 && n < TENANTS / 4 * 1.25, share::toString));
+    }
+
+    @Test
+    void joiningNodeTakesOnlyItsShare() {
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c"), 128);
+        HashRing after = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), 128);
+        int moved = 0;
+        for (int i = 0; i < TENANTS; i++) {
+            String was = before.ownerOf(team(i));
+            String now = after.ownerOf(team(i));
+            if (!was.equals(now)) {
+                assertEquals("node-d", now); // tenants only move to the new node
+                moved++;
+            }
+        }
+        assertTrue(moved > TENANTS / 4 * 0.75 && moved < TENANTS / 4 * 1.25, "moved " + moved);
+    }
+}
@@ -0,0 +1,72 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.context.TenantContext;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcEventStoreService;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcEventWriteBuffer;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcOrderLineStore;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSummaryVersionStore;
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class JdbcEventStoreServiceTest {
+
+    private static final String THREAD_TS = "1760248800.000100";
+    private static final String NEXT_THREAD_TS = "1760853600.000100";
+
+    private JdbcEventWriteBuffer writeBuffer;
+    private JdbcEventStoreService events;
+    private JdbcOrderLineStore orderLines;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource ds = TestDatabase.migrated();
+        TestDatabase.addWorkspace(ds, "T1");
+        writeBuffer = new JdbcEventWriteBuffer(ds, new JdbcSummaryVersionStore(ds), new SimpleMeterRegistry(),
+                200, 60_000, 10_000);
+        events = new JdbcEventStoreService(ds, new TenantContext(), writeBuffer, 500);
+        orderLines = new JdbcOrderLineStore(ds, writeBuffer, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBuffer.shutdown();
+    }
+
+    @Test
+    void threadRangeReturnsTheMessagesPostedInTheThreadsChannel() {
+        MessageEvent inThread = new MessageEvent("T1", "U1", "C0GROCERY", "<@B1> 2 apples", "1760248900.000200");
+        events.saveMessage(inThread);
+        events.saveMessage(new MessageEvent("T1", "U2", "C0OTHER", "<@B1> 1 milk", "1760248950.000300"));
+        events.saveMessage(new MessageEvent("T1", "U1", "C0GROCERY", "<@B1> 3 eggs", "1760853700.000400"));
+
+        assertEquals(List.of(inThread), events.fetchMessagesInRangeForTeam("T1", "C0GROCERY", THREAD_TS, NEXT_THREAD_TS));
+        // the configured #name is not what Slack events carry
+        assertEquals(List.of(), events.fetchMessagesInRangeForTeam("T1", "#grocery-office", THREAD_TS, NEXT_THREAD_TS));
+    }
+
+    @Test
+    void threadTotalsCountOnlyTheThreadsOrderLines() {
+        orderLines.saveLines(List.of(
+                new OrderLine("T1", "C0GROCERY", THREAD_TS, "U1", "apples", 2, "1760248900.000200", 0),
+                new OrderLine("T1", "C0OTHER", "1760248950.000300", "U2", "milk", 1, "1760248950.000300", 0),
+                new OrderLine("T1", "C0GROCERY", NEXT_THREAD_TS, "U1", "eggs", 3, "1760853700.000400", 0)));
+
+        List<OrderLineTotal> totals = orderLines.totalsInRangeForTeam("T1", "C0GROCERY", THREAD_TS, NEXT_THREAD_TS);
+
+        assertEquals(1, totals.size());
+        assertEquals("apples", totals.get(0).item());
+        assertEquals(2.0, totals.get(0).qty());
+    }
+}
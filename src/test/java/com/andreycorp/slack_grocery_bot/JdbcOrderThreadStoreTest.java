@@ -0,0 +1,150 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.LiveSummaryRegistry;
+import com.andreycorp.slack_grocery_bot.Services.SummaryService;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcOrderThreadStore;
+import com.andreycorp.slack_grocery_bot.llm.AISummaryService;
+import com.andreycorp.slack_grocery_bot.model.EventStore;
+import com.andreycorp.slack_grocery_bot.model.OrderThread;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class JdbcOrderThreadStoreTest {
+
+    private static final Instant WEEK_1 = Instant.parse("2025-10-13T06:00:00Z");
+    private static final Instant WEEK_2 = Instant.parse("2025-10-20T06:00:00Z");
+    private static final String TS_1 = "1760335200.000100";
+    private static final String TS_2 = "1760940000.000100";
+
+    private DataSource ds;
+    private JdbcOrderThreadStore threads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ds = TestDatabase.migrated();
+        TestDatabase.addWorkspace(ds, "T1");
+        threads = new JdbcOrderThreadStore(ds);
+        open(WEEK_1, TS_1);
+        open(WEEK_2, TS_2);
+    }
+
+    @Test
+    void claimsTheOldestThreadUpToTheNextOne() {
+        OrderThread thread = threads.claimClose("T1", 600);
+
+        assertEquals(TS_1, thread.threadTs());
+        assertEquals("C0GROCERY", thread.channel());
+        assertEquals(TS_2, thread.untilTs());
+    }
+
+    @Test
+    void completeCloseQueuesEverySummaryOrNone() throws Exception {
+        OrderThread thread = threads.claimClose("T1", 600);
+        OutboxMessage summary = summary("close:1");
+        // no such workspace: the second insert fails after the first one went through
+        OutboxMessage broken = new OutboxMessage("T9", OutboxMessage.Kind.POST, "C0GROCERY", TS_1, "x", "close:1:ai");
+
+        assertThrows(RuntimeException.class, () -> threads.completeClose(thread, List.of(summary, broken)));
+        assertEquals(0, count("SELECT count(*) FROM slack_outbox WHERE idempotency_key LIKE 'close:%'"));
+        assertEquals("CLOSING", status(thread));
+
+        threads.completeClose(thread, List.of(summary));
+        assertEquals(1, count("SELECT count(*) FROM slack_outbox WHERE idempotency_key LIKE 'close:%'"));
+        assertEquals("CLOSED", status(thread));
+    }
+
+    @Test
+    void compactionWaitsForTheOlderThreadAndTheSweepPicksItUp() throws Exception {
+        TaskScheduler maintenance = mock(TaskScheduler.class);
+        WeeklyOrderScheduler scheduler = new WeeklyOrderScheduler(threads, mock(EventStore.class),
+                mock(SummaryService.class), mock(AISummaryService.class), mock(LiveSummaryRegistry.class),
+                "#grocery-office", "", 4, 600, Set.of(), 60, 10, 5, maintenance, new SimpleMeterRegistry());
+        try {
+            // the older thread's close is still running (leased) when the newer one closes
+            OrderThread older = threads.claimClose("T1", 600);
+            OrderThread newer = threads.claimClose("T1", 600);
+            threads.completeClose(newer, List.of(summary("close:2")));
+
+            threads.compact(newer);
+            assertEquals(0, watermark(), "events of the older open thread are kept");
+            assertEquals(List.of(newer.id()), threads.pendingCompaction(100).stream().map(OrderThread::id).toList());
+
+            threads.completeClose(older, List.of(summary("close:1")));
+            compactionSweep(maintenance).run();
+
+            assertEquals(Double.parseDouble(TS_2), watermark());
+            assertEquals(List.of(), threads.pendingCompaction(100));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void open(Instant firedFor, String ts) {
+        String key = "open:T1:" + firedFor;
+        threads.claimOpen("T1", firedFor,
+                new OutboxMessage("T1", OutboxMessage.Kind.OPEN_THREAD, "#grocery-office", null, "New thread", key));
+        threads.markOpened(key, "C0GROCERY", ts);
+    }
+
+    private static OutboxMessage summary(String key) {
+        return new OutboxMessage("T1", OutboxMessage.Kind.POST, "C0GROCERY", null, "summary", key);
+    }
+
+    /** The first periodic task the scheduler registered. */
+    private static Runnable compactionSweep(TaskScheduler maintenance) {
+        ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+        verify(maintenance, times(2)).scheduleWithFixedDelay(tasks.capture(), any(Instant.class), any(Duration.class));
+        return tasks.getAllValues().get(0);
+    }
+
+    private String status(OrderThread thread) throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT status FROM order_thread WHERE id = ?")) {
+            ps.setLong(1, thread.id());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private double watermark() throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT COALESCE(MAX(prune_before_epoch), 0) FROM event_retention WHERE team_id = 'T1'");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getDouble(1);
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
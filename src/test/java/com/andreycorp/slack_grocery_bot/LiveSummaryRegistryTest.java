@@ -0,0 +1,130 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.LiveSummaryRegistry;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSummaryVersionStore;
+import com.andreycorp.slack_grocery_bot.model.EventStore;
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderLine;
+import com.andreycorp.slack_grocery_bot.model.OrderLineStore;
+import com.andreycorp.slack_grocery_bot.model.OrderLineTotal;
+import com.andreycorp.slack_grocery_bot.model.ReactionEvent;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LiveSummaryRegistryTest {
+
+    private final OrderLineStore orderLineStore = mock(OrderLineStore.class);
+    private final EventStore eventStore = mock(EventStore.class);
+    private final JdbcSummaryVersionStore versions = mock(JdbcSummaryVersionStore.class);
+    private final OrderParser parser = new OrderParser();
+    // version-check interval 0: every read compares with the (mocked) database version
+    private final LiveSummaryRegistry registry =
+            new LiveSummaryRegistry(orderLineStore, eventStore, versions, new SimpleMeterRegistry(), 10, 0);
+
+    private List<OrderLine> apply(MessageEvent m) {
+        List<OrderLine> lines = parser.parseLines(m, m.ts());
+        registry.applyMessage(m.teamId(), m, lines);
+        return lines;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void storeHolds(List<OrderLine> lines) {
+        doAnswer(inv -> {
+            lines.forEach(((Consumer<OrderLine>) inv.getArgument(1))::accept);
+            return null;
+        }).when(orderLineStore).forEachLineForTeam(eq("T1"), any());
+    }
+
+    @Test
+    void updatesAreAppliedIncrementallyAndOnlyOnce() {
+        assertTrue(registry.totalsForTeam("T1").isEmpty()); // loads the (empty) store
+
+        MessageEvent m = new MessageEvent("T1", "U1", "C1", "<@BOT> 2 apples, 1 milk", "100.1");
+        apply(m);
+        apply(m); // redelivered
+        apply(new MessageEvent("T1", "U1", "C1", "3 apples", "100.2"));
+        registry.applyReaction("T1", new ReactionEvent("T1", "U2", "+1", "C1", "100.1"));
+        registry.applyReaction("T1", new ReactionEvent("T1", "U2", "+1", "C1", "100.1"));
+        registry.applyReaction("T1", new ReactionEvent("T1", "U3", "heart", "C1", "100.1"));
+
+        assertEquals(List.of(
+                new OrderLineTotal("U1", "apples", 5.0, 1),
+                new OrderLineTotal("U1", "milk", 1.0, 1)
+        ), registry.totalsForTeam("T1"));
+    }
+
+    @Test
+    void reactionBeforeMessageIsCounted() {
+        registry.totalsForTeam("T1");
+
+        registry.applyReaction("T1", new ReactionEvent("T1", "U2", "+1", "C1", "100.1"));
+        apply(new MessageEvent("T1", "U1", "C1", "2 apples", "100.1"));
+
+        assertEquals(List.of(new OrderLineTotal("U1", "apples", 2.0, 1)), registry.totalsForTeam("T1"));
+    }
+
+    @Test
+    void rebuildsLazilyFromOrderLinesAfterInvalidate() {
+        MessageEvent stored = new MessageEvent("T1", "U1", "C1", "1 bread", "100.1");
+        storeHolds(parser.parseLines(stored, stored.ts()));
+
+        // not loaded yet: skipped, the rebuild reads it from the store instead
+        apply(stored);
+        assertEquals(List.of(new OrderLineTotal("U1", "bread", 1.0, 0)), registry.totalsForTeam("T1"));
+        // the handler applying the same message again does not double count
+        apply(stored);
+        assertEquals(1.0, registry.totalsForTeam("T1").get(0).qty());
+
+        registry.invalidate("T1");
+        registry.totalsForTeam("T1");
+        verify(orderLineStore, times(2)).forEachLineForTeam(eq("T1"), any());
+    }
+
+    @Test
+    void rebuildsWhenAnotherInstanceMovedTheVersion() {
+        registry.totalsForTeam("T1");
+        long revision = registry.revision("T1");
+
+        // a message ingested by another instance
+        MessageEvent elsewhere = new MessageEvent("T1", "U1", "C1", "2 eggs", "100.1");
+        storeHolds(parser.parseLines(elsewhere, elsewhere.ts()));
+        when(versions.current("T1")).thenReturn(1L);
+
+        assertEquals(List.of(new OrderLineTotal("U1", "eggs", 2.0, 0)), registry.totalsForTeam("T1"));
+        assertNotEquals(revision, registry.revision("T1"));
+        verify(orderLineStore, times(2)).forEachLineForTeam(eq("T1"), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ownCommittedWriteAdvancesTheVersionWithoutRebuild() {
+        ArgumentCaptor<Consumer<JdbcSummaryVersionStore.Bump>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(versions).addListener(listener.capture());
+        registry.totalsForTeam("T1");
+
+        List<OrderLine> lines = apply(new MessageEvent("T1", "U1", "C1", "2 eggs", "100.1"));
+        listener.getValue().accept(new JdbcSummaryVersionStore.Bump("T1", 1, lines, List.of()));
+        when(versions.current("T1")).thenReturn(1L);
+
+        assertEquals(List.of(new OrderLineTotal("U1", "eggs", 2.0, 0)), registry.totalsForTeam("T1"));
+        verify(orderLineStore, times(1)).forEachLineForTeam(eq("T1"), any());
+
+        // rows this aggregate never applied (e.g. the backfill) leave it behind: rebuild
+        MessageEvent backfilled = new MessageEvent("T1", "U2", "C1", "1 milk", "99.0");
+        listener.getValue().accept(new JdbcSummaryVersionStore.Bump("T1", 2,
+                parser.parseLines(backfilled, backfilled.ts()), List.of()));
+        when(versions.current("T1")).thenReturn(2L);
+        registry.totalsForTeam("T1");
+        verify(orderLineStore, times(2)).forEachLineForTeam(eq("T1"), any());
+    }
+}
@@ -0,0 +1,84 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcEventWriteBuffer;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSummaryVersionStore;
+import com.andreycorp.slack_grocery_bot.jdbc.OrderLineBackfill;
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+class OrderLineBackfillTest {
+
+    private DataSource ds;
+    private JdbcEventWriteBuffer writeBuffer;
+    private OrderLineBackfill backfill;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ds = TestDatabase.migrated();
+        TestDatabase.addWorkspace(ds, "T1");
+        writeBuffer = new JdbcEventWriteBuffer(ds, new JdbcSummaryVersionStore(ds), new SimpleMeterRegistry(),
+                200, 60_000, 10_000);
+        backfill = new OrderLineBackfill(ds, writeBuffer, new OrderParser(), false, 500);
+        // stored before order_line existed: an order and a message without any order in it
+        long now = System.currentTimeMillis() / 1000;
+        execute("INSERT INTO message_event(team_id, channel_id, user_id, text, ts, ts_epoch) VALUES "
+                + "('T1', 'C1', 'U1', '<@B1> 2 apples, 1 milk', '" + now + ".000100', " + now + "), "
+                + "('T1', 'C1', 'U2', '<@B1>', '" + (now + 1) + ".000100', " + (now + 1) + ")");
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBuffer.shutdown();
+    }
+
+    @Test
+    void parsesMissingLinesOnceAndThenSkips() throws Exception {
+        assertEquals(2, backfill.backfill());
+        assertEquals(2, count("SELECT count(*) FROM order_line"));
+
+        // the message without lines is not re-read on later startups
+        assertEquals(0, backfill.backfill());
+        assertEquals(1, count("SELECT count(*) FROM maintenance_marker"));
+    }
+
+    @Test
+    void skipsWhileAnotherInstanceRunsIt() throws Exception {
+        try (Connection other = ds.getConnection();
+             Statement st = other.createStatement()) {
+            st.execute("SELECT pg_advisory_lock(" + 0x67726F63_00000002L + ")");
+
+            assertEquals(0, backfill.backfill());
+            assertEquals(0, count("SELECT count(*) FROM maintenance_marker"), "not marked done");
+        }
+        assertEquals(2, backfill.backfill());
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
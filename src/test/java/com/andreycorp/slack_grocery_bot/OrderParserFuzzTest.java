@@ -0,0 +1,111 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.parsers.OrderParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential test: the single-pass OrderParser must return exactly what the former
+ * regex implementation returns, for random messages built from the characters that matter
+ * to it (digits, delimiters, whitespace flavours, line terminators, mentions, case mappings).
+ */
+class OrderParserFuzzTest {
+
+    private final OrderParser parser = new OrderParser();
+
+    /**
+     * The regex implementation OrderParser replaced, kept as the oracle. The split pattern has
+     * the one intended change: a run of two or more periods before a digit is a delimiter.
+     */
+    static final class RegexOrderParser {
+        private static final Pattern ENTRY_PATTERN =
+                Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*(.+)$");
+
+        List<OrderParser.ParsedOrder> parseAll(String rawText) {
+            String text = rawText.trim().replaceAll("^<@[^>]+>\\s*", "");
+            String[] tokens = text.split("\\s*(?:[,;]|\\.{2,}(?=\\s*\\d)|\\.(?=\\s+\\d))\\s*");
+            List<OrderParser.ParsedOrder> orders = new ArrayList<>();
+            for (String token : tokens) {
+                if (token.isBlank()) {
+                    continue;
+                }
+                orders.add(parseEntry(token));
+            }
+            return orders;
+        }
+
+        private OrderParser.ParsedOrder parseEntry(String entry) {
+            String trimmed = entry.trim().toLowerCase();
+            Matcher matcher = ENTRY_PATTERN.matcher(trimmed);
+            if (matcher.matches()) {
+                return new OrderParser.ParsedOrder(Double.parseDouble(matcher.group(1)), matcher.group(2).trim());
+            }
+            return new OrderParser.ParsedOrder(1.0, trimmed);
+        }
+    }
+
+    private static final String[] PIECES = {
+            "0", "1", "2", "5", "9", "12", "2.5", "0.75", "1234567890123456789", ".", "..", "...",
+            ",", ";", " ", "  ", "\t", "\n", "\r", "\u000B", "\f", "\u0001", " ", " ",
+            "\u0085", "\u2028", "\u00A0", "\u2003", "apples", "Bananas", "ΣΑΣ", "İ", "crème", "🍎", "<@U123>", "<@", ">", "kg"
+    };
+
+    private static String randomMessage(Random rnd) {
+        StringBuilder sb = new StringBuilder();
+        int pieces = rnd.nextInt(12);
+        for (int i = 0; i < pieces; i++) {
+            sb.append(PIECES[rnd.nextInt(PIECES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameOrders(String input, List<OrderParser.ParsedOrder> expected,
+                                         List<OrderParser.ParsedOrder> actual) {
+        assertEquals(expected.size(), actual.size(), () -> "size for " + escape(input));
+        for (int i = 0; i < expected.size(); i++) {
+            int idx = i;
+            assertEquals(expected.get(i).item, actual.get(i).item, () -> "item " + idx + " for " + escape(input));
+            assertEquals(0, Double.compare(expected.get(i).qty, actual.get(i).qty),
+                    () -> "qty " + idx + " for " + escape(input));
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c < ' ' || c > '~') sb.append(String.format("\\u%04X", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    @Test
+    void matchesRegexImplementationOnRandomMessages() {
+        RegexOrderParser oracle = new RegexOrderParser();
+        Random rnd = new Random(20240611L);
+        for (int i = 0; i < 50_000; i++) {
+            String input = randomMessage(rnd);
+            assertSameOrders(input, oracle.parseAll(input), parser.parseAll(input));
+        }
+    }
+
+    @Test
+    void matchesRegexImplementationOnCornerCases() {
+        RegexOrderParser oracle = new RegexOrderParser();
+        String[] inputs = {
+                "", "2", "12", "2.5", "2.55", "2.", "2.x", "2..5", "2 ", "<@U1>", "<@>", "<@U1>2 apples",
+                "2\napples", "2 apples x", "2  apples", "\u0001", "a. 3", "a.3", "a.. 3", "a...x3",
+                "2 apples,,,,3 bananas....4 oranges", "1.5 kg sugar. 2 eggs", "2 ΑΣ, 3 İstanbul"
+        };
+        for (String input : inputs) {
+            assertSameOrders(input, oracle.parseAll(input), parser.parseAll(input));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcScheduleRunStore;
+import com.andreycorp.slack_grocery_bot.scheduler.ScheduledRuns;
+import com.andreycorp.slack_grocery_bot.scheduler.TenantScheduler;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ScheduledRunsTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    private final WeeklyOrderScheduler orders = mock(WeeklyOrderScheduler.class);
+    private final TenantScheduler tenantScheduler = mock(TenantScheduler.class);
+    private final JdbcScheduleRunStore runStore = mock(JdbcScheduleRunStore.class);
+    private final Map<String, Instant> lastRuns = new HashMap<>();
+    private final ScheduledRuns runs = new ScheduledRuns(orders, tenantScheduler, runStore, new SimpleMeterRegistry(), 100);
+
+    @AfterEach
+    void shutdown() {
+        runs.shutdown();
+    }
+
+    @Test
+    void missedCloseRunsAlone() throws Exception {
+        Instant open = NOW.minus(Duration.ofDays(3));
+        Instant close = NOW.minus(Duration.ofDays(1));
+        due(open, close);
+        ran(open, close.minus(WEEK));
+
+        runs.catchUp(List.of("T1"));
+
+        verify(orders, timeout(2_000)).closeOrderThreadFor("T1");
+        verify(runStore, timeout(2_000)).recordRun("T1", ScheduledRuns.CLOSE, close);
+        verify(orders, never()).openOrderThreadFor(anyString(), any());
+    }
+
+    @Test
+    void missedCloseRunsBeforeTheMissedOpenAfterIt() throws Exception {
+        Instant close = NOW.minus(Duration.ofDays(2));
+        Instant open = NOW.minus(Duration.ofDays(1));
+        due(open, close);
+        ran(open.minus(WEEK), close.minus(WEEK));
+
+        runs.catchUp(List.of("T1"));
+
+        verify(orders, timeout(2_000)).openOrderThreadFor("T1", open);
+        InOrder order = inOrder(orders);
+        order.verify(orders).closeOrderThreadFor("T1");
+        order.verify(orders).openOrderThreadFor("T1", open);
+    }
+
+    @Test
+    void missedOpenDueBeforeTheLatestCloseIsSkipped() throws Exception {
+        // both missed, but the thread that open would start is already due to be closed
+        Instant open = NOW.minus(Duration.ofDays(3));
+        Instant close = NOW.minus(Duration.ofDays(1));
+        due(open, close);
+        ran(open.minus(WEEK), close.minus(WEEK));
+
+        runs.catchUp(List.of("T1"));
+
+        verify(orders, timeout(2_000)).closeOrderThreadFor("T1");
+        verify(orders, after(200).never()).openOrderThreadFor(anyString(), any());
+    }
+
+    @Test
+    void runsAlreadyRecordedAreNotRepeated() throws Exception {
+        Instant open = NOW.minus(Duration.ofDays(3));
+        Instant close = NOW.minus(Duration.ofDays(1));
+        due(open, close);
+        ran(open, close);
+
+        runs.catchUp(List.of("T1"));
+
+        verify(orders, after(200).never()).closeOrderThreadFor(anyString());
+        verify(orders, never()).openOrderThreadFor(anyString(), any());
+        verify(runStore, never()).recordRun(anyString(), anyString(), any());
+    }
+
+    @Test
+    void tenantWithoutHistoryIsOnlyBaselined() throws Exception {
+        Instant open = NOW.minus(Duration.ofDays(3));
+        Instant close = NOW.minus(Duration.ofDays(1));
+        due(open, close);
+        when(runStore.findAllLastRuns()).thenReturn(Map.of());
+
+        runs.catchUp(List.of("T1"));
+
+        verify(runStore).recordRun("T1", ScheduledRuns.OPEN, open);
+        verify(runStore).recordRun("T1", ScheduledRuns.CLOSE, close);
+        verify(orders, after(200).never()).closeOrderThreadFor(anyString());
+        verify(orders, never()).openOrderThreadFor(anyString(), any());
+    }
+
+    private void due(Instant open, Instant close) {
+        when(tenantScheduler.lastFireAtOrBefore(eq(ScheduledRuns.jobKey(ScheduledRuns.OPEN, "T1")), any(), any()))
+                .thenReturn(open);
+        when(tenantScheduler.lastFireAtOrBefore(eq(ScheduledRuns.jobKey(ScheduledRuns.CLOSE, "T1")), any(), any()))
+                .thenReturn(close);
+    }
+
+    private void ran(Instant open, Instant close) {
+        lastRuns.put(JdbcScheduleRunStore.runKey("T1", ScheduledRuns.OPEN), open);
+        lastRuns.put(JdbcScheduleRunStore.runKey("T1", ScheduledRuns.CLOSE), close);
+        when(runStore.findAllLastRuns()).thenReturn(lastRuns);
+    }
+}
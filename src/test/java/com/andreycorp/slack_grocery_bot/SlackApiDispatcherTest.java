@@ -0,0 +1,167 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.SlackApiDispatcher;
+import com.andreycorp.slack_grocery_bot.Services.SlackApiDispatcher.Priority;
+import com.andreycorp.slack_grocery_bot.Services.SlackApiMethod;
+import com.andreycorp.slack_grocery_bot.Services.SlackClientRegistry;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.SlackApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlackApiDispatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlackClientRegistry clients = mock(SlackClientRegistry.class);
+    private SlackApiDispatcher dispatcher;
+
+    SlackApiDispatcherTest() {
+        when(clients.clientForTeam(anyString())).thenReturn(mock(MethodsClient.class));
+    }
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void emptyBucketHoldsTheCallWithoutBlockingOtherTenants() throws Exception {
+        dispatcher = new SlackApiDispatcher(clients, registry, 5, 1, Executors.newVirtualThreadPerTaskExecutor());
+        AtomicInteger sent = new AtomicInteger();
+
+        // pins.add: burst of 2, then one token every 3 seconds
+        for (int i = 0; i < 2; i++) {
+            dispatcher.call("T1", SlackApiMethod.PINS_ADD, Priority.NORMAL, c -> sent.incrementAndGet());
+        }
+        assertThrows(IOException.class,
+                () -> dispatcher.call("T1", SlackApiMethod.PINS_ADD, Priority.NORMAL, c -> sent.incrementAndGet()));
+        assertEquals(2, sent.get(), "the timed-out call was never sent");
+        assertTrue(registry.counter("slack.api.throttled", "method", "pins.add").count() >= 1);
+
+        assertEquals("ok", dispatcher.call("T2", SlackApiMethod.PINS_ADD, Priority.NORMAL, c -> "ok"));
+    }
+
+    @Test
+    void rateLimitedCallIsQueuedAgainAfterRetryAfter() throws Exception {
+        dispatcher = new SlackApiDispatcher(clients, registry, 5, 5, Executors.newVirtualThreadPerTaskExecutor());
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = dispatcher.call("T1", SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new SlackApiException(rateLimited(1), "");
+            }
+            return "posted";
+        });
+
+        assertEquals("posted", result);
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1), "waited for Retry-After");
+        assertEquals(1, registry.counter("slack.api.ratelimited", "method", "chat.postMessage").count());
+    }
+
+    @Test
+    void rateLimitedCallFailsOnceRetriesAreUsedUp() {
+        dispatcher = new SlackApiDispatcher(clients, registry, 0, 5, Executors.newVirtualThreadPerTaskExecutor());
+
+        SlackApiException e = assertThrows(SlackApiException.class,
+                () -> dispatcher.call("T1", SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> {
+                    throw new SlackApiException(rateLimited(1), "");
+                }));
+        assertEquals(429, e.getResponse().code());
+    }
+
+    @Test
+    void higherPriorityCallsRunFirst() throws Exception {
+        // calls run on the dispatcher thread, so a blocked call holds back everything behind it
+        dispatcher = new SlackApiDispatcher(clients, registry, 5, 10, Runnable::run);
+        List<Priority> order = new CopyOnWriteArrayList<>();
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread blocker = Thread.ofVirtual().start(() -> call(SlackApiMethod.USERS_INFO, Priority.BACKGROUND, c -> {
+            blocking.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+        List<Thread> callers = List.of(Priority.BACKGROUND, Priority.NORMAL, Priority.USER_FACING).stream()
+                .map(p -> Thread.ofVirtual().start(() -> call(SlackApiMethod.USERS_INFO, p, c -> order.add(p))))
+                .toList();
+        while (registry.get("slack.api.queue.depth").gauge().value() < 3) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        blocker.join();
+        for (Thread t : callers) {
+            t.join();
+        }
+
+        assertEquals(List.of(Priority.USER_FACING, Priority.NORMAL, Priority.BACKGROUND), order);
+    }
+
+    @Test
+    void callerWaitsForACallAlreadySent() throws Exception {
+        dispatcher = new SlackApiDispatcher(clients, registry, 5, 1, Executors.newVirtualThreadPerTaskExecutor());
+
+        // runs past max-wait; giving up now could let the outbox send it a second time
+        String result = dispatcher.call("T1", SlackApiMethod.CHAT_POST_MESSAGE, Priority.NORMAL, c -> {
+            sleep(1500);
+            return "posted";
+        });
+
+        assertEquals("posted", result);
+    }
+
+    private <T> void call(SlackApiMethod method, Priority priority, SlackApiDispatcher.SlackCall<T> call) {
+        try {
+            dispatcher.call("T1", method, priority, call);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Response rateLimited(int retryAfterSeconds) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("https://slack.com/api/chat.postMessage").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(429)
+                .message("Too Many Requests")
+                .header("Retry-After", String.valueOf(retryAfterSeconds))
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.SlackClientRegistry;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcWorkspaceService;
+import com.slack.api.methods.MethodsClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SlackClientRegistryTest {
+
+    private final JdbcWorkspaceService workspaceService = mock(JdbcWorkspaceService.class);
+
+    private SlackClientRegistry registry(long ttlMinutes) {
+        return new SlackClientRegistry(workspaceService, new SimpleMeterRegistry(), ttlMinutes, 5, 60);
+    }
+
+    @Test
+    void tokenIsReadOncePerTeam() {
+        when(workspaceService.getBotToken("T1")).thenReturn("xoxb-1");
+        when(workspaceService.getBotToken("T2")).thenReturn("xoxb-2");
+        SlackClientRegistry registry = registry(60);
+
+        MethodsClient first = registry.clientForTeam("T1");
+        assertSame(first, registry.clientForTeam("T1"));
+        assertNotSame(first, registry.clientForTeam("T2"));
+
+        verify(workspaceService, times(1)).getBotToken("T1");
+        verify(workspaceService, times(1)).getBotToken("T2");
+    }
+
+    @Test
+    void invalidateReloadsTheToken() {
+        when(workspaceService.getBotToken("T1")).thenReturn("xoxb-old", "xoxb-new");
+        SlackClientRegistry registry = registry(60);
+
+        MethodsClient old = registry.clientForTeam("T1");
+        registry.invalidate("T1");
+
+        assertNotSame(old, registry.clientForTeam("T1"));
+        verify(workspaceService, times(2)).getBotToken("T1");
+    }
+
+    @Test
+    void expiredTokenIsReloaded() {
+        when(workspaceService.getBotToken("T1")).thenReturn("xoxb-1");
+        SlackClientRegistry registry = registry(0);
+
+        registry.clientForTeam("T1");
+        registry.clientForTeam("T1");
+
+        verify(workspaceService, times(2)).getBotToken("T1");
+    }
+}
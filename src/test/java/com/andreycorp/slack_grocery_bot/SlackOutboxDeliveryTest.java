@@ -0,0 +1,99 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.SlackErrorException;
+import com.andreycorp.slack_grocery_bot.Services.SlackMessageService;
+import com.andreycorp.slack_grocery_bot.Services.SlackOutboxDelivery;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSlackOutbox;
+import com.andreycorp.slack_grocery_bot.jdbc.JdbcSlackOutbox.Claimed;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import com.andreycorp.slack_grocery_bot.scheduler.OrderThreadOpenedEvent;
+import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SlackOutboxDeliveryTest {
+
+    private final JdbcSlackOutbox outbox = mock(JdbcSlackOutbox.class);
+    private final SlackMessageService slack = mock(SlackMessageService.class);
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlackOutboxDelivery delivery = new SlackOutboxDelivery(outbox, slack,
+            events, registry, false, 500, 50, 10, 5, 900, 120, 7);
+
+    private static final OutboxMessage POST =
+            new OutboxMessage("T1", OutboxMessage.Kind.POST, "C1", null, "hello", "k1");
+
+    @Test
+    void permanentSlackErrorFailsTheRowAtOnce() throws Exception {
+        when(outbox.claim(anyInt(), anyInt())).thenReturn(List.of(new Claimed(1, 1, 0, POST)));
+        when(slack.sendMessageForTeam("T1", "C1", "hello")).thenThrow(new SlackErrorException("channel_not_found"));
+
+        delivery.drainOnce();
+
+        verify(outbox).markFailed(eq(1L), eq("channel_not_found"), anyInt(), eq(true));
+        assertEquals(1, registry.counter("slack.outbox", "result", "failed").count());
+    }
+
+    @Test
+    void transientErrorIsRetried() throws Exception {
+        when(outbox.claim(anyInt(), anyInt())).thenReturn(List.of(new Claimed(1, 1, 0, POST)));
+        when(slack.sendMessageForTeam("T1", "C1", "hello")).thenThrow(new IOException("timeout"));
+
+        delivery.drainOnce();
+
+        verify(outbox).markFailed(eq(1L), eq("timeout"), anyInt(), eq(false));
+        assertEquals(1, registry.counter("slack.outbox", "result", "retried").count());
+    }
+
+    @Test
+    void lastAttemptGivesUp() throws Exception {
+        when(outbox.claim(anyInt(), anyInt())).thenReturn(List.of(new Claimed(1, 10, 0, POST)));
+        when(slack.sendMessageForTeam("T1", "C1", "hello")).thenThrow(new SlackErrorException("internal_error"));
+
+        delivery.drainOnce();
+
+        verify(outbox).markFailed(eq(1L), anyString(), anyInt(), eq(true));
+        verify(outbox, never()).markDelivered(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void openedThreadIsRecordedWithTheChannelIdSlackReturned() throws Exception {
+        OutboxMessage open = new OutboxMessage("T1", OutboxMessage.Kind.OPEN_THREAD, "#grocery-office", null,
+                "New thread", "open:T1:2026-10-12T06:00:00Z");
+        when(outbox.claim(anyInt(), anyInt())).thenReturn(List.of(new Claimed(3, 1, 0, open)));
+        ChatPostMessageResponse posted = new ChatPostMessageResponse();
+        posted.setOk(true);
+        posted.setChannel("C0GROCERY");
+        posted.setTs("1760248800.000100");
+        when(slack.sendMessageForTeam("T1", "#grocery-office", "New thread")).thenReturn(posted);
+
+        delivery.drainOnce();
+
+        verify(outbox).markDelivered(3L, "C0GROCERY", "1760248800.000100", List.of(new OutboxMessage("T1",
+                OutboxMessage.Kind.PIN, "C0GROCERY", "1760248800.000100", "", "open:T1:2026-10-12T06:00:00Z:pin")));
+        verify(events).publishEvent(new OrderThreadOpenedEvent("T1", "C0GROCERY", "1760248800.000100",
+                "open:T1:2026-10-12T06:00:00Z"));
+    }
+
+    @Test
+    void pinIsDeliveredWhenTheServiceSucceeds() {
+        OutboxMessage pin = new OutboxMessage("T1", OutboxMessage.Kind.PIN, "C1", "1700000000.000100", "", "k1:pin");
+        when(outbox.claim(anyInt(), anyInt())).thenReturn(List.of(new Claimed(2, 1, 0, pin)));
+
+        delivery.drainOnce();
+
+        verify(outbox).markDelivered(2L, null, null, List.of());
+        verify(outbox, never()).markFailed(anyLong(), anyString(), anyInt(), anyBoolean());
+    }
+}
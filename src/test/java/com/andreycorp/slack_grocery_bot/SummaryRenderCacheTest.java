@@ -0,0 +1,51 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.SummaryRenderCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SummaryRenderCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private String render() {
+        return "render-" + renders.incrementAndGet();
+    }
+
+    @Test
+    void reusesRenderUntilVersionMoves() {
+        SummaryRenderCache cache = new SummaryRenderCache(registry, 10);
+
+        assertEquals("render-1", cache.get("T1", 1, this::render));
+        assertEquals("render-1", cache.get("T1", 1, this::render));
+
+        assertEquals("render-2", cache.get("T1", 2, this::render));
+
+        assertEquals(1.0, registry.counter("slack.summary.render-cache", "result", "hit").count());
+        assertEquals(2.0, registry.counter("slack.summary.render-cache", "result", "miss").count());
+    }
+
+    @Test
+    void versionIsPerTenant() {
+        SummaryRenderCache cache = new SummaryRenderCache(registry, 10);
+        cache.get("T1", 1, this::render);
+        cache.get("T2", 1, this::render);
+
+        assertEquals("render-1", cache.get("T1", 1, this::render));
+        assertEquals("render-3", cache.get("T2", 2, this::render));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTenant() {
+        SummaryRenderCache cache = new SummaryRenderCache(registry, 1);
+        cache.get("T1", 1, this::render);
+        cache.get("T2", 1, this::render); // evicts T1
+
+        assertEquals("render-3", cache.get("T1", 1, this::render));
+    }
+}
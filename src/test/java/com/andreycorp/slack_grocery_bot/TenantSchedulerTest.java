@@ -0,0 +1,59 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.scheduler.TenantScheduler;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklySchedule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantSchedulerTest {
+
+    // THU 17:00 in Jerusalem is 14:00 UTC
+    private static final WeeklySchedule THU_17 = WeeklySchedule.of("THU", "17:00", "Asia/Jerusalem");
+    private static final Duration LOOKBACK = Duration.ofDays(8);
+
+    private final TenantScheduler scheduler = new TenantScheduler(new SimpleMeterRegistry(), 2);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void lastFireIsTheLatestOneAtOrBeforeTheInstant() {
+        scheduler.schedule("close:T1", THU_17, firedFor -> {});
+
+        assertEquals(Instant.parse("2026-10-15T14:00:00Z"),
+                scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-20T00:00:00Z"), LOOKBACK));
+        assertEquals(Instant.parse("2026-10-15T14:00:00Z"),
+                scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-15T14:00:00Z"), LOOKBACK));
+        assertEquals(Instant.parse("2026-10-08T14:00:00Z"),
+                scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-15T13:59:59Z"), LOOKBACK));
+    }
+
+    @Test
+    void lastFireIncludesTheSpreadOffset() {
+        scheduler.schedule("close:T1", THU_17, Duration.ofSeconds(90), firedFor -> {});
+
+        assertEquals(Instant.parse("2026-10-15T14:01:30Z"),
+                scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-20T00:00:00Z"), LOOKBACK));
+        assertEquals(Instant.parse("2026-10-08T14:01:30Z"),
+                scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-15T14:01:00Z"), LOOKBACK));
+    }
+
+    @Test
+    void noFireWithinTheLookbackOrNoJobIsNull() {
+        scheduler.schedule("close:T1", THU_17, firedFor -> {});
+
+        assertNull(scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-20T00:00:00Z"), Duration.ofDays(1)));
+        assertNull(scheduler.lastFireAtOrBefore("open:T1", Instant.parse("2026-10-20T00:00:00Z"), LOOKBACK));
+
+        scheduler.cancel("close:T1");
+        assertNull(scheduler.lastFireAtOrBefore("close:T1", Instant.parse("2026-10-20T00:00:00Z"), LOOKBACK));
+    }
+}
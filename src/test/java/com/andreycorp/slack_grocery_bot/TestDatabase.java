@@ -0,0 +1,55 @@
+package com.andreycorp.slack_grocery_bot;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A PostgreSQL database with the db/migration scripts applied, for tests of the JDBC stores.
+ *
+ * Set TEST_DATABASE_URL (e.g. jdbc:postgresql://localhost:5432/grocery_test?user=postgres) to a
+ * throwaway database: its public schema is dropped and recreated for every test. Test classes
+ * using it are annotated {@code @EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")}
+ * and skipped without one.
+ */
+final class TestDatabase {
+
+    private TestDatabase() {}
+
+    /** An empty database at the latest schema version. */
+    static DataSource migrated() throws SQLException, IOException {
+        DataSource ds = new DriverManagerDataSource(System.getenv("TEST_DATABASE_URL"));
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql");
+        Arrays.sort(scripts, Comparator.comparingInt(TestDatabase::version));
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("DROP SCHEMA public CASCADE; CREATE SCHEMA public");
+            for (Resource script : scripts) {
+                st.execute(script.getContentAsString(StandardCharsets.UTF_8));
+            }
+        }
+        return ds;
+    }
+
+    /** Adds a workspace, which every tenant row references. */
+    static void addWorkspace(DataSource ds, String teamId) throws SQLException {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("INSERT INTO workspace(team_id, bot_token, signing_secret) VALUES ('" + teamId + "', 'x', 'x')");
+        }
+    }
+
+    private static int version(Resource script) {
+        String name = script.getFilename();
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+}
@@ -0,0 +1,136 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.Services.LiveSummaryRegistry;
+import com.andreycorp.slack_grocery_bot.Services.SummaryService;
+import com.andreycorp.slack_grocery_bot.llm.AISummaryService;
+import com.andreycorp.slack_grocery_bot.model.EventStore;
+import com.andreycorp.slack_grocery_bot.model.MessageEvent;
+import com.andreycorp.slack_grocery_bot.model.OrderThread;
+import com.andreycorp.slack_grocery_bot.model.OrderThreadStore;
+import com.andreycorp.slack_grocery_bot.model.OutboxMessage;
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklyOrderScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WeeklyOrderSchedulerTest {
+
+    private static final OrderThread THREAD =
+            new OrderThread(1, "T1", "C0GROCERY", "1760248800.000100", null);
+    private static final List<MessageEvent> MSGS =
+            List.of(new MessageEvent("T1", "U1", "C0GROCERY", "<@B1> 2 apples", "1760248900.000200"));
+    private static final OutboxMessage MANUAL =
+            new OutboxMessage("T1", OutboxMessage.Kind.POST, "C0GROCERY", THREAD.threadTs(), "summary", "close:1");
+    private static final OutboxMessage AI =
+            new OutboxMessage("T1", OutboxMessage.Kind.POST, "C0GROCERY", THREAD.threadTs(), "polished", "close:1:ai");
+
+    private final OrderThreadStore threads = mock(OrderThreadStore.class);
+    private final EventStore eventStore = mock(EventStore.class);
+    private final SummaryService summaryService = mock(SummaryService.class);
+    private final AISummaryService aiSummaryService = mock(AISummaryService.class);
+    private final LiveSummaryRegistry liveSummaries = mock(LiveSummaryRegistry.class);
+    private final TaskScheduler maintenance = mock(TaskScheduler.class);
+    private WeeklyOrderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(threads.claimClose(eq("T1"), anyInt())).thenReturn(THREAD, (OrderThread) null);
+        when(eventStore.fetchMessagesInRangeForTeam("T1", "C0GROCERY", THREAD.threadTs(), null)).thenReturn(MSGS);
+        when(summaryService.threadSummaryMessagesForTeam("T1", "C0GROCERY", THREAD.threadTs(), null, true, ""))
+                .thenReturn(List.of(MANUAL));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void closeQueuesTheManualAndAiSummariesTogether() throws Exception {
+        scheduler = scheduler(Set.of("chatgpt"), 5);
+        when(aiSummaryService.chatGptSummaryMessageForTeam("T1", "C0GROCERY", THREAD.threadTs(), null)).thenReturn(AI);
+
+        scheduler.closeOrderThreadFor("T1");
+
+        verify(threads).completeClose(THREAD, List.of(MANUAL, AI));
+    }
+
+    @Test
+    void slowAiSummaryIsLeftOutAfterTheTimeout() throws Exception {
+        scheduler = scheduler(Set.of("chatgpt"), 1);
+        when(aiSummaryService.chatGptSummaryMessageForTeam("T1", "C0GROCERY", THREAD.threadTs(), null))
+                .thenAnswer(inv -> {
+                    Thread.sleep(2_000);
+                    return AI;
+                });
+
+        scheduler.closeOrderThreadFor("T1");
+
+        verify(threads).completeClose(THREAD, List.of(MANUAL));
+    }
+
+    @Test
+    void failingAiSummaryIsLeftOut() throws Exception {
+        scheduler = scheduler(Set.of("chatgpt"), 5);
+        when(aiSummaryService.chatGptSummaryMessageForTeam("T1", "C0GROCERY", THREAD.threadTs(), null))
+                .thenThrow(new IllegalStateException("quota exceeded"));
+
+        scheduler.closeOrderThreadFor("T1");
+
+        verify(threads).completeClose(THREAD, List.of(MANUAL));
+    }
+
+    @Test
+    void failedManualSummaryFailsTheClose() throws Exception {
+        scheduler = scheduler(Set.of(), 5);
+        when(summaryService.threadSummaryMessagesForTeam(any(), any(), any(), any(), anyBoolean(), any()))
+                .thenThrow(new IllegalStateException("db down"));
+
+        // the thread keeps its lease; the stuck-close sweep retries it once the lease runs out
+        assertThrows(IllegalStateException.class, () -> scheduler.closeOrderThreadFor("T1"));
+
+        verify(threads, never()).completeClose(any(), any());
+        verify(threads, never()).compact(any());
+    }
+
+    @Test
+    void failedCompactionIsPickedUpBySweep() throws Exception {
+        scheduler = scheduler(Set.of(), 5);
+        doThrow(new IllegalStateException("deadlock")).doNothing().when(threads).compact(THREAD);
+
+        scheduler.closeOrderThreadFor("T1");
+        verify(threads, timeout(5_000)).compact(THREAD);
+        verify(liveSummaries, never()).invalidate("T1");
+
+        when(threads.pendingCompaction(anyInt())).thenReturn(List.of(THREAD));
+        compactionSweep().run();
+
+        verify(threads, times(2)).compact(THREAD);
+        verify(liveSummaries).invalidate("T1");
+    }
+
+    private WeeklyOrderScheduler scheduler(Set<String> aiSummaries, long aiTimeoutSeconds) {
+        return new WeeklyOrderScheduler(threads, eventStore, summaryService, aiSummaryService, liveSummaries,
+                "#grocery-office", "", 4, 600, aiSummaries, aiTimeoutSeconds, 10, 5,
+                maintenance, new SimpleMeterRegistry());
+    }
+
+    /** The first periodic task the scheduler registered. */
+    private Runnable compactionSweep() {
+        ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+        verify(maintenance, times(2)).scheduleWithFixedDelay(tasks.capture(), any(Instant.class), any(Duration.class));
+        return tasks.getAllValues().get(0);
+    }
+}
@@ -0,0 +1,62 @@
+package com.andreycorp.slack_grocery_bot;
+
+import com.andreycorp.slack_grocery_bot.scheduler.WeeklySchedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeeklyScheduleTest {
+
+    @Test
+    void firesAtLocalTimeOfEachTenantsZone() {
+        Instant monday = Instant.parse("2026-10-12T00:00:00Z");
+        assertEquals(Instant.parse("2026-10-12T06:00:00Z"),
+                WeeklySchedule.of("MON", "09:00", "Asia/Jerusalem").nextAfter(monday));
+        assertEquals(Instant.parse("2026-10-12T13:00:00Z"),
+                WeeklySchedule.of("MON", "09:00", "America/New_York").nextAfter(monday));
+    }
+
+    @Test
+    void onlyTheStoredThreeLetterDayCodesParse() {
+        assertEquals(Instant.parse("2026-10-15T14:00:00Z"),
+                WeeklySchedule.of("THU", "17:00", "Asia/Jerusalem").nextAfter(Instant.parse("2026-10-12T00:00:00Z")));
+        for (String day : new String[] {"", "T", "S", "TH", "THURSDAY", "THURSDAYX", "thu"}) {
+            assertThrows(IllegalArgumentException.class, () -> WeeklySchedule.of(day, "17:00", "Asia/Jerusalem"), day);
+        }
+    }
+
+    @Test
+    void nextFireIsAWeekAfterAFire() {
+        WeeklySchedule s = WeeklySchedule.of("THU", "17:00", "Asia/Jerusalem");
+        Instant fire = s.nextAfter(Instant.parse("2026-10-12T00:00:00Z"));
+        assertEquals(Instant.parse("2026-10-15T14:00:00Z"), fire);
+        assertEquals(Instant.parse("2026-10-22T14:00:00Z"), s.nextAfter(fire));
+    }
+
+    @Test
+    void timeSkippedBySpringForwardFiresAfterTheGap() {
+        // New York: 2026-03-08 02:00 EST jumps to 03:00 EDT
+        WeeklySchedule s = WeeklySchedule.of("SUN", "02:30", "America/New_York");
+        assertEquals(Instant.parse("2026-03-08T07:30:00Z"), s.nextAfter(Instant.parse("2026-03-07T00:00:00Z")));
+    }
+
+    @Test
+    void timeRepeatedByFallBackFiresOnce() {
+        // New York: 2026-11-01 02:00 EDT falls back to 01:00 EST, so 01:30 happens twice
+        WeeklySchedule s = WeeklySchedule.of("SUN", "01:30", "America/New_York");
+        Instant first = s.nextAfter(Instant.parse("2026-10-31T00:00:00Z"));
+        assertEquals(Instant.parse("2026-11-01T05:30:00Z"), first);
+        assertEquals(Instant.parse("2026-11-08T06:30:00Z"), s.nextAfter(first));
+    }
+
+    @Test
+    void weeklyLocalTimeHoldsAcrossDstChange() {
+        // Jerusalem leaves DST on 2026-10-25: 09:00 local moves from 06:00Z to 07:00Z
+        WeeklySchedule s = WeeklySchedule.of("MON", "09:00", "Asia/Jerusalem");
+        Instant before = s.nextAfter(Instant.parse("2026-10-19T00:00:00Z"));
+        assertEquals(Instant.parse("2026-10-19T06:00:00Z"), before);
+        assertEquals(Instant.parse("2026-10-26T07:00:00Z"), s.nextAfter(before));
+    }
+}